@@ -0,0 +1,84 @@
+package org.enumerable.lambda.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.enumerable.lambda.Lambda.λ;
+import static org.enumerable.lambda.Parameters.m;
+import static org.enumerable.lambda.Parameters.n;
+import static org.enumerable.lambda.enumerable.Enumerable.*;
+
+/**
+ * minBy, maxBy, minMaxBy and sortBy, which call the block once per element to
+ * compute its key, against min, max and sort comparing the same keys computed
+ * by the block for each comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ByBenchmark {
+    @Param({ "100", "10000" })
+    public int size;
+
+    List<Integer> list;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        list = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++)
+            list.add(random.nextInt());
+    }
+
+    @Benchmark
+    public Integer enumerableMinBy() {
+        return minBy(list, λ(n, n + ""));
+    }
+
+    @Benchmark
+    public Integer enumerableMinComparingKeys() {
+        return min(list, λ(n, m, (n + "").compareTo(m + "")));
+    }
+
+    @Benchmark
+    public Integer enumerableMaxBy() {
+        return maxBy(list, λ(n, n + ""));
+    }
+
+    @Benchmark
+    public Integer enumerableMaxComparingKeys() {
+        return max(list, λ(n, m, (n + "").compareTo(m + "")));
+    }
+
+    @Benchmark
+    public List<Integer> enumerableMinMaxBy() {
+        return minMaxBy(list, λ(n, n + ""));
+    }
+
+    @Benchmark
+    public List<Integer> enumerableSortBy() {
+        return sortBy(list, λ(n, n + ""));
+    }
+
+    @Benchmark
+    public List<Integer> enumerableSortComparingKeys() {
+        return sort(list, λ(n, m, (n + "").compareTo(m + "")));
+    }
+}
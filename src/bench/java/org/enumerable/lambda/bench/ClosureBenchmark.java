@@ -0,0 +1,98 @@
+package org.enumerable.lambda.bench;
+
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Lambda;
+import org.enumerable.lambda.enumerable.primitives.EnumerableInts;
+import org.enumerable.lambda.primitives.Fn1ItoI;
+import org.enumerable.lambda.primitives.LambdaPrimitives;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.enumerable.lambda.Parameters.n;
+import static org.enumerable.lambda.enumerable.EnumerableArrays.*;
+
+/**
+ * Allocation and invocation of closures, boxed {@link Fn1} against primitive
+ * {@link Fn1ItoI}, and access to mutable captured locals, which the weaver
+ * boxes into one element arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ClosureBenchmark {
+    Fn1<Integer, Integer> boxed;
+    Fn1ItoI primitive;
+
+    int[] ints;
+    Integer[] integers;
+    int argument;
+
+    @Setup
+    public void setUp() {
+        boxed = Lambda.λ(n, n + 1);
+        primitive = LambdaPrimitives.λ(n, n + 1);
+
+        Random random = new Random(42);
+        ints = new int[1000];
+        integers = new Integer[ints.length];
+        for (int i = 0; i < ints.length; i++)
+            integers[i] = ints[i] = random.nextInt(1000);
+        argument = random.nextInt(1000);
+    }
+
+    @Benchmark
+    public Object allocateBoxed() {
+        return Lambda.λ(n, n + 1);
+    }
+
+    @Benchmark
+    public Object allocatePrimitive() {
+        return LambdaPrimitives.λ(n, n + 1);
+    }
+
+    @Benchmark
+    public Integer invokeBoxed() {
+        return boxed.call(argument);
+    }
+
+    @Benchmark
+    public int invokePrimitive() {
+        return primitive.call(argument);
+    }
+
+    @Benchmark
+    public int capturedLocalBoxed() {
+        int sum = 0;
+        each(integers, Lambda.λ(n, sum += n));
+        return sum;
+    }
+
+    @Benchmark
+    public int capturedLocalPrimitive() {
+        int sum = 0;
+        EnumerableInts.each(ints, LambdaPrimitives.λ(n, sum += n));
+        return sum;
+    }
+
+    @Benchmark
+    public int forLoop() {
+        int sum = 0;
+        for (int i : ints)
+            sum += i;
+        return sum;
+    }
+}
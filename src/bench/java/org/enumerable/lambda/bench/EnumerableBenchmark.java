@@ -0,0 +1,105 @@
+package org.enumerable.lambda.bench;
+
+import org.enumerable.lambda.enumerable.EnumerableArrays;
+import org.enumerable.lambda.enumerable.Range;
+import org.enumerable.lambda.enumerable.primitives.EnumerableInts;
+import org.enumerable.lambda.primitives.LambdaPrimitives;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.enumerable.lambda.Lambda.λ;
+import static org.enumerable.lambda.Parameters.m;
+import static org.enumerable.lambda.Parameters.n;
+import static org.enumerable.lambda.enumerable.Enumerable.*;
+
+/**
+ * The {@link org.enumerable.lambda.enumerable.Enumerable} facade on lists, the
+ * array kernels in {@link EnumerableArrays} against {@link EnumerableInts}, and
+ * iteration over a {@link Range}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EnumerableBenchmark {
+    @Param({ "100", "10000" })
+    public int size;
+
+    List<Integer> list;
+    Integer[] integers;
+    int[] ints;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        list = new ArrayList<Integer>(size);
+        integers = new Integer[size];
+        ints = new int[size];
+        for (int i = 0; i < size; i++)
+            list.add(integers[i] = ints[i] = random.nextInt());
+    }
+
+    @Benchmark
+    public List<String> enumerableCollect() {
+        return collect(list, λ(n, n + ""));
+    }
+
+    @Benchmark
+    public Integer enumerableInject() {
+        return inject(list, λ(n, m, n ^ m));
+    }
+
+    @Benchmark
+    public List<Integer> enumerableSortBy() {
+        return sortBy(list, λ(n, -n));
+    }
+
+    @Benchmark
+    public Object[] arraysCollect() {
+        return EnumerableArrays.collect(integers, λ(n, n * 2));
+    }
+
+    @Benchmark
+    public int[] intsCollect() {
+        return EnumerableInts.collect(ints, LambdaPrimitives.λ(n, n * 2));
+    }
+
+    @Benchmark
+    public Integer arraysInject() {
+        return EnumerableArrays.inject(integers, λ(n, m, n ^ m));
+    }
+
+    @Benchmark
+    public int intsInject() {
+        return EnumerableInts.inject(ints, LambdaPrimitives.λ(n, m, n ^ m));
+    }
+
+    @Benchmark
+    public Integer rangeInject() {
+        return new Range(1, size).inject(λ(n, m, n ^ m));
+    }
+
+    @Benchmark
+    public int rangeForLoop() {
+        int result = 0;
+        for (int i : new Range(1, size))
+            result ^= i;
+        return result;
+    }
+}
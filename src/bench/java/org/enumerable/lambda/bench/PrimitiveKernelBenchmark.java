@@ -0,0 +1,113 @@
+package org.enumerable.lambda.bench;
+
+import org.enumerable.lambda.enumerable.primitives.EnumerableDoubles;
+import org.enumerable.lambda.enumerable.primitives.EnumerableInts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.enumerable.lambda.Parameters.m;
+import static org.enumerable.lambda.Parameters.n;
+import static org.enumerable.lambda.Parameters.x;
+import static org.enumerable.lambda.Parameters.y;
+import static org.enumerable.lambda.primitives.LambdaPrimitives.λ;
+
+/**
+ * The numeric kernels of {@link EnumerableInts} and {@link EnumerableDoubles},
+ * sum, dot and mean, against the same aggregates written using inject.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PrimitiveKernelBenchmark {
+    @Param({ "100", "10000", "1000000" })
+    public int size;
+
+    int[] ints;
+    double[] doubles;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ints = new int[size];
+        doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = random.nextInt(1000);
+            doubles[i] = random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public int intsInjectSum() {
+        return EnumerableInts.inject(ints, 0, λ(n, m, n + m));
+    }
+
+    @Benchmark
+    public int intsSum() {
+        return EnumerableInts.sum(ints);
+    }
+
+    @Benchmark
+    public int intsInjectDot() {
+        return EnumerableInts.inject(ints, 0, λ(n, m, n + m * m));
+    }
+
+    @Benchmark
+    public int intsDot() {
+        return EnumerableInts.dot(ints, ints);
+    }
+
+    @Benchmark
+    public double intsInjectMean() {
+        return (double) EnumerableInts.inject(ints, 0, λ(n, m, n + m)) / ints.length;
+    }
+
+    @Benchmark
+    public double intsMean() {
+        return EnumerableInts.mean(ints);
+    }
+
+    @Benchmark
+    public double doublesInjectSum() {
+        return EnumerableDoubles.inject(doubles, 0, λ(x, y, x + y));
+    }
+
+    @Benchmark
+    public double doublesSum() {
+        return EnumerableDoubles.sum(doubles);
+    }
+
+    @Benchmark
+    public double doublesInjectDot() {
+        return EnumerableDoubles.inject(doubles, 0, λ(x, y, x + y * y));
+    }
+
+    @Benchmark
+    public double doublesDot() {
+        return EnumerableDoubles.dot(doubles, doubles);
+    }
+
+    @Benchmark
+    public double doublesInjectMean() {
+        return EnumerableDoubles.inject(doubles, 0, λ(x, y, x + y)) / doubles.length;
+    }
+
+    @Benchmark
+    public double doublesMean() {
+        return EnumerableDoubles.mean(doubles);
+    }
+}
@@ -4,14 +4,20 @@ import org.enumerable.lambda.annotation.LambdaLocal;
 
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import static java.lang.Boolean.FALSE;
+import static java.util.Collections.synchronizedMap;
 import static org.enumerable.lambda.exception.UncheckedException.uncheck;
 
 
@@ -20,6 +26,10 @@ import static org.enumerable.lambda.exception.UncheckedException.uncheck;
  */
 @SuppressWarnings("serial")
 public abstract class Fn0<R> implements Serializable {
+    private static final Map<ClassLoader, Map<String, Map<String, Integer>>> aritiesByLoader = synchronizedMap(new WeakHashMap<ClassLoader, Map<String, Map<String, Integer>>>());
+    private static final Map<String, Map<String, Integer>> bootstrapArities = new ConcurrentHashMap<String, Map<String, Integer>>();
+    private static volatile LoaderArities lastLoaderArities;
+
     /**
      * Creates a constant function always returning the provided value.
      */
@@ -39,7 +49,59 @@ public abstract class Fn0<R> implements Serializable {
         return !isNotFalseOrNull(result);
     }
 
+    /**
+     * Returns the arity of the named method, or -(required + 1) if it has
+     * default values. The result is cached per class, so the reflective check
+     * only runs the first time a class is seen. Classes are cached by name per
+     * weakly referenced class loader, and a cached class doesn't take a lock.
+     */
     public static int getAndCheckArityForMethod(Class<?> aClass, String methodName) {
+        Map<String, Map<String, Integer>> aritiesByClassName = aritiesByClassName(aClass.getClassLoader());
+        Map<String, Integer> arities = aritiesByClassName.get(aClass.getName());
+        Integer arity = arities != null ? arities.get(methodName) : null;
+        if (arity != null)
+            return arity;
+
+        arity = checkArityForMethod(aClass, methodName);
+        arities = arities != null ? new HashMap<String, Integer>(arities) : new HashMap<String, Integer>();
+        arities.put(methodName, arity);
+        aritiesByClassName.put(aClass.getName(), arities);
+        return arity;
+    }
+
+    static Map<String, Map<String, Integer>> aritiesByClassName(ClassLoader loader) {
+        if (loader == null)
+            return bootstrapArities;
+        LoaderArities last = lastLoaderArities;
+        if (last != null && last.get() == loader)
+            return last.aritiesByClassName;
+
+        Map<String, Map<String, Integer>> aritiesByClassName;
+        synchronized (aritiesByLoader) {
+            aritiesByClassName = aritiesByLoader.get(loader);
+            if (aritiesByClassName == null) {
+                aritiesByClassName = new ConcurrentHashMap<String, Map<String, Integer>>();
+                aritiesByLoader.put(loader, aritiesByClassName);
+            }
+        }
+        lastLoaderArities = new LoaderArities(loader, aritiesByClassName);
+        return aritiesByClassName;
+    }
+
+    /**
+     * The arities of the class loader which was looked up last, so lambdas
+     * created by the same loader don't need to lock the map of all loaders.
+     */
+    static class LoaderArities extends WeakReference<ClassLoader> {
+        final Map<String, Map<String, Integer>> aritiesByClassName;
+
+        LoaderArities(ClassLoader loader, Map<String, Map<String, Integer>> aritiesByClassName) {
+            super(loader);
+            this.aritiesByClassName = aritiesByClassName;
+        }
+    }
+
+    static int checkArityForMethod(Class<?> aClass, String methodName) {
         int basicArity = 0;
         for (Method method : aClass.getDeclaredMethods())
             if (method.getName().equals(methodName))
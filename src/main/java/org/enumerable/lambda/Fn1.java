@@ -101,6 +101,32 @@ public abstract class Fn1<A1, R> extends Fn0<R> {
         };
     }
 
+    /**
+     * Memoization, returns a {@link Fn1} which caches the results of this
+     * function by argument in a new {@link MemoCache} of the default size.
+     */
+    public Fn1<A1, R> memoize() {
+        return memoize(new MemoCache());
+    }
+
+    /**
+     * Memoization, returns a {@link Fn1} which caches the results of this
+     * function by argument in cache, which also keeps the statistics.
+     */
+    public Fn1<A1, R> memoize(final MemoCache cache) {
+        return new Fn1<A1, R>() {
+            @SuppressWarnings("unchecked")
+            public R call(A1 a1) {
+                MemoCache.Entry entry = cache.find(a1);
+                if (entry != null)
+                    return (R) entry.value;
+                R result = Fn1.this.call(a1);
+                cache.put(a1, result);
+                return result;
+            }
+        };
+    }
+
     public int arity() {
         return 1;
     }
@@ -60,6 +60,33 @@ public abstract class Fn2<A1, A2, R> extends Fn1<A1, R> {
         };
     }
 
+    /**
+     * Memoization, returns a {@link Fn2} which caches the results of this
+     * function by both arguments in a new {@link MemoCache} of the default
+     * size.
+     */
+    public Fn2<A1, A2, R> memoize() {
+        return memoize(new MemoCache());
+    }
+
+    /**
+     * Memoization, returns a {@link Fn2} which caches the results of this
+     * function by both arguments in cache, which also keeps the statistics.
+     */
+    public Fn2<A1, A2, R> memoize(final MemoCache cache) {
+        return new Fn2<A1, A2, R>() {
+            @SuppressWarnings("unchecked")
+            public R call(A1 a1, A2 a2) {
+                MemoCache.Entry entry = cache.find(a1, a2);
+                if (entry != null)
+                    return (R) entry.value;
+                R result = Fn2.this.call(a1, a2);
+                cache.put(a1, a2, result);
+                return result;
+            }
+        };
+    }
+
     public int arity() {
         return 2;
     }
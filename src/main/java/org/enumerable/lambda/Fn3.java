@@ -73,6 +73,34 @@ public abstract class Fn3<A1, A2, A3, R> extends Fn2<A1, A2, R> {
         };
     }
 
+    /**
+     * Memoization, returns a {@link Fn3} which caches the results of this
+     * function by all three arguments in a new {@link MemoCache} of the
+     * default size.
+     */
+    public Fn3<A1, A2, A3, R> memoize() {
+        return memoize(new MemoCache());
+    }
+
+    /**
+     * Memoization, returns a {@link Fn3} which caches the results of this
+     * function by all three arguments in cache, which also keeps the
+     * statistics.
+     */
+    public Fn3<A1, A2, A3, R> memoize(final MemoCache cache) {
+        return new Fn3<A1, A2, A3, R>() {
+            @SuppressWarnings("unchecked")
+            public R call(A1 a1, A2 a2, A3 a3) {
+                MemoCache.Entry entry = cache.find(a1, a2, a3);
+                if (entry != null)
+                    return (R) entry.value;
+                R result = Fn3.this.call(a1, a2, a3);
+                cache.put(a1, a2, a3, result);
+                return result;
+            }
+        };
+    }
+
     public int arity() {
         return 3;
     }
@@ -0,0 +1,186 @@
+package org.enumerable.lambda;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread safe cache of function results by arguments, used by
+ * {@link Fn1#memoize(MemoCache)} and its siblings on {@link Fn2} and
+ * {@link Fn3}.
+ * <p>
+ * The cache holds at most maxSize results, evicting the least recently used
+ * one when full, and optionally expires results a fixed time after they were
+ * computed. It keeps counts of hits, misses and evictions.
+ * <p>
+ * Arguments are compared using equals. Looking up a result which is in the
+ * cache does not allocate, also for several arguments. The function is called
+ * outside of the cache's lock, so two threads asking for the same missing
+ * result at once may both call it.
+ * <p>
+ * A cache should only be used by one function, as the arguments are the only
+ * key.
+ */
+public class MemoCache {
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    final int maxSize;
+    final long expireAfterNanos;
+    final Key probe = new Key();
+    final Map<Object, Entry> entries;
+
+    long hits;
+    long misses;
+    long evictions;
+
+    public MemoCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public MemoCache(int maxSize) {
+        this(maxSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a cache holding at most maxSize results, each kept for
+     * expireAfter in unit, or forever if expireAfter is 0.
+     */
+    @SuppressWarnings("serial")
+    public MemoCache(int maxSize, long expireAfter, TimeUnit unit) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("max size must be positive");
+        if (expireAfter < 0)
+            throw new IllegalArgumentException("expire after cannot be negative");
+        this.maxSize = maxSize;
+        this.expireAfterNanos = unit.toNanos(expireAfter);
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Object, MemoCache.Entry> eldest) {
+                if (size() <= MemoCache.this.maxSize)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    synchronized Entry find(Object a1) {
+        return found(a1, entries.get(a1));
+    }
+
+    synchronized Entry find(Object a1, Object a2) {
+        return found(probe, entries.get(probe.set(2, a1, a2, null)));
+    }
+
+    synchronized Entry find(Object a1, Object a2, Object a3) {
+        return found(probe, entries.get(probe.set(3, a1, a2, a3)));
+    }
+
+    synchronized void put(Object a1, Object value) {
+        entries.put(a1, new Entry(value, expiresAt()));
+    }
+
+    synchronized void put(Object a1, Object a2, Object value) {
+        entries.put(new Key().set(2, a1, a2, null), new Entry(value, expiresAt()));
+    }
+
+    synchronized void put(Object a1, Object a2, Object a3, Object value) {
+        entries.put(new Key().set(3, a1, a2, a3), new Entry(value, expiresAt()));
+    }
+
+    Entry found(Object key, Entry entry) {
+        if (entry != null && entry.expiresAt != 0 && entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null)
+            misses++;
+        else
+            hits++;
+        return entry;
+    }
+
+    long expiresAt() {
+        if (expireAfterNanos == 0)
+            return 0;
+        long expiresAt = System.nanoTime() + expireAfterNanos;
+        return expiresAt == 0 ? 1 : expiresAt;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the ratio of hits to lookups, or 0 if there have been none.
+     */
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public String toString() {
+        return "MemoCache[size=" + size() + ", hits=" + hits() + ", misses=" + misses() + ", evictions="
+                + evictions() + "]";
+    }
+
+    static class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    static class Key {
+        int arity;
+        Object a1, a2, a3;
+        int hash;
+
+        Key set(int arity, Object a1, Object a2, Object a3) {
+            this.arity = arity;
+            this.a1 = a1;
+            this.a2 = a2;
+            this.a3 = a3;
+            hash = ((hashCode(a1) * 31) + hashCode(a2)) * 31 + hashCode(a3);
+            return this;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key key = (Key) obj;
+            return arity == key.arity && equal(a1, key.a1) && equal(a2, key.a2) && equal(a3, key.a3);
+        }
+
+        static int hashCode(Object o) {
+            return o == null ? 0 : o.hashCode();
+        }
+
+        static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.enumerable.lambda.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This annotation is used to mark classes whose lambdas can be called from
+ * several threads at once while modifying the local variables they close
+ * over.
+ * <p>
+ * Local variables modified from a lambda are normally kept in one element
+ * arrays. In marked classes, int, long and reference locals are instead kept
+ * in an {@link AtomicIntegerArray}, {@link AtomicLongArray} or
+ * {@link AtomicReferenceArray}, so reads and writes are volatile, and
+ * <code>i++</code>, <code>i += n</code> and <code>i -= n</code> inside a
+ * lambda are atomic adds.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * &#064;AtomicLambdaLocals
+ * class Counter {
+ *     int count(List&lt;String&gt; strings) {
+ *         int count = 0;
+ *         parallel(strings).each(λ(s, count += s.length()));
+ *         return count;
+ *     }
+ * }
+ * </pre>
+ *
+ * Other updates, like <code>i = i * 2</code>, are still a separate read and
+ * write. All classes can be woven this way by setting
+ * lambda.weaving.atomic.locals to true.
+ */
+@Target(ElementType.TYPE)
+public @interface AtomicLambdaLocals {
+}
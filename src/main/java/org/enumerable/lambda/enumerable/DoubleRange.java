@@ -0,0 +1,274 @@
+package org.enumerable.lambda.enumerable;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.collection.EList;
+import org.enumerable.lambda.enumerable.collection.EnumerableModule;
+import org.enumerable.lambda.primitives.Fn1DtoB;
+import org.enumerable.lambda.primitives.Fn1DtoD;
+import org.enumerable.lambda.primitives.Fn1DtoI;
+import org.enumerable.lambda.primitives.Fn1DtoL;
+import org.enumerable.lambda.primitives.Fn1DtoO;
+
+
+/**
+ * An {@link Iterable} that represents a ascending range of doubles, see
+ * {@link Range}.
+ * <p>
+ * The value at index i is start + i * step, instead of adding step repeatedly,
+ * so rounding errors don't accumulate. The number of values is calculated like
+ * Ruby's Float#step, allowing for rounding errors in (end - start) / step.
+ */
+public class DoubleRange extends EnumerableModule<Double> {
+    public final double start, end;
+    public final boolean exclusive;
+    public final double step;
+
+    public DoubleRange(double start, double end) {
+        this(start, end, false);
+    }
+
+    public DoubleRange(double start, double end, boolean exclusive) {
+        this(start, end, exclusive, 1);
+    }
+
+    public DoubleRange(double start, double end, boolean exclusive, double step) {
+        if (!(step > 0))
+            throw new IllegalArgumentException(step == 0 ? "step can't be 0" : "step can't be negative");
+        this.start = start;
+        this.end = end;
+        this.exclusive = exclusive;
+        this.step = step;
+    }
+
+    /**
+     * Returns a range with the same bounds which only includes every nth value
+     * of this range, like Ruby's Range#step.
+     */
+    public DoubleRange step(double n) {
+        return new DoubleRange(start, end, exclusive, step * n);
+    }
+
+    /**
+     * Returns the number of values in this range, or {@link Long#MAX_VALUE}
+     * if it has more.
+     */
+    public long size() {
+        double n = (end - start) / step;
+        double err = Math.min(0.5, (Math.abs(start) + Math.abs(end) + Math.abs(end - start)) / step * Math.ulp(1.0));
+        if (exclusive) {
+            if (n <= 0)
+                return 0;
+            n = n < 1 ? 0 : Math.floor(n - err);
+            if ((n + 1) * step + start < end)
+                n++;
+        } else {
+            if (n < 0)
+                return 0;
+            n = Math.floor(n + err);
+        }
+        return n >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) n + 1;
+    }
+
+    /**
+     * Returns the value at index.
+     */
+    public double get(long index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return value(index);
+    }
+
+    double value(long index) {
+        double value = start + index * step;
+        return !exclusive && value > end ? end : value;
+    }
+
+    public int count() {
+        return (int) Math.min(Integer.MAX_VALUE, size());
+    }
+
+    public Double first() {
+        return size() == 0 ? null : start;
+    }
+
+    /**
+     * Returns the last value in this range, or null if it is empty.
+     */
+    public Double last() {
+        long size = size();
+        return size == 0 ? null : value(size - 1);
+    }
+
+    public Double min() {
+        return first();
+    }
+
+    public Double max() {
+        return last();
+    }
+
+    /**
+     * Returns the sum of the values in this range.
+     */
+    public double sum() {
+        long size = size();
+        if (size == 0)
+            return 0;
+        return size * (start + value(size - 1)) / 2;
+    }
+
+    public boolean include(Object obj) {
+        if (!(obj instanceof Double))
+            return false;
+        double value = (Double) obj;
+        long index = Math.round((value - start) / step);
+        return index >= 0 && index < size() && value(index) == value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> DoubleRange each(Fn1<? super Double, R> block) {
+        if (block instanceof Fn1DtoD)
+            return each((Fn1DtoD) block);
+        if (block instanceof Fn1DtoO<?>)
+            return each((Fn1DtoO<R>) block);
+        if (block instanceof Fn1DtoB)
+            return each((Fn1DtoB) block);
+        if (block instanceof Fn1DtoI)
+            return each((Fn1DtoI) block);
+        if (block instanceof Fn1DtoL)
+            return each((Fn1DtoL) block);
+        return (DoubleRange) super.each(block);
+    }
+
+    public DoubleRange each(Fn1DtoD block) {
+        for (long i = 0, size = size(); i < size; i++)
+            block.call(value(i));
+        return this;
+    }
+
+    public <R> DoubleRange each(Fn1DtoO<R> block) {
+        for (long i = 0, size = size(); i < size; i++)
+            block.call(value(i));
+        return this;
+    }
+
+    public DoubleRange each(Fn1DtoB block) {
+        for (long i = 0, size = size(); i < size; i++)
+            block.call(value(i));
+        return this;
+    }
+
+    public DoubleRange each(Fn1DtoI block) {
+        for (long i = 0, size = size(); i < size; i++)
+            block.call(value(i));
+        return this;
+    }
+
+    public DoubleRange each(Fn1DtoL block) {
+        for (long i = 0, size = size(); i < size; i++)
+            block.call(value(i));
+        return this;
+    }
+
+    public <R> DoubleRange eachWithIndex(Fn2<? super Double, Integer, R> block) {
+        return (DoubleRange) super.eachWithIndex(block);
+    }
+
+    public <R> DoubleRange reverseEach(Fn1<? super Double, R> block) {
+        for (long i = size() - 1; i >= 0; i--)
+            block.call(value(i));
+        return this;
+    }
+
+    /**
+     * Splits this range into at most parts consecutive ranges of about the
+     * same size and with the same step, without materializing it. As the
+     * values of each part are computed from its own start, they may differ
+     * from the ones of this range by rounding.
+     */
+    public EList<DoubleRange> split(int parts) {
+        if (parts <= 0)
+            throw new IllegalArgumentException("invalid size");
+        EList<DoubleRange> result = new EList<DoubleRange>();
+        long size = size();
+        long from = 0;
+        for (int i = parts; i > 0 && from < size; i--) {
+            long to = from + (size - from + i - 1) / i;
+            result.add(new DoubleRange(value(from), value(to - 1), false, step));
+            from = to;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only random access view of this range, which computes the
+     * values on demand. Throws an {@link IllegalStateException} if the range
+     * has more than {@link Integer#MAX_VALUE} values.
+     */
+    public List<Double> asList() {
+        return new DoubleRangeList(listSize());
+    }
+
+    /**
+     * Returns the values in this range. Throws an
+     * {@link IllegalStateException} if the range has more than
+     * {@link Integer#MAX_VALUE} values.
+     */
+    public double[] toArray() {
+        double[] array = new double[listSize()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = value(i);
+        return array;
+    }
+
+    int listSize() {
+        long size = size();
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many values for a list or array: " + size);
+        return (int) size;
+    }
+
+    public Iterator<Double> iterator() {
+        return new Iterator<Double>() {
+            final long size = size();
+            long index;
+
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            public Double next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return value(index++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    class DoubleRangeList extends AbstractList<Double> implements RandomAccess {
+        final int size;
+
+        DoubleRangeList(int size) {
+            this.size = size;
+        }
+
+        public Double get(int index) {
+            return DoubleRange.this.get(index);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
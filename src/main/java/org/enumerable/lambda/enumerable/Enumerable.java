@@ -1,15 +1,15 @@
 package org.enumerable.lambda.enumerable;
 
+import static org.enumerable.lambda.enumerable.collection.EnumerableLists.isRandomAccessList;
 import static org.enumerable.lambda.enumerable.collection.EnumerableModule.*;
 import static org.enumerable.lambda.exception.UncheckedException.*;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -19,9 +19,13 @@ import java.util.regex.Pattern;
 import org.enumerable.lambda.Fn0;
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.collection.ECollections;
 import org.enumerable.lambda.enumerable.collection.EList;
+import org.enumerable.lambda.enumerable.collection.ELazy;
 import org.enumerable.lambda.enumerable.collection.EMap;
+import org.enumerable.lambda.enumerable.collection.EParallel;
 import org.enumerable.lambda.enumerable.collection.ESet;
+import org.enumerable.lambda.enumerable.collection.EnumerableLists;
 import org.enumerable.lambda.enumerable.collection.EnumerableModule;
 import org.enumerable.lambda.enumerable.collection.IEnumerable;
 
@@ -49,6 +53,8 @@ public class Enumerable {
      * returns true if the block never returns false or null.
      */
     public static <E> boolean all(Iterable<E> collection, Fn1<? super E, ?> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.all((List<E>) collection, block);
         return extend(collection).all(block);
     }
 
@@ -66,6 +72,8 @@ public class Enumerable {
      * returns true if the block ever returns a value other than false or null.
      */
     public static <E> boolean any(Iterable<E> collection, Fn1<? super E, ?> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.any((List<E>) collection, block);
         return extend(collection).any(block);
     }
 
@@ -83,6 +91,8 @@ public class Enumerable {
      * element in collection.
      */
     public static <E, R> EList<R> collect(Iterable<E> collection, Fn1<? super E, ? extends R> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.collect((List<E>) collection, block);
         return extend(collection).collect(block);
     }
 
@@ -105,6 +115,8 @@ public class Enumerable {
      * true value.
      */
     public static <E> int count(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (block != null && isRandomAccessList(collection))
+            return EnumerableLists.count((List<E>) collection, block);
         return extend(collection).count(block);
     }
 
@@ -122,6 +134,8 @@ public class Enumerable {
      * block is not false. If no object matches, it returns null.
      */
     public static <E> E detect(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.detect((List<E>) collection, null, block);
         return (E) extend(collection).detect(block);
     }
 
@@ -130,6 +144,8 @@ public class Enumerable {
      * block is not false. If no object matches, it returns ifNone.
      */
     public static <E> E detect(Iterable<E> collection, Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.detect((List<E>) collection, ifNone, block);
         return (E) extend(collection).detect(ifNone, block);
     }
 
@@ -179,14 +195,27 @@ public class Enumerable {
     }
 
     /**
-     * Executes the block for every line in file.
+     * Executes the block for every line in file, read using the platform's
+     * default charset.
      */
     public static <R> File eachLine(File file, Fn1<String, R> block) {
+        return eachLine(file, Charset.defaultCharset(), block);
+    }
+
+    /**
+     * Executes the block for every line in file, which is memory mapped and
+     * decoded using charset, without reading the whole file into memory.
+     * 
+     * @see ECollections#lines(File, Charset, int)
+     */
+    public static <R> File eachLine(File file, Charset charset, Fn1<String, R> block) {
+        Iterator<String> lines = ECollections.lines(file, charset).iterator();
         try {
-            eachLine(new FileReader(file), block);
+            while (lines.hasNext())
+                block.call(lines.next());
             return file;
-        } catch (FileNotFoundException e) {
-            throw uncheck(e);
+        } finally {
+            ELazy.close(lines);
         }
     }
 
@@ -259,6 +288,8 @@ public class Enumerable {
      * @see #detect(Iterable, Fn1)
      */
     public static <E> E find(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.detect((List<E>) collection, null, block);
         return (E) extend(collection).find(block);
     }
 
@@ -266,6 +297,8 @@ public class Enumerable {
      * @see #detect(Iterable, Fn0, Fn1)
      */
     public static <E> E find(Iterable<E> collection, Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.detect((List<E>) collection, ifNone, block);
         return (E) extend(collection).find(ifNone, block);
     }
 
@@ -273,6 +306,8 @@ public class Enumerable {
      * @see #select(Iterable, Fn1)
      */
     public static <E> EList<E> findAll(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.findAll((List<E>) collection, block);
         return extend(collection).findAll(block);
     }
 
@@ -281,6 +316,8 @@ public class Enumerable {
      * true value or returns -1 if the block only ever returns false.
      */
     public static <E> int findIndex(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (block != null && isRandomAccessList(collection))
+            return EnumerableLists.findIndex((List<E>) collection, block);
         return extend(collection).findIndex(block);
     }
 
@@ -352,6 +389,8 @@ public class Enumerable {
      * @see #member(Iterable, Object)
      */
     public static <E> boolean include(Iterable<E> collection, Object obj) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.include((List<E>) collection, obj);
         return extend(collection).include(obj);
     }
 
@@ -363,6 +402,8 @@ public class Enumerable {
      * iterating).
      */
     public static <E> E inject(Iterable<E> collection, Fn2<? super E, ? super E, ? extends E> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.inject((List<E>) collection, block);
         return (E) extend(collection).inject(block);
     }
 
@@ -373,13 +414,27 @@ public class Enumerable {
      * initial value for memo.
      */
     public static <E, R> R inject(Iterable<E> collection, R initial, Fn2<? super R, ? super E, ? extends R> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.inject((List<E>) collection, initial, block);
         return (R) extend(collection).inject(initial, block);
     }
 
+    /**
+     * Returns a lazy view of collection, where select, collect, take and the
+     * other operations returning lists are chained without building any
+     * intermediate lists. The blocks are run in a single pass when a terminal
+     * operation like toList, inject or count is called.
+     */
+    public static <E> ELazy<E> lazy(Iterable<E> collection) {
+        return extend(collection).lazy();
+    }
+
     /**
      * @see #collect(Iterable, Fn1)
      */
     public static <E, R> EList<R> map(Iterable<E> collection, Fn1<? super E, ? extends R> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.collect((List<E>) collection, block);
         return extend(collection).map(block);
     }
 
@@ -408,11 +463,39 @@ public class Enumerable {
         return (E) extend(collection).maxBy(block);
     }
 
+    /**
+     * Passes each item in the collection to the block once. Returns the n
+     * items corresponding to the largest values returned by the block, largest
+     * first.
+     */
+    public static <E, R extends Object & Comparable<? super R>> EList<E> maxByN(Iterable<E> collection, int n,
+            Fn1<? super E, R> block) {
+        return extend(collection).maxByN(n, block);
+    }
+
+    /**
+     * Returns the n objects in collection with the maximum values, largest
+     * first. This form assumes all objects implement {@link Comparable}.
+     */
+    public static <E extends Object & Comparable<? super E>> EList<E> maxN(Iterable<E> collection, int n) {
+        return extend(collection).maxN(n);
+    }
+
+    /**
+     * Returns the n objects in collection with the maximum values, largest
+     * first. This form uses the block to {@link Comparator#compare}.
+     */
+    public static <E> EList<E> maxN(Iterable<E> collection, int n, Fn2<? super E, ? super E, Integer> block) {
+        return extend(collection).maxN(n, block);
+    }
+
     /**
      * Returns true if any member of collection equals obj. Equality is tested
      * using {@link Object#equals(Object)}.
      */
     public static <E> boolean member(Iterable<E> collection, Object obj) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.include((List<E>) collection, obj);
         return extend(collection).include(obj);
     }
 
@@ -441,6 +524,32 @@ public class Enumerable {
         return (E) extend(collection).minBy(block);
     }
 
+    /**
+     * Passes each item in the collection to the block once. Returns the n
+     * items corresponding to the smallest values returned by the block,
+     * smallest first.
+     */
+    public static <E, R extends Object & Comparable<? super R>> EList<E> minByN(Iterable<E> collection, int n,
+            Fn1<? super E, R> block) {
+        return extend(collection).minByN(n, block);
+    }
+
+    /**
+     * Returns the n objects in collection with the minimum values, smallest
+     * first. This form assumes all objects implement {@link Comparable}.
+     */
+    public static <E extends Object & Comparable<? super E>> EList<E> minN(Iterable<E> collection, int n) {
+        return extend(collection).minN(n);
+    }
+
+    /**
+     * Returns the n objects in collection with the minimum values, smallest
+     * first. This form uses the block to {@link Comparator#compare}.
+     */
+    public static <E> EList<E> minN(Iterable<E> collection, int n, Fn2<? super E, ? super E, Integer> block) {
+        return extend(collection).minN(n, block);
+    }
+
     /**
      * Compares the elements of collection using {@link Comparable}, returning
      * the minimum and maximum value.
@@ -500,14 +609,64 @@ public class Enumerable {
         return extend(collection).one();
     }
 
+    /**
+     * Returns a parallel view of collection, which splits it into slices and
+     * runs collect, select and inject on them using fork/join. Requires
+     * jsr166y.
+     */
+    public static <E> EParallel<E> parallel(Iterable<E> collection) {
+        return extend(collection).parallel();
+    }
+
     /**
      * Returns two lists, the first containing the elements of collection for
      * which the block evaluates to true, the second containing the rest.
      */
     public static <E> EList<EList<E>> partition(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.partition((List<E>) collection, block);
         return extend(collection).partition(block);
     }
 
+    /**
+     * Returns a new list with the results of running block once for every
+     * element in collection, calling the block in parallel using fork/join.
+     * The order of the elements is kept.
+     */
+    public static <E, R> EList<R> pcollect(Iterable<E> collection, Fn1<? super E, ? extends R> block) {
+        return parallel(collection).collect(block);
+    }
+
+    /**
+     * Combines the elements of collection by applying the block to an
+     * accumulator value (memo) and each element in turn, in parallel using
+     * fork/join. The block is also used to combine the results of the slices,
+     * and must be associative.
+     */
+    public static <E> E pinject(Iterable<E> collection, Fn2<? super E, ? super E, ? extends E> block) {
+        return parallel(collection).inject(block);
+    }
+
+    /**
+     * Combines the elements of collection by applying the block to an
+     * accumulator value (memo) and each element in turn, in parallel using
+     * fork/join. Each slice starts from initial, and the results of the slices
+     * are combined using the associative combiner.
+     */
+    public static <E, R> R pinject(Iterable<E> collection, R initial, Fn2<? super R, ? super E, ? extends R> block,
+            Fn2<? super R, ? super R, ? extends R> combiner) {
+        return parallel(collection).inject(initial, block, combiner);
+    }
+
+    /**
+     * Returns a list containing all elements of collection for which block is
+     * not false, calling the block in parallel using fork/join. The order of
+     * the elements is kept.
+     */
+    public static <E> EList<E> pselect(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        return parallel(collection).select(block);
+    }
+
     /**
      * Constructs a range using the given start and end. The range will include
      * the end object.
@@ -525,10 +684,47 @@ public class Enumerable {
         return new Range(start, end, exclusive);
     }
 
+    /**
+     * Constructs a range of longs using the given start and end. The range
+     * will include the end object.
+     */
+    public static LongRange range(long start, long end) {
+        return range(start, end, false);
+    }
+
+    /**
+     * Constructs a range of longs using the given start and end. If the third
+     * parameter is false, the range will include the end object; otherwise, it
+     * will be excluded.
+     */
+    public static LongRange range(long start, long end, boolean exclusive) {
+        return new LongRange(start, end, exclusive);
+    }
+
+    /**
+     * Constructs a range of doubles using the given start and end, with a step
+     * of 1. The range will include the end object. Use
+     * {@link DoubleRange#step(double)} to change the step.
+     */
+    public static DoubleRange range(double start, double end) {
+        return range(start, end, false);
+    }
+
+    /**
+     * Constructs a range of doubles using the given start and end, with a step
+     * of 1. If the third parameter is false, the range will include the end
+     * object; otherwise, it will be excluded.
+     */
+    public static DoubleRange range(double start, double end, boolean exclusive) {
+        return new DoubleRange(start, end, exclusive);
+    }
+
     /**
      * @see #inject(Iterable, Fn2)
      */
     public static <E> E reduce(Iterable<E> collection, Fn2<? super E, ? super E, ? extends E> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.inject((List<E>) collection, block);
         return (E) extend(collection).reduce(block);
     }
 
@@ -536,6 +732,8 @@ public class Enumerable {
      * @see #inject(Iterable, Object, Fn2)
      */
     public static <E, R> R reduce(Iterable<E> collection, R initial, Fn2<? super R, ? super E, ? extends R> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.inject((List<E>) collection, initial, block);
         return (R) extend(collection).reduce(initial, block);
     }
 
@@ -544,13 +742,15 @@ public class Enumerable {
      * false.
      */
     public static <E> EList<E> reject(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.reject((List<E>) collection, block);
         return extend(collection).reject(block);
     }
 
     /**
-     * Invokes the block with the elements of collection in reverse order.
-     * Creates an intermediate list internally, so this might be expensive on
-     * large collections.
+     * Invokes the block with the elements of collection in reverse order. Lists
+     * are walked backwards in place, other collections are copied to an array
+     * first, so this might be expensive on large collections.
      */
     public static <E, R> IEnumerable<E> reverseEach(Iterable<E> collection, Fn1<? super E, R> block) {
         return extend(collection).reverseEach(block);
@@ -561,6 +761,8 @@ public class Enumerable {
      * not false.
      */
     public static <E> EList<E> select(Iterable<E> collection, Fn1<? super E, Boolean> block) {
+        if (isRandomAccessList(collection))
+            return EnumerableLists.findAll((List<E>) collection, block);
         return extend(collection).select(block);
     }
 
@@ -1,9 +1,13 @@
 package org.enumerable.lambda.enumerable;
 
+import static java.lang.System.*;
 import static java.util.Arrays.*;
+import static org.enumerable.lambda.Fn0.*;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -13,8 +17,10 @@ import java.util.regex.Pattern;
 import org.enumerable.lambda.Fn0;
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.collection.BoundedHeap;
 import org.enumerable.lambda.enumerable.collection.EList;
 import org.enumerable.lambda.enumerable.collection.EMap;
+import org.enumerable.lambda.enumerable.collection.EParallel;
 import org.enumerable.lambda.enumerable.collection.ESet;
 
 
@@ -73,7 +79,10 @@ public class EnumerableArrays {
      * element in array.
      */
     public static <E, R> Object[] collect(E[] array, Fn1<? super E, R> block) {
-        return Enumerable.collect(asList(array), block).toArray();
+        Object[] result = new Object[array.length];
+        for (int i = 0; i < array.length; i++)
+            result[i] = block.call(array[i]);
+        return result;
     }
 
     /**
@@ -82,7 +91,10 @@ public class EnumerableArrays {
      */
     @SuppressWarnings("unchecked")
     public static <E, R> R[] collect(E[] array, Fn1<? super E, R> block, Class<R> type) {
-        return Enumerable.collect(asList(array), block).toArray((R[]) Array.newInstance(type, 0));
+        R[] result = (R[]) Array.newInstance(type, array.length);
+        for (int i = 0; i < array.length; i++)
+            result[i] = block.call(array[i]);
+        return result;
     }
 
     /**
@@ -104,7 +116,13 @@ public class EnumerableArrays {
      * value.
      */
     public static <E> int count(E[] array, Fn1<? super E, Boolean> block) {
-        return Enumerable.count(asList(array), block);
+        if (block == null)
+            return Enumerable.count(asList(array), block);
+        int count = 0;
+        for (E each : array)
+            if (isNotFalseOrNull(block.call(each)))
+                count++;
+        return count;
     }
 
     /**
@@ -129,14 +147,18 @@ public class EnumerableArrays {
      * not false. If no object matches, it returns ifNone.
      */
     public static <E> E detect(E[] array, Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
-        return Enumerable.detect(asList(array), ifNone, block);
+        for (E each : array)
+            if (isNotFalseOrNull(block.call(each)))
+                return each;
+        return ifNone == null ? null : ifNone.call();
     }
 
     /**
      * Calls block for each item in array.
      */
     public static <E, R> E[] each(E[] array, Fn1<? super E, R> block) {
-        Enumerable.each(asList(array), block);
+        for (E each : array)
+            block.call(each);
         return array;
     }
 
@@ -159,7 +181,8 @@ public class EnumerableArrays {
      * array.
      */
     public static <E, R> E[] eachWithIndex(E[] array, Fn2<? super E, Integer, R> block) {
-        Enumerable.eachWithIndex(asList(array), block);
+        for (int i = 0; i < array.length; i++)
+            block.call(array[i], i);
         return array;
     }
 
@@ -188,14 +211,19 @@ public class EnumerableArrays {
      * @see #select(Object[], Fn1)
      */
     public static <E> E[] findAll(E[] array, Fn1<? super E, Boolean> block) {
-        return Enumerable.findAll(asList(array), block).toArray(newEmptyArray(array));
+        return filter(array, block, true);
     }
 
     /**
      * Returns an array of every element in array for which pattern matches.
      */
     public static <E> E[] grep(E[] array, Pattern pattern) {
-        return Enumerable.grep(asList(array), pattern).toArray(newEmptyArray(array));
+        E[] result = newArray(array, array.length);
+        int size = 0;
+        for (E each : array)
+            if (pattern.matcher(each.toString()).matches())
+                result[size++] = each;
+        return copyOf(result, size);
     }
 
     /**
@@ -204,21 +232,26 @@ public class EnumerableArrays {
      * the output list.
      */
     public static <E, R> Object[] grep(E[] array, Pattern pattern, Fn1<? super E, R> block) {
-        return Enumerable.grep(asList(array), pattern, block).toArray();
+        Object[] result = new Object[array.length];
+        int size = 0;
+        for (E each : array)
+            if (pattern.matcher(each.toString()).matches())
+                result[size++] = block.call(each);
+        return copyOf(result, size);
     }
 
     /**
      * @see #grep(Object[], Pattern)
      */
     public static <E> E[] grep(E[] array, String pattern) {
-        return Enumerable.grep(asList(array), pattern).toArray(newEmptyArray(array));
+        return grep(array, Pattern.compile(pattern));
     }
 
     /**
      * @see #grep(Object[], Pattern, Fn1)
      */
     public static <E, R> Object[] grep(E[] array, String pattern, Fn1<? super E, R> block) {
-        return Enumerable.grep(asList(array), pattern, block).toArray();
+        return grep(array, Pattern.compile(pattern), block);
     }
 
     /**
@@ -255,7 +288,12 @@ public class EnumerableArrays {
      * array as a the initial value (and skips that element while iterating).
      */
     public static <E> E inject(E[] array, Fn2<E, E, E> block) {
-        return Enumerable.inject(asList(array), block);
+        if (array.length == 0)
+            return null;
+        E initial = array[0];
+        for (int i = 1; i < array.length; i++)
+            initial = block.call(initial, array[i]);
+        return initial;
     }
 
     /**
@@ -265,14 +303,16 @@ public class EnumerableArrays {
      * for memo.
      */
     public static <E, R> R inject(E[] array, R initial, Fn2<R, E, R> block) {
-        return Enumerable.inject(asList(array), initial, block);
+        for (E each : array)
+            initial = block.call(initial, each);
+        return initial;
     }
 
     /**
      * @see #collect(Object[], Fn1)
      */
     public static <E, R> Object[] map(E[] array, Fn1<? super E, R> block) {
-        return Enumerable.map(asList(array), block).toArray();
+        return collect(array, block);
     }
 
     /**
@@ -306,6 +346,33 @@ public class EnumerableArrays {
         return Enumerable.maxBy(asList(array), block);
     }
 
+    /**
+     * Passes each item in the array to the block once. Returns the n items
+     * corresponding to the largest values returned by the block, largest first.
+     */
+    public static <E, R extends Object & Comparable<? super R>> E[] maxByN(E[] array, int n,
+            Fn1<? super E, R> block) {
+        Comparator<R> reverseOrder = Collections.reverseOrder();
+        return minByNInternal(array, n, block, reverseOrder);
+    }
+
+    /**
+     * Returns the n objects in array with the maximum values, largest first.
+     * This form assumes all objects implement {@link Comparable}.
+     */
+    public static <E extends Object & Comparable<? super E>> E[] maxN(E[] array, int n) {
+        Comparator<E> reverseOrder = Collections.reverseOrder();
+        return minNInternal(array, n, reverseOrder);
+    }
+
+    /**
+     * Returns the n objects in array with the maximum values, largest first.
+     * This form uses the block to {@link Comparator#compare}.
+     */
+    public static <E> E[] maxN(E[] array, int n, Fn2<? super E, ? super E, Integer> block) {
+        return minNInternal(array, n, Collections.reverseOrder(comparator(block)));
+    }
+
     /**
      * Returns true if any member of array equals obj. Equality is tested using
      * {@link Object#equals(Object)}.
@@ -338,12 +405,38 @@ public class EnumerableArrays {
         return Enumerable.minBy(asList(array), block);
     }
 
+    /**
+     * Passes each item in the array to the block once. Returns the n items
+     * corresponding to the smallest values returned by the block, smallest
+     * first.
+     */
+    public static <E, R extends Object & Comparable<? super R>> E[] minByN(E[] array, int n,
+            Fn1<? super E, R> block) {
+        return minByNInternal(array, n, block, null);
+    }
+
+    /**
+     * Returns the n objects in array with the minimum values, smallest first.
+     * This form assumes all objects implement {@link Comparable}.
+     */
+    public static <E extends Object & Comparable<? super E>> E[] minN(E[] array, int n) {
+        return minNInternal(array, n, null);
+    }
+
+    /**
+     * Returns the n objects in array with the minimum values, smallest first.
+     * This form uses the block to {@link Comparator#compare}.
+     */
+    public static <E> E[] minN(E[] array, int n, Fn2<? super E, ? super E, Integer> block) {
+        return minNInternal(array, n, comparator(block));
+    }
+
     /**
      * Compares the elements of array using {@link Comparable}, returning the
      * minimum and maximum value.
      */
     public static <E extends Object & Comparable<? super E>> E[] minMax(E[] array) {
-        return Enumerable.minMax(asList(array)).toArray(newEmptyArray(array));
+        return minMaxInternal(array, null);
     }
 
     /**
@@ -351,7 +444,7 @@ public class EnumerableArrays {
      * minimum and maximum value.
      */
     public static <E> E[] minMax(E[] array, Fn2<? super E, ? super E, Integer> block) {
-        return Enumerable.minMax(asList(array), block).toArray(newEmptyArray(array));
+        return minMaxInternal(array, comparator(block));
     }
 
     /**
@@ -359,7 +452,23 @@ public class EnumerableArrays {
      * corresponding to the smallest and largest values returned by the block.
      */
     public static <E, R extends Object & Comparable<? super R>> E[] minMaxBy(E[] array, Fn1<? super E, R> block) {
-        return Enumerable.minMaxBy(asList(array), block).toArray(newEmptyArray(array));
+        E min = null, max = null;
+        R minKey = null, maxKey = null;
+        for (int i = 0; i < array.length; i++) {
+            R key = block.call(array[i]);
+            if (i == 0 || key.compareTo(minKey) < 0) {
+                min = array[i];
+                minKey = key;
+            }
+            if (i == 0 || key.compareTo(maxKey) > 0) {
+                max = array[i];
+                maxKey = key;
+            }
+        }
+        E[] result = newArray(array, 2);
+        result[0] = min;
+        result[1] = max;
+        return result;
     }
 
     /**
@@ -396,20 +505,82 @@ public class EnumerableArrays {
         return Enumerable.one(asList(array));
     }
 
+    /**
+     * Returns a parallel view of array, which splits it into slices and runs
+     * collect, select and inject on them using fork/join. Requires jsr166y.
+     */
+    public static <E> EParallel<E> parallel(E[] array) {
+        return Enumerable.parallel(asList(array));
+    }
+
     /**
      * Returns two lists, the first containing the elements of array for which
      * the block evaluates to true, the second containing the rest.
      */
     @SuppressWarnings("unchecked")
     public static <E> E[][] partition(E[] array, Fn1<? super E, Boolean> block) {
-        List<EList<E>> partition = Enumerable.partition(asList(array), block);
+        boolean[] selected = new boolean[array.length];
+        int size = 0;
+        for (int i = 0; i < array.length; i++)
+            if (selected[i] = isNotFalseOrNull(block.call(array[i])))
+                size++;
 
         E[][] result = (E[][]) Array.newInstance(array.getClass(), 2);
+        result[0] = newArray(array, size);
+        result[1] = newArray(array, array.length - size);
+
+        for (int i = 0, j = 0, k = 0; i < array.length; i++)
+            if (selected[i])
+                result[0][j++] = array[i];
+            else
+                result[1][k++] = array[i];
+        return result;
+    }
 
-        result[0] = partition.get(0).toArray(newEmptyArray(array));
-        result[1] = partition.get(1).toArray(newEmptyArray(array));
+    /**
+     * Returns a new array with the results of running block once for every
+     * element in array, calling the block in parallel using fork/join.
+     */
+    public static <E, R> Object[] pcollect(E[] array, Fn1<? super E, R> block) {
+        return Enumerable.pcollect(asList(array), block).toArray();
+    }
 
-        return result;
+    /**
+     * Returns a new array with the results of running block once for every
+     * element in array, calling the block in parallel using fork/join. Takes an
+     * extra type parameter to handle empty arrays.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E, R> R[] pcollect(E[] array, Fn1<? super E, R> block, Class<R> type) {
+        return Enumerable.pcollect(asList(array), block).toArray((R[]) Array.newInstance(type, array.length));
+    }
+
+    /**
+     * Combines the elements of array by applying the block to an accumulator
+     * value (memo) and each element in turn, in parallel using fork/join. The
+     * block is also used to combine the results of the slices, and must be
+     * associative.
+     */
+    public static <E> E pinject(E[] array, Fn2<E, E, E> block) {
+        return Enumerable.pinject(asList(array), block);
+    }
+
+    /**
+     * Combines the elements of array by applying the block to an accumulator
+     * value (memo) and each element in turn, in parallel using fork/join. Each
+     * slice starts from initial, and the results of the slices are combined
+     * using the associative combiner.
+     */
+    public static <E, R> R pinject(E[] array, R initial, Fn2<R, E, R> block, Fn2<R, R, R> combiner) {
+        return Enumerable.pinject(asList(array), initial, block, combiner);
+    }
+
+    /**
+     * Returns an array containing all elements of array for which block is not
+     * false, calling the block in parallel using fork/join.
+     */
+    public static <E> E[] pselect(E[] array, Fn1<? super E, Boolean> block) {
+        return Enumerable.pselect(asList(array), block).toArray(newEmptyArray(array));
     }
 
     /**
@@ -417,30 +588,37 @@ public class EnumerableArrays {
      * the end object.
      */
     public static Integer[] range(int start, int end) {
-        return Enumerable.range(start, end).toList().toArray(new Integer[0]);
+        return range(start, end, false);
     }
 
     /**
      * Constructs a range using the given start and end. If the third parameter
      * is false, the range will include the end object; otherwise, it will be
-     * excluded.
+     * excluded. Throws an {@link IllegalArgumentException} if the range has
+     * more than {@link Integer#MAX_VALUE} values.
      */
     public static Integer[] range(int start, int end, boolean exclusive) {
-        return Enumerable.range(start, end, exclusive).toList().toArray(new Integer[0]);
+        long size = Math.max(0, (exclusive ? (long) end : end + 1L) - start);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many values for an array: " + size);
+        Integer[] result = new Integer[(int) size];
+        for (int i = 0; i < result.length; i++)
+            result[i] = start + i;
+        return result;
     }
 
     /**
      * @see #inject(Object[], Fn2)
      */
     public static <E> E reduce(E[] array, Fn2<E, E, E> block) {
-        return Enumerable.inject(asList(array), block);
+        return inject(array, block);
     }
 
     /**
      * @see #inject(Object[], Object, Fn2)
      */
     public static <E, R> R reduce(E[] array, R initial, Fn2<R, E, R> block) {
-        return Enumerable.inject(asList(array), initial, block);
+        return inject(array, initial, block);
     }
 
     /**
@@ -448,14 +626,15 @@ public class EnumerableArrays {
      * false.
      */
     public static <E> E[] reject(E[] array, Fn1<? super E, Boolean> block) {
-        return Enumerable.reject(asList(array), block).toArray(newEmptyArray(array));
+        return filter(array, block, false);
     }
 
     /**
      * Invokes the block with the elements of array in reverse order.
      */
     public static <E, R> E[] reverseEach(E[] array, Fn1<? super E, R> block) {
-        Enumerable.each(new ReverseArrayIterable<E>(array), block);
+        for (int i = array.length - 1; i >= 0; i--)
+            block.call(array[i]);
         return array;
     }
 
@@ -464,7 +643,7 @@ public class EnumerableArrays {
      * false.
      */
     public static <E> E[] select(E[] array, Fn1<? super E, Boolean> block) {
-        return Enumerable.select(asList(array), block).toArray(newEmptyArray(array));
+        return filter(array, block, true);
     }
 
     /**
@@ -472,7 +651,9 @@ public class EnumerableArrays {
      * own compareTo method.
      */
     public static <E extends Object & Comparable<? super E>> E[] sort(E[] array) {
-        return Enumerable.sort(asList(array)).toArray(newEmptyArray(array));
+        E[] result = copyOf(array, array.length);
+        Arrays.sort(result);
+        return result;
     }
 
     /**
@@ -480,7 +661,9 @@ public class EnumerableArrays {
      * results of the supplied block.
      */
     public static <E> E[] sort(E[] array, Fn2<? super E, ? super E, Integer> block) {
-        return Enumerable.sort(asList(array), block).toArray(newEmptyArray(array));
+        E[] result = copyOf(array, array.length);
+        Arrays.sort(result, comparator(block));
+        return result;
     }
 
     /**
@@ -495,7 +678,9 @@ public class EnumerableArrays {
      * Returns an array containing the first n items from array.
      */
     public static <E> E[] take(E[] array, int n) {
-        return Enumerable.take(asList(array), n).toArray(newEmptyArray(array));
+        if (n < 0)
+            throw new IllegalArgumentException("attempt to take negative size");
+        return copyOf(array, Math.min(n, array.length));
     }
 
     /**
@@ -503,7 +688,10 @@ public class EnumerableArrays {
      * until the block returns false or null.
      */
     public static <E> E[] takeWhile(E[] array, Fn1<? super E, Boolean> block) {
-        return Enumerable.takeWhile(asList(array), block).toArray(newEmptyArray(array));
+        int n = 0;
+        while (n < array.length && isNotFalseOrNull(block.call(array[n])))
+            n++;
+        return copyOf(array, n);
     }
 
     /**
@@ -568,6 +756,70 @@ public class EnumerableArrays {
         return (T[]) Array.newInstance(array.getClass().getComponentType(), 0);
     }
 
+    @SuppressWarnings("unchecked")
+    static <T> T[] newArray(T[] array, int length) {
+        return (T[]) Array.newInstance(array.getClass().getComponentType(), length);
+    }
+
+    static <T> T[] copyOf(T[] array, int length) {
+        T[] result = newArray(array, length);
+        arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    static <E> E[] minNInternal(E[] array, int n, Comparator<? super E> comparator) {
+        BoundedHeap<E, E> heap = new BoundedHeap<E, E>(n, comparator);
+        for (E each : array)
+            heap.offer(each, each);
+        return heap.toSortedArray(newArray(array, Math.min(n, array.length)));
+    }
+
+    static <E, R> E[] minByNInternal(E[] array, int n, Fn1<? super E, R> block, Comparator<? super R> comparator) {
+        BoundedHeap<R, E> heap = new BoundedHeap<R, E>(n, comparator);
+        for (E each : array)
+            heap.offer(block.call(each), each);
+        return heap.toSortedArray(newArray(array, Math.min(n, array.length)));
+    }
+
+    static <E> E[] minMaxInternal(E[] array, Comparator<? super E> comparator) {
+        E min = null, max = null;
+        for (int i = 0; i < array.length; i++) {
+            E each = array[i];
+            if (i == 0 || compare(comparator, each, min) < 0)
+                min = each;
+            if (i == 0 || compare(comparator, each, max) > 0)
+                max = each;
+        }
+        E[] result = newArray(array, 2);
+        result[0] = min;
+        result[1] = max;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> int compare(Comparator<? super E> comparator, E a, E b) {
+        if (comparator == null)
+            return ((Comparable<Object>) a).compareTo(b);
+        return comparator.compare(a, b);
+    }
+
+    static <E> Comparator<E> comparator(final Fn2<? super E, ? super E, Integer> block) {
+        return new Comparator<E>() {
+            public int compare(E o1, E o2) {
+                return ((Number) block.call(o1, o2)).intValue();
+            }
+        };
+    }
+
+    static <E> E[] filter(E[] array, Fn1<? super E, Boolean> block, boolean keep) {
+        E[] result = newArray(array, array.length);
+        int size = 0;
+        for (E each : array)
+            if (isNotFalseOrNull(block.call(each)) == keep)
+                result[size++] = each;
+        return size == result.length ? result : copyOf(result, size);
+    }
+
     static class ReverseArrayIterable<T> implements Iterable<T> {
         T[] array;
 
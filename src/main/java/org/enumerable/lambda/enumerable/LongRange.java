@@ -0,0 +1,268 @@
+package org.enumerable.lambda.enumerable;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.collection.EList;
+import org.enumerable.lambda.enumerable.collection.EnumerableModule;
+import org.enumerable.lambda.primitives.Fn1LtoB;
+import org.enumerable.lambda.primitives.Fn1LtoD;
+import org.enumerable.lambda.primitives.Fn1LtoI;
+import org.enumerable.lambda.primitives.Fn1LtoL;
+import org.enumerable.lambda.primitives.Fn1LtoO;
+
+
+/**
+ * An {@link Iterable} that represents a ascending range of longs, see
+ * {@link Range}.
+ */
+public class LongRange extends EnumerableModule<Long> {
+    public final long start, end;
+    public final boolean exclusive;
+    public final long step;
+
+    public LongRange(long start, long end) {
+        this(start, end, false);
+    }
+
+    public LongRange(long start, long end, boolean exclusive) {
+        this(start, end, exclusive, 1);
+    }
+
+    public LongRange(long start, long end, boolean exclusive, long step) {
+        if (step <= 0)
+            throw new IllegalArgumentException(step == 0 ? "step can't be 0" : "step can't be negative");
+        this.start = start;
+        this.end = end;
+        this.exclusive = exclusive;
+        this.step = step;
+    }
+
+    /**
+     * Returns a range with the same bounds which only includes every nth value
+     * of this range, like Ruby's Range#step.
+     */
+    public LongRange step(long n) {
+        return new LongRange(start, end, exclusive, n > 0 && step > Long.MAX_VALUE / n ? Long.MAX_VALUE : step * n);
+    }
+
+    /**
+     * Returns the number of values in this range, or {@link Long#MAX_VALUE}
+     * if it has more.
+     */
+    public long size() {
+        if (exclusive && end == Long.MIN_VALUE)
+            return 0;
+        long last = exclusive ? end - 1 : end;
+        if (last < start)
+            return 0;
+        long span = last - start;
+        long steps = ((span >>> 1) / step) << 1;
+        if (span - steps * step + Long.MIN_VALUE >= step + Long.MIN_VALUE)
+            steps++;
+        return steps < 0 || steps == Long.MAX_VALUE ? Long.MAX_VALUE : steps + 1;
+    }
+
+    /**
+     * Returns the value at index.
+     */
+    public long get(long index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return start + index * step;
+    }
+
+    public int count() {
+        return (int) Math.min(Integer.MAX_VALUE, size());
+    }
+
+    public Long first() {
+        return size() == 0 ? null : start;
+    }
+
+    /**
+     * Returns the last value in this range, or null if it is empty.
+     */
+    public Long last() {
+        long size = size();
+        return size == 0 ? null : get(size - 1);
+    }
+
+    public Long min() {
+        return first();
+    }
+
+    public Long max() {
+        return last();
+    }
+
+    /**
+     * Returns the sum of the values in this range.
+     */
+    public long sum() {
+        long size = size();
+        if (size == 0)
+            return 0;
+        long firstPlusLast = start + get(size - 1);
+        return size % 2 == 0 ? size / 2 * firstPlusLast : firstPlusLast / 2 * size;
+    }
+
+    public boolean include(Object obj) {
+        if (!(obj instanceof Long))
+            return false;
+        long value = (Long) obj;
+        return value >= start && (value - start) / step < size() && (value - start) % step == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> LongRange each(Fn1<? super Long, R> block) {
+        if (block instanceof Fn1LtoL)
+            return each((Fn1LtoL) block);
+        if (block instanceof Fn1LtoO<?>)
+            return each((Fn1LtoO<R>) block);
+        if (block instanceof Fn1LtoB)
+            return each((Fn1LtoB) block);
+        if (block instanceof Fn1LtoI)
+            return each((Fn1LtoI) block);
+        if (block instanceof Fn1LtoD)
+            return each((Fn1LtoD) block);
+        return (LongRange) super.each(block);
+    }
+
+    public LongRange each(Fn1LtoL block) {
+        long value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public <R> LongRange each(Fn1LtoO<R> block) {
+        long value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public LongRange each(Fn1LtoB block) {
+        long value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public LongRange each(Fn1LtoI block) {
+        long value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public LongRange each(Fn1LtoD block) {
+        long value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public <R> LongRange eachWithIndex(Fn2<? super Long, Integer, R> block) {
+        return (LongRange) super.eachWithIndex(block);
+    }
+
+    public <R> LongRange reverseEach(Fn1<? super Long, R> block) {
+        for (long i = size() - 1; i >= 0; i--)
+            block.call(get(i));
+        return this;
+    }
+
+    /**
+     * Splits this range into at most parts consecutive ranges of about the
+     * same size and with the same step, without materializing it.
+     */
+    public EList<LongRange> split(int parts) {
+        if (parts <= 0)
+            throw new IllegalArgumentException("invalid size");
+        EList<LongRange> result = new EList<LongRange>();
+        long size = size();
+        long from = 0;
+        for (int i = parts; i > 0 && from < size; i--) {
+            long to = from + (size - from + i - 1) / i;
+            result.add(new LongRange(get(from), get(to - 1), false, step));
+            from = to;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only random access view of this range, which computes the
+     * values on demand. Throws an {@link IllegalStateException} if the range
+     * has more than {@link Integer#MAX_VALUE} values.
+     */
+    public List<Long> asList() {
+        return new LongRangeList(listSize());
+    }
+
+    /**
+     * Returns the values in this range. Throws an
+     * {@link IllegalStateException} if the range has more than
+     * {@link Integer#MAX_VALUE} values.
+     */
+    public long[] toArray() {
+        long[] array = new long[listSize()];
+        long value = start;
+        for (int i = 0; i < array.length; i++, value += step)
+            array[i] = value;
+        return array;
+    }
+
+    int listSize() {
+        long size = size();
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many values for a list or array: " + size);
+        return (int) size;
+    }
+
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            long remaining = size();
+            long x = start;
+
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            public Long next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                long next = x;
+                remaining--;
+                x += step;
+                return next;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    class LongRangeList extends AbstractList<Long> implements RandomAccess {
+        final int size;
+
+        LongRangeList(int size) {
+            this.size = size;
+        }
+
+        public Long get(int index) {
+            return LongRange.this.get(index);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
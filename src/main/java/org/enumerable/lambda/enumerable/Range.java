@@ -1,63 +1,249 @@
 package org.enumerable.lambda.enumerable;
 
+import java.util.AbstractList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.collection.EList;
 import org.enumerable.lambda.enumerable.collection.EnumerableModule;
+import org.enumerable.lambda.primitives.Fn1ItoB;
+import org.enumerable.lambda.primitives.Fn1ItoD;
+import org.enumerable.lambda.primitives.Fn1ItoI;
+import org.enumerable.lambda.primitives.Fn1ItoL;
+import org.enumerable.lambda.primitives.Fn1ItoO;
 
 
 /**
  * An {@link Iterable} that represents a ascending range of integers. Includes
  * the {@link EnumerableModule} by extension.
+ * <p>
+ * The values are computed from start and step, so {@link #count()},
+ * {@link #include(Object)}, {@link #sum()}, {@link #first()}, {@link #last()},
+ * {@link #min()} and {@link #max()} don't iterate, and the primitive forms of
+ * {@link #each(Fn1ItoI)} don't box. {@link #split(int)} and {@link #asList()}
+ * let a range drive parallel or chunked execution without materializing it.
+ *
+ * @see LongRange
+ * @see DoubleRange
  */
 public class Range extends EnumerableModule<Integer> {
     public final int start, end;
     public final boolean exclusive;
+    public final int step;
 
     public Range(int start, int end) {
         this(start, end, false);
     }
 
     public Range(int start, int end, boolean exclusive) {
+        this(start, end, exclusive, 1);
+    }
+
+    public Range(int start, int end, boolean exclusive, int step) {
+        if (step <= 0)
+            throw new IllegalArgumentException(step == 0 ? "step can't be 0" : "step can't be negative");
         this.start = start;
         this.end = end;
         this.exclusive = exclusive;
+        this.step = step;
+    }
+
+    /**
+     * Returns a range with the same bounds which only includes every nth value
+     * of this range, like Ruby's Range#step.
+     */
+    public Range step(int n) {
+        return new Range(start, end, exclusive, (int) Math.min(Integer.MAX_VALUE, (long) step * n));
+    }
+
+    /**
+     * Returns the number of values in this range.
+     */
+    public long size() {
+        long last = exclusive ? (long) end - 1 : end;
+        if (last < start)
+            return 0;
+        return (last - start) / step + 1;
+    }
+
+    /**
+     * Returns the value at index.
+     */
+    public int get(long index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return (int) (start + index * step);
+    }
+
+    public int count() {
+        return (int) Math.min(Integer.MAX_VALUE, size());
+    }
+
+    public Integer first() {
+        return size() == 0 ? null : start;
+    }
+
+    /**
+     * Returns the last value in this range, or null if it is empty.
+     */
+    public Integer last() {
+        long size = size();
+        return size == 0 ? null : get(size - 1);
+    }
+
+    public Integer min() {
+        return first();
+    }
+
+    public Integer max() {
+        return last();
+    }
+
+    /**
+     * Returns the sum of the values in this range.
+     */
+    public long sum() {
+        long size = size();
+        if (size == 0)
+            return 0;
+        long firstPlusLast = (long) start + get(size - 1);
+        return size % 2 == 0 ? size / 2 * firstPlusLast : firstPlusLast / 2 * size;
+    }
+
+    public boolean include(Object obj) {
+        if (!(obj instanceof Integer))
+            return false;
+        long value = (Integer) obj;
+        return value >= start && (value - start) / step < size() && (value - start) % step == 0;
     }
 
+    @SuppressWarnings("unchecked")
     public <R> Range each(Fn1<? super Integer, R> block) {
+        if (block instanceof Fn1ItoI)
+            return each((Fn1ItoI) block);
+        if (block instanceof Fn1ItoO<?>)
+            return each((Fn1ItoO<R>) block);
+        if (block instanceof Fn1ItoB)
+            return each((Fn1ItoB) block);
+        if (block instanceof Fn1ItoL)
+            return each((Fn1ItoL) block);
+        if (block instanceof Fn1ItoD)
+            return each((Fn1ItoD) block);
         return (Range) super.each(block);
     }
 
+    public Range each(Fn1ItoI block) {
+        int value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public <R> Range each(Fn1ItoO<R> block) {
+        int value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public Range each(Fn1ItoB block) {
+        int value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public Range each(Fn1ItoL block) {
+        int value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
+    public Range each(Fn1ItoD block) {
+        int value = start;
+        for (long i = size(); i > 0; i--, value += step)
+            block.call(value);
+        return this;
+    }
+
     public <R> Range eachWithIndex(Fn2<? super Integer, Integer, R> block) {
         return (Range) super.eachWithIndex(block);
     }
 
     public <R> Range reverseEach(Fn1<? super Integer, R> block) {
-        return (Range) super.reverseEach(block);
+        for (long i = size() - 1; i >= 0; i--)
+            block.call(get(i));
+        return this;
     }
 
+    /**
+     * Splits this range into at most parts consecutive ranges of about the
+     * same size and with the same step, without materializing it.
+     */
+    public EList<Range> split(int parts) {
+        if (parts <= 0)
+            throw new IllegalArgumentException("invalid size");
+        EList<Range> result = new EList<Range>();
+        long size = size();
+        long from = 0;
+        for (int i = parts; i > 0 && from < size; i--) {
+            long to = from + (size - from + i - 1) / i;
+            result.add(new Range(get(from), get(to - 1), false, step));
+            from = to;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only random access view of this range, which computes the
+     * values on demand. Throws an {@link IllegalStateException} if the range
+     * has more than {@link Integer#MAX_VALUE} values.
+     */
+    public List<Integer> asList() {
+        return new RangeList(listSize());
+    }
+
+    /**
+     * Returns the values in this range. Throws an
+     * {@link IllegalStateException} if the range has more than
+     * {@link Integer#MAX_VALUE} values.
+     */
     public int[] toArray() {
-        int[] array = new int[(exclusive ? end : end + 1) - start];
-        int i = 0;
-        for (Integer integer : this)
-            array[i++] = integer;
+        int[] array = new int[listSize()];
+        int value = start;
+        for (int i = 0; i < array.length; i++, value += step)
+            array[i] = value;
         return array;
     }
 
+    int listSize() {
+        long size = size();
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many values for a list or array: " + size);
+        return (int) size;
+    }
+
     public Iterator<Integer> iterator() {
         return new Iterator<Integer>() {
+            long remaining = size();
             int x = start;
 
             public boolean hasNext() {
-                return exclusive ? x < end : x <= end;
+                return remaining > 0;
             }
 
             public Integer next() {
                 if (!hasNext())
                     throw new NoSuchElementException();
-                return x++;
+                int next = x;
+                remaining--;
+                x += step;
+                return next;
             }
 
             public void remove() {
@@ -65,4 +251,20 @@ public class Range extends EnumerableModule<Integer> {
             }
         };
     }
-}
\ No newline at end of file
+
+    class RangeList extends AbstractList<Integer> implements RandomAccess {
+        final int size;
+
+        RangeList(int size) {
+            this.size = size;
+        }
+
+        public Integer get(int index) {
+            return Range.this.get(index);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
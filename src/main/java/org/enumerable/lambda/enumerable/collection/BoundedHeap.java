@@ -0,0 +1,165 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.lang.System.*;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Keeps the n smallest keys offered to it according to comparator, together
+ * with the element each key belongs to, in a binary max heap of at most n
+ * entries. Used by {@link EnumerableModule#minN(int)} and its siblings, and
+ * by their counterparts in
+ * {@link org.enumerable.lambda.enumerable.EnumerableArrays} over the array
+ * itself, which thereby run in O(size log n) instead of sorting all elements,
+ * and call the block once per element. A null comparator orders the keys by
+ * their natural ordering.
+ * <p>
+ * Ties are broken by the order the elements were offered in, like a stable
+ * sort: of equal keys, the ones offered first are kept and come first.
+ */
+public class BoundedHeap<K, E> {
+    static final int INITIAL_CAPACITY = 16;
+
+    final int n;
+    final Comparator<? super K> comparator;
+    Object[] keys;
+    Object[] elements;
+    long[] sequence;
+    long offered;
+    int size;
+
+    public BoundedHeap(int n, Comparator<? super K> comparator) {
+        if (n < 0)
+            throw new IllegalArgumentException("negative size (" + n + ")");
+        this.n = n;
+        this.comparator = comparator;
+        this.keys = new Object[Math.min(n, INITIAL_CAPACITY)];
+        this.elements = new Object[keys.length];
+        this.sequence = new long[keys.length];
+    }
+
+    public void offer(K key, E element) {
+        if (size < n) {
+            if (size == keys.length)
+                grow();
+            keys[size] = key;
+            elements[size] = element;
+            sequence[size] = offered++;
+            siftUp(size++);
+        } else if (n > 0 && compare(key, keys[0]) < 0) {
+            keys[0] = key;
+            elements[0] = element;
+            sequence[0] = offered++;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empties the heap, returning the elements ordered by their keys, smallest
+     * first.
+     */
+    @SuppressWarnings("unchecked")
+    EList<E> toSortedList() {
+        Object[] result = new Object[size];
+        drainInto(result);
+        ArrayList<E> list = new ArrayList<E>(result.length);
+        for (Object each : result)
+            list.add((E) each);
+        return new EList<E>(list);
+    }
+
+    /**
+     * Empties the heap, returning the elements ordered by their keys, smallest
+     * first, in array if it is large enough, otherwise in a new array of the
+     * same runtime type, like {@link java.util.Collection#toArray(Object[])}.
+     */
+    @SuppressWarnings("unchecked")
+    public E[] toSortedArray(E[] array) {
+        E[] result = array;
+        if (result.length < size)
+            result = (E[]) Array.newInstance(array.getClass().getComponentType(), size);
+        if (result.length > size)
+            result[size] = null;
+        drainInto(result);
+        return result;
+    }
+
+    void drainInto(Object[] result) {
+        while (size > 0) {
+            result[size - 1] = elements[0];
+            size--;
+            keys[0] = keys[size];
+            elements[0] = elements[size];
+            sequence[0] = sequence[size];
+            keys[size] = elements[size] = null;
+            siftDown(0);
+        }
+    }
+
+    void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compareAt(i, parent) <= 0)
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    void siftDown(int i) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && compareAt(left, largest) > 0)
+                largest = left;
+            if (right < size && compareAt(right, largest) > 0)
+                largest = right;
+            if (largest == i)
+                return;
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    void swap(int i, int j) {
+        Object key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+        long order = sequence[i];
+        sequence[i] = sequence[j];
+        sequence[j] = order;
+    }
+
+    void grow() {
+        int capacity = (int) Math.min(n, keys.length * 2L);
+        Object[] newKeys = new Object[capacity];
+        Object[] newElements = new Object[capacity];
+        long[] newSequence = new long[capacity];
+        arraycopy(keys, 0, newKeys, 0, size);
+        arraycopy(elements, 0, newElements, 0, size);
+        arraycopy(sequence, 0, newSequence, 0, size);
+        keys = newKeys;
+        elements = newElements;
+        sequence = newSequence;
+    }
+
+    int compareAt(int i, int j) {
+        int result = compare(keys[i], keys[j]);
+        if (result != 0)
+            return result;
+        return sequence[i] < sequence[j] ? -1 : sequence[i] == sequence[j] ? 0 : 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    int compare(Object a, Object b) {
+        if (comparator == null)
+            return ((Comparable<Object>) a).compareTo(b);
+        return comparator.compare((K) a, (K) b);
+    }
+}
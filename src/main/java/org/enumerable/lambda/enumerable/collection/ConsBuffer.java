@@ -0,0 +1,85 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.lang.System.*;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Keeps the last n elements added to it for {@link EnumerableModule#eachCons},
+ * and hands out each window of n consecutive elements as a read-only view,
+ * without copying it.
+ * <p>
+ * The elements are appended to an array of up to 2n slots. When it is full,
+ * the last n - 1 elements are copied to the start of a new array, so each
+ * element is copied at most once more, and the slots a window views are never
+ * overwritten. Windows therefore stay valid after the block returns, while
+ * only the current array is kept alive by the buffer itself.
+ */
+class ConsBuffer<E> {
+    static final int INITIAL_CAPACITY = 16;
+
+    final int n;
+    Object[] elements;
+    int size;
+
+    ConsBuffer(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("invalid size");
+        this.n = n;
+        this.elements = new Object[(int) Math.min(2L * n, INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Appends element, returning true if there are at least n elements to
+     * make up a window.
+     */
+    boolean add(E element) {
+        if (size == elements.length) {
+            long maxCapacity = Math.min(2L * n, Integer.MAX_VALUE);
+            if (elements.length < maxCapacity) {
+                Object[] grown = new Object[(int) Math.min(maxCapacity, elements.length * 2L)];
+                arraycopy(elements, 0, grown, 0, size);
+                elements = grown;
+            } else {
+                Object[] next = new Object[elements.length];
+                arraycopy(elements, size - (n - 1), next, 0, n - 1);
+                elements = next;
+                size = n - 1;
+            }
+        }
+        elements[size++] = element;
+        return size >= n;
+    }
+
+    /**
+     * Returns a read-only view of the last n elements added.
+     */
+    List<E> window() {
+        return new Window<E>(elements, size - n, n);
+    }
+
+    static class Window<E> extends AbstractList<E> implements RandomAccess {
+        final Object[] elements;
+        final int from;
+        final int size;
+
+        Window(Object[] elements, int from, int size) {
+            this.elements = elements;
+            this.from = from;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return (E) elements[from + index];
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
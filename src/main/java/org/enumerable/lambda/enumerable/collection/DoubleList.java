@@ -0,0 +1,390 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.lang.System.*;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.enumerable.lambda.Fn0;
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.primitives.Fn1DtoB;
+import org.enumerable.lambda.primitives.Fn1DtoD;
+import org.enumerable.lambda.primitives.Fn1DtoI;
+import org.enumerable.lambda.primitives.Fn1DtoL;
+import org.enumerable.lambda.primitives.Fn1DtoO;
+import org.enumerable.lambda.primitives.Fn2DDtoD;
+
+
+/**
+ * A growable list of doubles backed by a double array, which includes the
+ * {@link EnumerableModule} via {@link EList}.
+ * <p>
+ * The methods taking primitive blocks, like {@link #collect(Fn1DtoD)},
+ * {@link #select(Fn1DtoB)} and {@link #inject(double, Fn2DDtoD)}, work directly
+ * on the array and return new primitive lists, without boxing the elements.
+ * Everything else, including the {@link List} interface, sees the elements as
+ * {@link Double}s.
+ */
+public class DoubleList extends EList<Double> {
+    final DoubleArrayList list;
+
+    public DoubleList() {
+        this(10);
+    }
+
+    public DoubleList(int capacity) {
+        this(new DoubleArrayList(new double[capacity], 0));
+    }
+
+    /**
+     * Creates a list using array as its backing storage, without copying it.
+     */
+    public DoubleList(double[] array) {
+        this(new DoubleArrayList(array, array.length));
+    }
+
+    DoubleList(DoubleArrayList list) {
+        super(list);
+        this.list = list;
+    }
+
+    public boolean all(Fn1DtoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (!block.call(list.elements[i]))
+                return false;
+        return true;
+    }
+
+    public boolean any(Fn1DtoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                return true;
+        return false;
+    }
+
+    public IntList collect(Fn1DtoI block) {
+        int[] result = new int[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new IntList(result);
+    }
+
+    public LongList collect(Fn1DtoL block) {
+        long[] result = new long[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new LongList(result);
+    }
+
+    public DoubleList collect(Fn1DtoD block) {
+        double[] result = new double[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new DoubleList(result);
+    }
+
+    public int count(Fn1DtoB block) {
+        int count = 0;
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the first element for which block is true, or ifNone.
+     */
+    public double detect(double ifNone, Fn1DtoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                return list.elements[i];
+        return ifNone;
+    }
+
+    public <R> DoubleList each(Fn1DtoO<R> block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public DoubleList each(Fn1DtoB block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public DoubleList each(Fn1DtoD block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public DoubleList each(Fn1DtoI block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public DoubleList each(Fn1DtoL block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    /**
+     * @see #detect(double, Fn1DtoB)
+     */
+    public double find(double ifNone, Fn1DtoB block) {
+        return detect(ifNone, block);
+    }
+
+    /**
+     * @see #select(Fn1DtoB)
+     */
+    public DoubleList findAll(Fn1DtoB block) {
+        return select(block);
+    }
+
+    /**
+     * Combines the elements by applying the block to an accumulator value
+     * (memo) and each element in turn, using the first element as the initial
+     * value. Returns 0 if the list is empty.
+     */
+    public double inject(Fn2DDtoD block) {
+        if (list.size == 0)
+            return 0;
+        double memo = list.elements[0];
+        for (int i = 1; i < list.size; i++)
+            memo = block.call(memo, list.elements[i]);
+        return memo;
+    }
+
+    public double inject(double initial, Fn2DDtoD block) {
+        for (int i = 0; i < list.size; i++)
+            initial = block.call(initial, list.elements[i]);
+        return initial;
+    }
+
+    /**
+     * @see #collect(Fn1DtoI)
+     */
+    public IntList map(Fn1DtoI block) {
+        return collect(block);
+    }
+
+    /**
+     * @see #collect(Fn1DtoL)
+     */
+    public LongList map(Fn1DtoL block) {
+        return collect(block);
+    }
+
+    /**
+     * @see #collect(Fn1DtoD)
+     */
+    public DoubleList map(Fn1DtoD block) {
+        return collect(block);
+    }
+
+    public DoubleList reject(Fn1DtoB block) {
+        return filter(block, false);
+    }
+
+    public DoubleList select(Fn1DtoB block) {
+        return filter(block, true);
+    }
+
+    /**
+     * Returns a new sorted list, using the natural ordering of the elements.
+     */
+    public DoubleList sort() {
+        double[] result = toDoubleArray();
+        Arrays.sort(result);
+        return new DoubleList(result);
+    }
+
+    /**
+     * Returns a copy of this list.
+     */
+    public DoubleList toList() {
+        return new DoubleList(toDoubleArray());
+    }
+
+    /**
+     * Returns a new array containing the elements.
+     */
+    public double[] toDoubleArray() {
+        return copyOf(list.elements, list.size);
+    }
+
+    public double getDouble(int index) {
+        list.rangeCheck(index);
+        return list.elements[index];
+    }
+
+    public double setDouble(int index, double element) {
+        list.rangeCheck(index);
+        double old = list.elements[index];
+        list.elements[index] = element;
+        return old;
+    }
+
+    public boolean addDouble(double element) {
+        list.ensureCapacity(list.size + 1);
+        list.elements[list.size++] = element;
+        list.modified();
+        return true;
+    }
+
+    /**
+     * Uses the primitive versions of collect when block is a primitive
+     * lambda, which the weaver creates for plain blocks with primitive
+     * parameters and bodies, like λ(n, n * 2).
+     */
+    @SuppressWarnings("unchecked")
+    public <R> EList<R> collect(Fn1<? super Double, ? extends R> block) {
+        if (block instanceof Fn1DtoI)
+            return (EList<R>) (EList<?>) collect((Fn1DtoI) block);
+        if (block instanceof Fn1DtoL)
+            return (EList<R>) (EList<?>) collect((Fn1DtoL) block);
+        if (block instanceof Fn1DtoD)
+            return (EList<R>) (EList<?>) collect((Fn1DtoD) block);
+        return super.collect(block);
+    }
+
+    public boolean all(Fn1<? super Double, ?> block) {
+        if (block instanceof Fn1DtoB)
+            return all((Fn1DtoB) block);
+        return super.all(block);
+    }
+
+    public boolean any(Fn1<? super Double, ?> block) {
+        if (block instanceof Fn1DtoB)
+            return any((Fn1DtoB) block);
+        return super.any(block);
+    }
+
+    public int count(Fn1<? super Double, Boolean> block) {
+        if (block instanceof Fn1DtoB)
+            return count((Fn1DtoB) block);
+        return super.count(block);
+    }
+
+    public Double detect(Fn0<Double> ifNone, Fn1<? super Double, Boolean> block) {
+        if (block instanceof Fn1DtoB) {
+            Fn1DtoB primitiveBlock = (Fn1DtoB) block;
+            for (int i = 0; i < list.size; i++)
+                if (primitiveBlock.call(list.elements[i]))
+                    return list.elements[i];
+            return ifNone == null ? null : ifNone.call();
+        }
+        return super.detect(ifNone, block);
+    }
+
+    public EList<Double> findAll(Fn1<? super Double, Boolean> block) {
+        if (block instanceof Fn1DtoB)
+            return filter((Fn1DtoB) block, true);
+        return super.findAll(block);
+    }
+
+    public EList<Double> reject(Fn1<? super Double, Boolean> block) {
+        if (block instanceof Fn1DtoB)
+            return filter((Fn1DtoB) block, false);
+        return super.reject(block);
+    }
+
+    public Double inject(Fn2<? super Double, ? super Double, ? extends Double> block) {
+        if (block instanceof Fn2DDtoD && list.size > 0)
+            return inject((Fn2DDtoD) block);
+        return super.inject(block);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R inject(R initial, Fn2<? super R, ? super Double, ? extends R> block) {
+        if (block instanceof Fn2DDtoD && initial instanceof Double)
+            return (R) (Double) inject(((Double) initial).doubleValue(), (Fn2DDtoD) block);
+        return super.inject(initial, block);
+    }
+
+    DoubleList filter(Fn1DtoB block, boolean keep) {
+        double[] result = new double[list.size];
+        int size = 0;
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]) == keep)
+                result[size++] = list.elements[i];
+        return new DoubleList(new DoubleArrayList(result, size));
+    }
+
+    static double[] copyOf(double[] array, int length) {
+        double[] result = new double[length];
+        arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    static class DoubleArrayList extends AbstractList<Double> implements RandomAccess {
+        double[] elements;
+        int size;
+
+        DoubleArrayList(double[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        public Double get(int index) {
+            rangeCheck(index);
+            return elements[index];
+        }
+
+        public Double set(int index, Double element) {
+            rangeCheck(index);
+            double old = elements[index];
+            elements[index] = element;
+            return old;
+        }
+
+        public void add(int index, Double element) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            ensureCapacity(size + 1);
+            arraycopy(elements, index, elements, index + 1, size - index);
+            elements[index] = element;
+            size++;
+            modified();
+        }
+
+        public Double remove(int index) {
+            rangeCheck(index);
+            double old = elements[index];
+            arraycopy(elements, index + 1, elements, index, size - index - 1);
+            size--;
+            modified();
+            return old;
+        }
+
+        public void clear() {
+            size = 0;
+            modified();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > elements.length)
+                elements = copyOf(elements, Math.max(capacity, elements.length * 3 / 2 + 1));
+        }
+
+        void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        void modified() {
+            modCount++;
+        }
+    }
+}
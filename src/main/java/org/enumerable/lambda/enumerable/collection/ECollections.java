@@ -3,9 +3,11 @@ package org.enumerable.lambda.enumerable.collection;
 import static org.enumerable.lambda.exception.UncheckedException.*;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -155,6 +157,45 @@ public class ECollections {
         }
     }
 
+    /**
+     * Returns a lazy view of the lines of the file, read using the platform's
+     * default charset.
+     * 
+     * @see #lines(File, Charset, int)
+     */
+    public static ELazy<String> lines(File file) {
+        return lines(file, Charset.defaultCharset());
+    }
+
+    /**
+     * @see #lines(File, Charset, int)
+     */
+    public static ELazy<String> lines(File file, Charset charset) {
+        return lines(file, charset, FileLines.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns a lazy view of the lines of the file, which is memory mapped and
+     * decoded using charset, bufferSize bytes at a time. Only the current line
+     * is kept in memory. The file is opened each time the view is iterated, and
+     * closed when the end of the file is reached, or when a terminal operation
+     * of the view returns or throws. Code iterating the view directly which may
+     * stop early must close the iterator using {@link ELazy#close(java.util.Iterator)}.
+     */
+    public static ELazy<String> lines(File file, Charset charset, int bufferSize) {
+        return new ELazy<String>(new FileLines<String>(file, charset, bufferSize, false));
+    }
+
+    /**
+     * Like {@link #lines(File, Charset, int)}, but returns the same
+     * {@link CharSequence} for every line, overwriting it as the view is
+     * iterated. The block must copy the line, using toString(), if it keeps
+     * it.
+     */
+    public static ELazy<CharSequence> lineSequences(File file, Charset charset, int bufferSize) {
+        return new ELazy<CharSequence>(new FileLines<CharSequence>(file, charset, bufferSize, true));
+    }
+
     /**
      * Returns the chars of the String as an {@link EList}.
      */
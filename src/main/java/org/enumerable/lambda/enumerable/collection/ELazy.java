@@ -0,0 +1,561 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static org.enumerable.lambda.Fn0.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+import org.enumerable.lambda.Fn0;
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+
+
+/**
+ * A lazy view of an {@link Iterable}, similar to Ruby's Enumerator::Lazy in
+ * 1.9.
+ * <p>
+ * The intermediate operations ({@link #collect}, {@link #select},
+ * {@link #reject}, {@link #drop}, {@link #take}, {@link #grep} and friends)
+ * return a new lazy view instead of a list, and nothing is evaluated until a
+ * terminal operation such as {@link #toList()}, {@link #inject} or
+ * {@link #count()} is called. All blocks are then run in a single pass over the
+ * original collection, one element at a time, and operations like
+ * {@link #take}, {@link #first()} and {@link #detect} stop consuming the
+ * collection as soon as they have their result.
+ * <p>
+ * Terminal operations close the iterator they use if it is {@link Closeable},
+ * also when they stop early or a block throws, so views of resources like the
+ * lines of a file are released. See {@link #close(Iterator)}.
+ */
+public class ELazy<E> implements Iterable<E> {
+    protected final Iterable<E> iterable;
+
+    public ELazy(Iterable<E> iterable) {
+        this.iterable = iterable;
+    }
+
+    /**
+     * Returns a lazy view which runs block once for every element.
+     */
+    public <R> ELazy<R> collect(final Fn1<? super E, ? extends R> block) {
+        return new ELazy<R>(new Iterable<R>() {
+            public Iterator<R> iterator() {
+                return new LazyIterator<E, R>(ELazy.this.iterator()) {
+                    boolean computeNext() {
+                        if (!source.hasNext())
+                            return false;
+                        next = block.call(source.next());
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * @see #collect(Fn1)
+     */
+    public <R> ELazy<R> map(Fn1<? super E, ? extends R> block) {
+        return collect(block);
+    }
+
+    /**
+     * Returns a lazy view of the elements for which block is not false.
+     */
+    public ELazy<E> select(final Fn1<? super E, Boolean> block) {
+        return new ELazy<E>(new Iterable<E>() {
+            public Iterator<E> iterator() {
+                return new LazyIterator<E, E>(ELazy.this.iterator()) {
+                    boolean computeNext() {
+                        while (source.hasNext()) {
+                            E each = source.next();
+                            if (isNotFalseOrNull(block.call(each))) {
+                                next = each;
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * @see #select(Fn1)
+     */
+    public ELazy<E> findAll(Fn1<? super E, Boolean> block) {
+        return select(block);
+    }
+
+    /**
+     * Returns a lazy view of the elements for which block is false.
+     */
+    @SuppressWarnings("serial")
+    public ELazy<E> reject(final Fn1<? super E, Boolean> block) {
+        return select(new Fn1<E, Boolean>() {
+            public Boolean call(E a1) {
+                return isFalseOrNull(block.call(a1));
+            }
+        });
+    }
+
+    /**
+     * Returns a lazy view of all but the first n elements.
+     */
+    public ELazy<E> drop(final int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("attempt to drop negative size");
+        return new ELazy<E>(new Iterable<E>() {
+            public Iterator<E> iterator() {
+                return new LazyIterator<E, E>(ELazy.this.iterator()) {
+                    int toDrop = n;
+
+                    boolean computeNext() {
+                        for (; toDrop > 0 && source.hasNext(); toDrop--)
+                            source.next();
+                        if (!source.hasNext())
+                            return false;
+                        next = source.next();
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Returns a lazy view which drops elements up to, but not including, the
+     * first element for which the block returns false.
+     */
+    public ELazy<E> dropWhile(final Fn1<? super E, Boolean> block) {
+        return new ELazy<E>(new Iterable<E>() {
+            public Iterator<E> iterator() {
+                return new LazyIterator<E, E>(ELazy.this.iterator()) {
+                    boolean dropping = true;
+
+                    boolean computeNext() {
+                        while (source.hasNext()) {
+                            E each = source.next();
+                            if (!dropping || isFalseOrNull(block.call(each))) {
+                                dropping = false;
+                                next = each;
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Returns a lazy view of the first n elements. The collection is not
+     * consumed past the nth element.
+     */
+    public ELazy<E> take(final int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("attempt to take negative size");
+        return new ELazy<E>(new Iterable<E>() {
+            public Iterator<E> iterator() {
+                return new LazyIterator<E, E>(ELazy.this.iterator()) {
+                    int toTake = n;
+
+                    boolean computeNext() {
+                        if (toTake == 0 || !source.hasNext())
+                            return false;
+                        toTake--;
+                        next = source.next();
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Returns a lazy view of the elements up to, but not including, the first
+     * element for which the block returns false.
+     */
+    public ELazy<E> takeWhile(final Fn1<? super E, Boolean> block) {
+        return new ELazy<E>(new Iterable<E>() {
+            public Iterator<E> iterator() {
+                return new LazyIterator<E, E>(ELazy.this.iterator()) {
+                    boolean computeNext() {
+                        if (!source.hasNext())
+                            return false;
+                        E each = source.next();
+                        if (isFalseOrNull(block.call(each)))
+                            return false;
+                        next = each;
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Returns a lazy view of the elements whose string representation matches
+     * pattern.
+     */
+    public ELazy<E> grep(Pattern pattern) {
+        return grep(pattern, Fn1.<E> identity());
+    }
+
+    /**
+     * Returns a lazy view which runs block for each element whose string
+     * representation matches pattern.
+     */
+    public <R> ELazy<R> grep(final Pattern pattern, final Fn1<? super E, R> block) {
+        return new ELazy<R>(new Iterable<R>() {
+            public Iterator<R> iterator() {
+                return new LazyIterator<E, R>(ELazy.this.iterator()) {
+                    boolean computeNext() {
+                        while (source.hasNext()) {
+                            E each = source.next();
+                            if (pattern.matcher(each.toString()).matches()) {
+                                next = block.call(each);
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * @see #grep(Pattern)
+     */
+    public ELazy<E> grep(String pattern) {
+        return grep(Pattern.compile(pattern));
+    }
+
+    /**
+     * @see #grep(Pattern, Fn1)
+     */
+    public <R> ELazy<R> grep(String pattern, Fn1<? super E, R> block) {
+        return grep(Pattern.compile(pattern), block);
+    }
+
+    /**
+     * Returns this view, it is already lazy.
+     */
+    public ELazy<E> lazy() {
+        return this;
+    }
+
+    /**
+     * Evaluates this view and returns an eager {@link EnumerableModule} with
+     * the result.
+     */
+    public EList<E> eager() {
+        return toList();
+    }
+
+    /**
+     * Terminal operation, passes each element to block. Returns this view.
+     */
+    public <R> ELazy<E> each(Fn1<? super E, R> block) {
+        Iterator<E> i = iterator();
+        try {
+            while (i.hasNext())
+                block.call(i.next());
+            return this;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, returns true if block never returns false or null.
+     * Stops at the first element for which it does.
+     */
+    public boolean all(Fn1<? super E, ?> block) {
+        Iterator<E> i = iterator();
+        try {
+            while (i.hasNext())
+                if (isFalseOrNull(block.call(i.next())))
+                    return false;
+            return true;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, returns true if block ever returns a value other than
+     * false or null. Stops at the first element for which it does.
+     */
+    public boolean any(Fn1<? super E, ?> block) {
+        Iterator<E> i = iterator();
+        try {
+            while (i.hasNext())
+                if (isNotFalseOrNull(block.call(i.next())))
+                    return true;
+            return false;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, returns true if block never returns a value other
+     * than false or null.
+     */
+    public boolean none(Fn1<? super E, ?> block) {
+        return !any(block);
+    }
+
+    /**
+     * Terminal operation, returns the number of elements.
+     */
+    public int count() {
+        Iterator<E> i = iterator();
+        try {
+            int count = 0;
+            for (; i.hasNext(); i.next())
+                count++;
+            return count;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, returns the number of elements for which block
+     * returns a true value.
+     */
+    public int count(Fn1<? super E, Boolean> block) {
+        Iterator<E> i = iterator();
+        try {
+            int count = 0;
+            while (i.hasNext())
+                if (isNotFalseOrNull(block.call(i.next())))
+                    count++;
+            return count;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, returns the first element for which block is not
+     * false, or null.
+     */
+    public E detect(Fn1<? super E, Boolean> block) {
+        return detect(null, block);
+    }
+
+    /**
+     * Terminal operation, returns the first element for which block is not
+     * false, or the result of ifNone.
+     */
+    public E detect(Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
+        Iterator<E> i = iterator();
+        try {
+            while (i.hasNext()) {
+                E each = i.next();
+                if (isNotFalseOrNull(block.call(each)))
+                    return each;
+            }
+        } finally {
+            close(i);
+        }
+        return ifNone == null ? null : ifNone.call();
+    }
+
+    /**
+     * @see #detect(Fn1)
+     */
+    public E find(Fn1<? super E, Boolean> block) {
+        return detect(block);
+    }
+
+    /**
+     * @see #detect(Fn0, Fn1)
+     */
+    public E find(Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
+        return detect(ifNone, block);
+    }
+
+    /**
+     * Terminal operation, returns the first element, or null if there are none.
+     */
+    public E first() {
+        Iterator<E> i = iterator();
+        try {
+            return i.hasNext() ? i.next() : null;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, returns a list of the first n elements.
+     */
+    public EList<E> first(int n) {
+        return take(n).toList();
+    }
+
+    /**
+     * Terminal operation, returns true if any element equals obj.
+     */
+    public boolean include(Object obj) {
+        Iterator<E> i = iterator();
+        try {
+            while (i.hasNext()) {
+                E each = i.next();
+                if (obj == null ? each == null : obj.equals(each))
+                    return true;
+            }
+            return false;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, combines the elements by applying the block to an
+     * accumulator value (memo) and each element in turn, using the first
+     * element as the initial value.
+     */
+    public E inject(Fn2<? super E, ? super E, ? extends E> block) {
+        Iterator<E> i = iterator();
+        try {
+            if (!i.hasNext())
+                return null;
+            E initial = i.next();
+            while (i.hasNext())
+                initial = block.call(initial, i.next());
+            return initial;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * Terminal operation, combines the elements by applying the block to an
+     * accumulator value (memo) and each element in turn.
+     */
+    public <R> R inject(R initial, Fn2<? super R, ? super E, ? extends R> block) {
+        Iterator<E> i = iterator();
+        try {
+            while (i.hasNext())
+                initial = block.call(initial, i.next());
+            return initial;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * @see #inject(Fn2)
+     */
+    public E reduce(Fn2<? super E, ? super E, ? extends E> block) {
+        return inject(block);
+    }
+
+    /**
+     * @see #inject(Object, Fn2)
+     */
+    public <R> R reduce(R initial, Fn2<? super R, ? super E, ? extends R> block) {
+        return inject(initial, block);
+    }
+
+    /**
+     * Terminal operation, returns a list containing the elements.
+     */
+    public EList<E> toList() {
+        Iterator<E> i = iterator();
+        try {
+            EList<E> result = new EList<E>();
+            while (i.hasNext())
+                result.add(i.next());
+            return result;
+        } finally {
+            close(i);
+        }
+    }
+
+    /**
+     * @see #toList()
+     */
+    public EList<E> force() {
+        return toList();
+    }
+
+    /**
+     * @see #toList()
+     */
+    public EList<E> entries() {
+        return toList();
+    }
+
+    public Iterator<E> iterator() {
+        return iterable.iterator();
+    }
+
+    public Iterable<E> delegate() {
+        return iterable;
+    }
+
+    /**
+     * Closes iterator if it is {@link Closeable}, like the iterators of
+     * {@link ECollections#lines(java.io.File, java.nio.charset.Charset, int)}
+     * and lazy views of them. All terminal operations do this, so code which
+     * iterates a lazy view itself, and may stop before the end, must too.
+     */
+    public static void close(Iterator<?> iterator) {
+        if (iterator instanceof Closeable) {
+            try {
+                ((Closeable) iterator).close();
+            } catch (IOException silent) {
+            }
+        }
+    }
+
+    static abstract class LazyIterator<T, E> implements Iterator<E>, Closeable {
+        final Iterator<T> source;
+        E next;
+        boolean hasNext;
+        boolean done;
+
+        LazyIterator(Iterator<T> source) {
+            this.source = source;
+        }
+
+        abstract boolean computeNext();
+
+        public boolean hasNext() {
+            if (!hasNext && !done) {
+                hasNext = computeNext();
+                done = !hasNext;
+            }
+            return hasNext;
+        }
+
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            hasNext = false;
+            E result = next;
+            next = null;
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() {
+            ELazy.close(source);
+        }
+    }
+}
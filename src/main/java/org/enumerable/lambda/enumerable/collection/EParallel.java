@@ -0,0 +1,289 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.util.Arrays.*;
+import static org.enumerable.lambda.Fn0.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import jsr166y.ForkJoinPool;
+import jsr166y.RecursiveTask;
+
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.DoubleRange;
+import org.enumerable.lambda.enumerable.LongRange;
+import org.enumerable.lambda.enumerable.Range;
+
+
+/**
+ * A parallel view of a {@link List}, array, {@link Range}, {@link LongRange}
+ * or {@link DoubleRange}, which runs the blocks in a {@link ForkJoinPool} from
+ * jsr166y, which needs to be on the class path.
+ * <p>
+ * The source is split into slices by index, so {@link #collect} and
+ * {@link #select} keep the original order. {@link #inject} combines the results
+ * of the slices in order, but in an unspecified grouping, so the blocks have to
+ * be associative. Other {@link Iterable}s are copied into a list first.
+ * <p>
+ * The blocks will be called concurrently from several threads, and must not
+ * modify shared state, like local variables they close over.
+ */
+public class EParallel<E> {
+    static ForkJoinPool defaultPool;
+
+    static synchronized ForkJoinPool defaultPool() {
+        if (defaultPool == null)
+            defaultPool = new ForkJoinPool();
+        return defaultPool;
+    }
+
+    protected final List<E> list;
+    protected final ForkJoinPool pool;
+    final int threshold;
+
+    public EParallel(Iterable<E> iterable) {
+        this(iterable, defaultPool());
+    }
+
+    public EParallel(Iterable<E> iterable, ForkJoinPool pool) {
+        this.list = asRandomAccessList(iterable);
+        this.pool = pool;
+        this.threshold = Math.max(1, list.size() / (pool.getParallelism() * 8));
+    }
+
+    /**
+     * Returns a new list with the results of running block once for every
+     * element, in the original order.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> EList<R> collect(final Fn1<? super E, ? extends R> block) {
+        final Object[] result = new Object[list.size()];
+        invoke(new Slices<Object>() {
+            Object slice(int from, int to) {
+                for (int i = from; i < to; i++)
+                    result[i] = block.call(list.get(i));
+                return null;
+            }
+        });
+        return new EList<R>((List<R>) new ArrayList<Object>(asList(result)));
+    }
+
+    /**
+     * @see #collect(Fn1)
+     */
+    public <R> EList<R> map(Fn1<? super E, ? extends R> block) {
+        return collect(block);
+    }
+
+    /**
+     * Returns a list containing all elements for which block is not false, in
+     * the original order.
+     */
+    public EList<E> select(Fn1<? super E, Boolean> block) {
+        return filter(block, true);
+    }
+
+    /**
+     * @see #select(Fn1)
+     */
+    public EList<E> findAll(Fn1<? super E, Boolean> block) {
+        return select(block);
+    }
+
+    /**
+     * Returns a list containing all elements for which block is false, in the
+     * original order.
+     */
+    public EList<E> reject(Fn1<? super E, Boolean> block) {
+        return filter(block, false);
+    }
+
+    /**
+     * Calls block for each element, in no particular order. Returns this.
+     */
+    public <R> EParallel<E> each(final Fn1<? super E, R> block) {
+        invoke(new Slices<Object>() {
+            Object slice(int from, int to) {
+                for (int i = from; i < to; i++)
+                    block.call(list.get(i));
+                return null;
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Returns the count of elements for which the block returns a true value.
+     */
+    public int count(final Fn1<? super E, Boolean> block) {
+        Integer count = invoke(new Slices<Integer>() {
+            Integer slice(int from, int to) {
+                int count = 0;
+                for (int i = from; i < to; i++)
+                    if (isNotFalseOrNull(block.call(list.get(i))))
+                        count++;
+                return count;
+            }
+
+            Integer combine(Integer left, Integer right) {
+                return left + right;
+            }
+        });
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Combines the elements by applying the block to an accumulator value
+     * (memo) and each element in turn, using the first element of each slice
+     * as the initial value. The results of the slices are combined using the
+     * same block, which therefore must be associative. Returns null if there
+     * are no elements.
+     */
+    public E inject(final Fn2<? super E, ? super E, ? extends E> block) {
+        return invoke(new Slices<E>() {
+            E slice(int from, int to) {
+                E memo = list.get(from);
+                for (int i = from + 1; i < to; i++)
+                    memo = block.call(memo, list.get(i));
+                return memo;
+            }
+
+            E combine(E left, E right) {
+                return block.call(left, right);
+            }
+        });
+    }
+
+    /**
+     * Combines the elements by applying the block to an accumulator value
+     * (memo) and each element in turn. Each slice starts from initial, which
+     * hence must be an identity value for the combiner, and the results of the
+     * slices are combined in order using combiner, which must be associative.
+     */
+    public <R> R inject(final R initial, final Fn2<? super R, ? super E, ? extends R> block,
+            final Fn2<? super R, ? super R, ? extends R> combiner) {
+        if (list.isEmpty())
+            return initial;
+        return invoke(new Slices<R>() {
+            R slice(int from, int to) {
+                R memo = initial;
+                for (int i = from; i < to; i++)
+                    memo = block.call(memo, list.get(i));
+                return memo;
+            }
+
+            R combine(R left, R right) {
+                return combiner.call(left, right);
+            }
+        });
+    }
+
+    /**
+     * @see #inject(Fn2)
+     */
+    public E reduce(Fn2<? super E, ? super E, ? extends E> block) {
+        return inject(block);
+    }
+
+    /**
+     * @see #inject(Object, Fn2, Fn2)
+     */
+    public <R> R reduce(R initial, Fn2<? super R, ? super E, ? extends R> block,
+            Fn2<? super R, ? super R, ? extends R> combiner) {
+        return inject(initial, block, combiner);
+    }
+
+    /**
+     * Returns a list containing the elements.
+     */
+    public EList<E> toList() {
+        return new EList<E>(new ArrayList<E>(list));
+    }
+
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    EList<E> filter(final Fn1<? super E, Boolean> block, final boolean keep) {
+        final boolean[] matches = new boolean[list.size()];
+        Integer count = invoke(new Slices<Integer>() {
+            Integer slice(int from, int to) {
+                int count = 0;
+                for (int i = from; i < to; i++)
+                    if (isNotFalseOrNull(block.call(list.get(i))) == keep) {
+                        matches[i] = true;
+                        count++;
+                    }
+                return count;
+            }
+
+            Integer combine(Integer left, Integer right) {
+                return left + right;
+            }
+        });
+
+        List<E> result = new ArrayList<E>(count == null ? 0 : count);
+        for (int i = 0; i < matches.length; i++)
+            if (matches[i])
+                result.add(list.get(i));
+        return new EList<E>(result);
+    }
+
+    <R> R invoke(Slices<R> slices) {
+        if (list.isEmpty())
+            return null;
+        return pool.invoke(new SliceTask<R>(slices, 0, list.size()));
+    }
+
+    abstract static class Slices<R> {
+        abstract R slice(int from, int to);
+
+        R combine(R left, R right) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    class SliceTask<R> extends RecursiveTask<R> {
+        final Slices<R> slices;
+        final int from, to;
+
+        SliceTask(Slices<R> slices, int from, int to) {
+            this.slices = slices;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected R compute() {
+            if (to - from <= threshold)
+                return slices.slice(from, to);
+
+            int middle = (from + to) >>> 1;
+            SliceTask<R> left = new SliceTask<R>(slices, from, middle);
+            left.fork();
+            R right = new SliceTask<R>(slices, middle, to).compute();
+            return slices.combine(left.join(), right);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> List<E> asRandomAccessList(Iterable<E> iterable) {
+        if (iterable instanceof EList<?>)
+            iterable = ((EList<E>) iterable).delegate();
+        if (iterable instanceof List<?> && iterable instanceof RandomAccess)
+            return (List<E>) iterable;
+        if (iterable instanceof Range)
+            return (List<E>) ((Range) iterable).asList();
+        if (iterable instanceof LongRange)
+            return (List<E>) ((LongRange) iterable).asList();
+        if (iterable instanceof DoubleRange)
+            return (List<E>) ((DoubleRange) iterable).asList();
+
+        List<E> result = new ArrayList<E>();
+        for (E each : iterable)
+            result.add(each);
+        return result;
+    }
+}
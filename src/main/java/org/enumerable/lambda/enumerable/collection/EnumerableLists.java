@@ -0,0 +1,175 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static org.enumerable.lambda.Fn0.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.enumerable.lambda.Fn0;
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.enumerable.Enumerable;
+
+/**
+ * The loops behind the most used methods of {@link EnumerableModule}, for
+ * lists supporting {@link RandomAccess}, which are walked by index without
+ * creating an {@link java.util.Iterator}.
+ * <p>
+ * Both the decorators and the static methods in {@link Enumerable} use these
+ * when the collection is such a list, the latter without wrapping it in a
+ * decorator first, so the two paths behave the same.
+ */
+public class EnumerableLists {
+    /**
+     * Returns true if collection is a plain list supporting random access,
+     * which isn't already an {@link EnumerableModule} that may override the
+     * methods. Lists from java.util.concurrent, like
+     * {@link java.util.concurrent.CopyOnWriteArrayList}, are excluded, as
+     * other threads may change their size while they are walked by index.
+     */
+    public static boolean isRandomAccessList(Iterable<?> collection) {
+        return collection instanceof RandomAccess && collection instanceof List<?>
+                && !(collection instanceof EnumerableModule<?>) && !isConcurrent(collection);
+    }
+
+    static boolean isConcurrent(Object list) {
+        return list.getClass().getName().startsWith("java.util.concurrent.");
+    }
+
+    /**
+     * Throws {@link ConcurrentModificationException} if a block changed the
+     * size of the list being walked, like its iterator would.
+     */
+    static void checkSize(List<?> list, int size) {
+        if (list.size() != size)
+            throw new ConcurrentModificationException();
+    }
+
+    public static <E> boolean all(List<E> list, Fn1<? super E, ?> block) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (isFalseOrNull(block.call(list.get(i))))
+                return false;
+            checkSize(list, size);
+        }
+        return true;
+    }
+
+    public static <E> boolean any(List<E> list, Fn1<? super E, ?> block) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (isNotFalseOrNull(block.call(list.get(i))))
+                return true;
+            checkSize(list, size);
+        }
+        return false;
+    }
+
+    public static <E, R> EList<R> collect(List<E> list, Fn1<? super E, ? extends R> block) {
+        int size = list.size();
+        EList<R> result = new EList<R>(new ArrayList<R>(size));
+        for (int i = 0; i < size; i++) {
+            result.add(block.call(list.get(i)));
+            checkSize(list, size);
+        }
+        return result;
+    }
+
+    public static <E> int count(List<E> list, Fn1<? super E, Boolean> block) {
+        int count = 0;
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (isNotFalseOrNull(block.call(list.get(i))))
+                count++;
+            checkSize(list, size);
+        }
+        return count;
+    }
+
+    public static <E> E detect(List<E> list, Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            E each = list.get(i);
+            if (isNotFalseOrNull(block.call(each)))
+                return each;
+            checkSize(list, size);
+        }
+        return ifNone == null ? null : ifNone.call();
+    }
+
+    public static <E> EList<E> findAll(List<E> list, Fn1<? super E, Boolean> block) {
+        return filter(list, block, true);
+    }
+
+    public static <E> int findIndex(List<E> list, Fn1<? super E, Boolean> block) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (isNotFalseOrNull(block.call(list.get(i))))
+                return i;
+            checkSize(list, size);
+        }
+        return -1;
+    }
+
+    public static <E> boolean include(List<E> list, Object obj) {
+        if (obj == null) {
+            for (int i = 0, size = list.size(); i < size; i++)
+                if (list.get(i) == null)
+                    return true;
+        } else {
+            for (int i = 0, size = list.size(); i < size; i++)
+                if (obj.equals(list.get(i)))
+                    return true;
+        }
+        return false;
+    }
+
+    public static <E> E inject(List<E> list, Fn2<? super E, ? super E, ? extends E> block) {
+        int size = list.size();
+        if (size == 0)
+            return null;
+        E initial = list.get(0);
+        for (int i = 1; i < size; i++) {
+            initial = block.call(initial, list.get(i));
+            checkSize(list, size);
+        }
+        return initial;
+    }
+
+    public static <E, R> R inject(List<E> list, R initial, Fn2<? super R, ? super E, ? extends R> block) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            initial = block.call(initial, list.get(i));
+            checkSize(list, size);
+        }
+        return initial;
+    }
+
+    public static <E> EList<EList<E>> partition(List<E> list, Fn1<? super E, Boolean> block) {
+        EList<E> selected = new EList<E>();
+        EList<E> rejected = new EList<E>();
+        for (int i = 0, size = list.size(); i < size; i++) {
+            E each = list.get(i);
+            if (isNotFalseOrNull(block.call(each)))
+                selected.add(each);
+            else
+                rejected.add(each);
+            checkSize(list, size);
+        }
+        EList<EList<E>> result = new EList<EList<E>>();
+        result.add(selected);
+        result.add(rejected);
+        return result;
+    }
+
+    public static <E> EList<E> reject(List<E> list, Fn1<? super E, Boolean> block) {
+        return filter(list, block, false);
+    }
+
+    static <E> EList<E> filter(List<E> list, Fn1<? super E, Boolean> block, boolean keep) {
+        EList<E> result = new EList<E>();
+        for (int i = 0, size = list.size(); i < size; i++) {
+            E each = list.get(i);
+            if (isNotFalseOrNull(block.call(each)) == keep)
+                result.add(each);
+            checkSize(list, size);
+        }
+        return result;
+    }
+}
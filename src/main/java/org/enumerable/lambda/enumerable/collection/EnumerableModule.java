@@ -3,16 +3,19 @@ package org.enumerable.lambda.enumerable.collection;
 import static java.util.Collections.*;
 import static org.enumerable.lambda.Fn0.*;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -60,6 +63,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public boolean all(Fn1<? super E, ?> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.all(list, block);
         for (E each : this)
             if (isFalseOrNull(block.call(each)))
                 return false;
@@ -71,6 +77,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public boolean any(Fn1<? super E, ?> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.any(list, block);
         for (E each : this)
             if (isNotFalseOrNull(block.call(each)))
                 return true;
@@ -82,6 +91,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R> EList<R> collect(Fn1<? super E, ? extends R> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.collect(list, block);
         EList<R> result = new EList<R>();
         for (E each : this)
             result.add(block.call(each));
@@ -119,7 +131,14 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     public int count(Fn1<? super E, Boolean> block) {
         if (block == null)
             return count((E) block);
-        return select(block).size();
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.count(list, block);
+        int count = 0;
+        for (E each : this)
+            if (isNotFalseOrNull(block.call(each)))
+                count++;
+        return count;
     }
 
     public <R> EList<E> cycle(Fn1<? super E, R> block) {
@@ -128,18 +147,27 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
                 block.call(each);
     }
 
+    @SuppressWarnings("unchecked")
     public <R> EList<E> cycle(int times, Fn1<? super E, R> block) {
         if (times <= 0)
             return null;
-        EList<E> list = new EList<E>();
-        for (E each : this) {
-            block.call(each);
-            list.add(each);
+        Object[] elements;
+        int cycles = 0;
+        if (this instanceof Collection<?>) {
+            elements = ((Collection<?>) this).toArray();
+        } else {
+            List<E> list = new ArrayList<E>();
+            for (E each : this) {
+                block.call(each);
+                list.add(each);
+            }
+            elements = list.toArray();
+            cycles++;
         }
-        EList<E> result = new EList<E>();
-        while (times-- > 0)
-            result.addAll(list);
-        return result;
+        for (; cycles < times; cycles++)
+            for (int i = 0; i < elements.length; i++)
+                block.call((E) elements[i]);
+        return new EList<E>(new CycleList<E>(elements, times));
     }
 
     public E detect(Fn1<? super E, Boolean> block) {
@@ -147,6 +175,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public E detect(Fn0<E> ifNone, Fn1<? super E, Boolean> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.detect(list, ifNone, block);
         for (E each : this)
             if (isNotFalseOrNull(block.call(each)))
                 return each;
@@ -178,16 +209,10 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R> Object eachCons(int n, Fn1<List<E>, R> block) {
-        if (n <= 0)
-            throw new IllegalArgumentException("invalid size");
-        List<E> list = new ArrayList<E>();
-        for (E each : this) {
-            list.add(each);
-            if (list.size() == n) {
-                block.call(list);
-                list = new ArrayList<E>(list.subList(1, list.size()));
-            }
-        }
+        ConsBuffer<E> buffer = new ConsBuffer<E>(n);
+        for (E each : this)
+            if (buffer.add(each))
+                block.call(buffer.window());
         return null;
     }
 
@@ -233,6 +258,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public EList<E> findAll(Fn1<? super E, Boolean> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.findAll(list, block);
         EList<E> result = new EList<E>();
         for (E each : this)
             if (isNotFalseOrNull(block.call(each)))
@@ -244,6 +272,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     public int findIndex(Fn1<? super E, Boolean> block) {
         if (block == null)
             return findIndex((E) block);
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.findIndex(list, block);
         int index = 0;
         for (E each : this)
             if (isNotFalseOrNull(block.call(each)))
@@ -267,6 +298,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public E first() {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return list.isEmpty() ? null : list.get(0);
         for (E each : this)
             return each;
         return null;
@@ -308,6 +342,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public boolean include(Object obj) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.include(list, obj);
         if (obj == null) {
             for (E each : this)
                 if (each == null)
@@ -321,6 +358,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public E inject(Fn2<? super E, ? super E, ? extends E> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.inject(list, block);
         Iterator<E> i = this.iterator();
         if (!i.hasNext())
             return null;
@@ -331,11 +371,18 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R> R inject(R initial, Fn2<? super R, ? super E, ? extends R> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.inject(list, initial, block);
         for (E each : this)
             initial = block.call(initial, each);
         return initial;
     }
 
+    public ELazy<E> lazy() {
+        return new ELazy<E>(this);
+    }
+
     public <R> EList<R> map(Fn1<? super E, ? extends R> block) {
         return collect(block);
     }
@@ -354,7 +401,26 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R extends Object & Comparable<? super R>> E maxBy(Fn1<? super E, R> block) {
-        return minInternal(reverseOrder(new BlockResultComparator<E, R>(block)));
+        Comparator<R> reverseOrder = reverseOrder();
+        return minByInternal(block, reverseOrder);
+    }
+
+    public <R extends Object & Comparable<? super R>> EList<E> maxByN(int n, Fn1<? super E, R> block) {
+        Comparator<R> reverseOrder = reverseOrder();
+        return minByNInternal(n, block, reverseOrder);
+    }
+
+    public EList<E> maxN(int n) {
+        Comparator<E> reverseOrder = reverseOrder();
+        return minNInternal(n, reverseOrder);
+    }
+
+    public EList<E> maxN(int n, final Fn2<? super E, ? super E, Integer> block) {
+        return minNInternal(n, reverseOrder(new Comparator<E>() {
+            public int compare(E o1, E o2) {
+                return ((Number) block.call(o1, o2)).intValue();
+            }
+        }));
     }
 
     public boolean member(Object obj) {
@@ -375,7 +441,26 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R extends Object & Comparable<? super R>> E minBy(Fn1<? super E, R> block) {
-        return minInternal(new BlockResultComparator<E, R>(block));
+        Comparator<R> naturalOrder = naturalOrder();
+        return minByInternal(block, naturalOrder);
+    }
+
+    public <R extends Object & Comparable<? super R>> EList<E> minByN(int n, Fn1<? super E, R> block) {
+        Comparator<R> naturalOrder = naturalOrder();
+        return minByNInternal(n, block, naturalOrder);
+    }
+
+    public EList<E> minN(int n) {
+        Comparator<E> naturalOrder = naturalOrder();
+        return minNInternal(n, naturalOrder);
+    }
+
+    public EList<E> minN(int n, final Fn2<? super E, ? super E, Integer> block) {
+        return minNInternal(n, new Comparator<E>() {
+            public int compare(E o1, E o2) {
+                return ((Number) block.call(o1, o2)).intValue();
+            }
+        });
     }
 
     public EList<E> minMax() {
@@ -393,9 +478,24 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R extends Object & Comparable<? super R>> EList<E> minMaxBy(Fn1<? super E, R> block) {
+        E min = null, max = null;
+        R minKey = null, maxKey = null;
+        boolean first = true;
+        for (E each : this) {
+            R key = block.call(each);
+            if (first || key.compareTo(minKey) < 0) {
+                min = each;
+                minKey = key;
+            }
+            if (first || key.compareTo(maxKey) > 0) {
+                max = each;
+                maxKey = key;
+            }
+            first = false;
+        }
         EList<E> result = new EList<E>();
-        result.add(minBy(block));
-        result.add(maxBy(block));
+        result.add(min);
+        result.add(max);
         return result;
     }
 
@@ -424,7 +524,14 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
         return one(Fn1.identity());
     }
 
+    public EParallel<E> parallel() {
+        return new EParallel<E>(this);
+    }
+
     public EList<EList<E>> partition(Fn1<? super E, Boolean> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.partition(list, block);
         EList<E> selected = new EList<E>();
         EList<E> rejected = new EList<E>();
         for (E each : this)
@@ -447,6 +554,9 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public EList<E> reject(Fn1<? super E, Boolean> block) {
+        List<E> list = randomAccessList();
+        if (list != null)
+            return EnumerableLists.reject(list, block);
         EList<E> result = new EList<E>();
         for (E each : this)
             if (isFalseOrNull(block.call(each)))
@@ -454,10 +564,23 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
         return result;
     }
 
+    @SuppressWarnings("unchecked")
     public <R> EnumerableModule<E> reverseEach(Fn1<? super E, R> block) {
-        List<E> result = asNewList();
-        Collections.reverse(result);
-        new EList<E>(result).each(block);
+        List<E> list = randomAccessList();
+        if (list != null) {
+            for (int size = list.size(), i = size - 1; i >= 0; i--) {
+                block.call(list.get(i));
+                EnumerableLists.checkSize(list, size);
+            }
+        } else if (this instanceof List<?>) {
+            List<E> thisList = (List<E>) this;
+            for (ListIterator<E> i = thisList.listIterator(thisList.size()); i.hasPrevious();)
+                block.call(i.previous());
+        } else {
+            Object[] elements = asArray();
+            for (int i = elements.length - 1; i >= 0; i--)
+                block.call((E) elements[i]);
+        }
         return this;
     }
 
@@ -478,12 +601,20 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     public <R extends Object & Comparable<? super R>> EList<E> sortBy(final Fn1<? super E, R> block) {
-        return sortBySchwartzianTransform(block);
+        return sortByKeys(block);
     }
 
     public EList<E> take(int n) {
         if (n < 0)
             throw new IllegalArgumentException("attempt to take negative size");
+        List<E> list = randomAccessList();
+        if (list != null) {
+            int size = Math.min(n, list.size());
+            EList<E> result = new EList<E>(new ArrayList<E>(size));
+            for (int i = 0; i < size; i++)
+                result.add(list.get(i));
+            return result;
+        }
         EList<E> result = new EList<E>();
         for (Iterator<E> i = iterator(); n != 0 && i.hasNext(); n--)
             result.add(i.next());
@@ -554,6 +685,28 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
         return result;
     }
 
+    Object[] asArray() {
+        if (this instanceof Collection<?>)
+            return ((Collection<?>) this).toArray();
+        return asNewList().toArray();
+    }
+
+    /**
+     * Returns the list this decorates if it supports fast random access, so it
+     * can be walked by index without creating an iterator, otherwise null.
+     * Concurrent lists are walked by their iterators, see
+     * {@link EnumerableLists#isRandomAccessList(Iterable)}.
+     */
+    @SuppressWarnings("unchecked")
+    List<E> randomAccessList() {
+        Object list = this;
+        while (list instanceof EList<?>)
+            list = ((EList<?>) list).delegate();
+        if (list instanceof RandomAccess && list instanceof List<?> && !EnumerableLists.isConcurrent(list))
+            return (List<E>) list;
+        return null;
+    }
+
     E minInternal(Comparator<? super E> comparator) {
         E result = null;
         for (E each : this)
@@ -562,38 +715,109 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
         return result;
     }
 
+    EList<E> minNInternal(int n, Comparator<? super E> comparator) {
+        BoundedHeap<E, E> heap = new BoundedHeap<E, E>(n, comparator);
+        for (E each : this)
+            heap.offer(each, each);
+        return heap.toSortedList();
+    }
+
+    <R> EList<E> minByNInternal(int n, Fn1<? super E, R> block, Comparator<? super R> comparator) {
+        BoundedHeap<R, E> heap = new BoundedHeap<R, E>(n, comparator);
+        for (E each : this)
+            heap.offer(block.call(each), each);
+        return heap.toSortedList();
+    }
+
     EList<E> sortInternal(Comparator<? super E> comparator) {
         List<E> result = asNewList();
         Collections.sort(result, comparator);
         return new EList<E>(result);
     }
 
-    class Pair<R extends Object & Comparable<? super R>> implements Comparable<Pair<R>> {
-        R key;
-        E value;
+    <R> E minByInternal(Fn1<? super E, R> block, Comparator<? super R> comparator) {
+        E result = null;
+        R resultKey = null;
+        boolean first = true;
+        for (E each : this) {
+            R key = block.call(each);
+            if (first || comparator.compare(key, resultKey) < 0) {
+                result = each;
+                resultKey = key;
+                first = false;
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    <R extends Object & Comparable<? super R>> EList<E> sortByKeys(Fn1<? super E, R> block) {
+        Object[] elements = asArray();
+        Object[] keys = new Object[elements.length];
+        for (int i = 0; i < elements.length; i++)
+            keys[i] = block.call((E) elements[i]);
+        KeySort.sort(keys, elements, NATURAL_ORDER);
+
+        EList<E> result = new EList<E>(new ArrayList<E>(elements.length));
+        for (Object each : elements)
+            result.add((E) each);
+        return result;
+    }
 
-        Pair(R key, E value) {
-            this.key = key;
-            this.value = value;
+    /**
+     * A list repeating a single copy of the elements times times, returned by
+     * {@link EnumerableModule#cycle(int, Fn1)} instead of copying them for
+     * each repeat. The repeats are only copied into a list of their own the
+     * first time it is modified.
+     */
+    static class CycleList<E> extends AbstractList<E> implements RandomAccess {
+        final Object[] elements;
+        final int times;
+        List<E> modified;
+
+        CycleList(Object[] elements, int times) {
+            this.elements = elements;
+            this.times = times;
         }
 
-        public int compareTo(Pair<R> o) {
-            return key.compareTo(o.key);
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (modified != null)
+                return modified.get(index);
+            if (index < 0 || index >= size())
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            return (E) elements[index % elements.length];
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    <R extends Object & Comparable<? super R>> EList<E> sortBySchwartzianTransform(Fn1<? super E, R> block) {
-        EList<Pair<R>> pairs = new EList<Pair<R>>();
-        for (E each : this)
-            pairs.add(new Pair<R>(block.call(each), each));
-        Collections.sort(pairs);
+        public int size() {
+            if (modified != null)
+                return modified.size();
+            return (int) Math.min(Integer.MAX_VALUE, (long) elements.length * times);
+        }
 
-        EList<E> result = (EList<E>) pairs;
-        for (int i = 0; i < pairs.size(); i++)
-            result.set(i, pairs.get(i).value);
+        public E set(int index, E element) {
+            return modify().set(index, element);
+        }
 
-        return result;
+        public void add(int index, E element) {
+            modCount++;
+            modify().add(index, element);
+        }
+
+        public E remove(int index) {
+            modCount++;
+            return modify().remove(index);
+        }
+
+        List<E> modify() {
+            if (modified == null) {
+                List<E> list = new ArrayList<E>(size());
+                for (int i = 0, size = size(); i < size; i++)
+                    list.add(get(i));
+                modified = list;
+            }
+            return modified;
+        }
     }
 
     static class BlockResultComparator<E, R extends Object & Comparable<? super R>> implements Comparator<E> {
@@ -609,7 +833,7 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     static class CachedBlockResultComparator<E, R extends Object & Comparable<? super R>> implements Comparator<E> {
-        Map<E, R> cache = new HashMap<E, R>();
+        Map<E, R> cache = new IdentityHashMap<E, R>();
         Fn1<? super E, R> block;
 
         CachedBlockResultComparator(Fn1<? super E, R> block) {
@@ -636,7 +860,7 @@ public abstract class EnumerableModule<E> implements IEnumerable<E> {
     }
 
     @SuppressWarnings("unchecked")
-    Comparator<E> naturalOrder() {
-        return (Comparator<E>) NATURAL_ORDER;
+    static <T> Comparator<T> naturalOrder() {
+        return (Comparator<T>) (Comparator<?>) NATURAL_ORDER;
     }
 }
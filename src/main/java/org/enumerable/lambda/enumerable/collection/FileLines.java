@@ -0,0 +1,179 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static org.enumerable.lambda.exception.UncheckedException.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The lines of a file, read lazily through a memory mapped
+ * {@link FileChannel}, which is mapped and decoded one window of bufferSize
+ * bytes at a time. Lines are terminated like in
+ * {@link java.io.BufferedReader#readLine()}, by \n, \r or \r\n.
+ * <p>
+ * Each iterator opens the file, and is {@link Closeable}. It closes the file
+ * itself when it reaches the end of it or reading fails, otherwise it must be
+ * closed by whoever stops iterating early, which the terminal operations of
+ * {@link ELazy} do. If reuseLine is true, the iterator returns the same
+ * {@link StringBuilder} for each line, so the lines must not be kept after the
+ * next call to {@link Iterator#next()}.
+ */
+class FileLines<E extends CharSequence> implements Iterable<E> {
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    static final int MIN_BUFFER_SIZE = 64;
+
+    final File file;
+    final Charset charset;
+    final int bufferSize;
+    final boolean reuseLine;
+
+    FileLines(File file, Charset charset, int bufferSize, boolean reuseLine) {
+        if (bufferSize < MIN_BUFFER_SIZE)
+            throw new IllegalArgumentException("buffer size must be at least " + MIN_BUFFER_SIZE);
+        this.file = file;
+        this.charset = charset;
+        this.bufferSize = bufferSize;
+        this.reuseLine = reuseLine;
+    }
+
+    public Iterator<E> iterator() {
+        try {
+            return new LineIterator();
+        } catch (IOException e) {
+            throw uncheck(e);
+        }
+    }
+
+    class LineIterator implements Iterator<E>, Closeable {
+        final RandomAccessFile in;
+        final FileChannel channel;
+        final long size;
+        final CharsetDecoder decoder;
+        final CharBuffer chars;
+        final StringBuilder line = new StringBuilder();
+
+        ByteBuffer bytes;
+        long position;
+        boolean skipLF;
+        boolean flushed;
+        boolean hasNext;
+        boolean done;
+
+        LineIterator() throws IOException {
+            in = new RandomAccessFile(file, "r");
+            channel = in.getChannel();
+            size = channel.size();
+            decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(
+                    CodingErrorAction.REPLACE);
+            chars = CharBuffer.allocate(bufferSize);
+            chars.flip();
+        }
+
+        public boolean hasNext() {
+            if (!hasNext && !done) {
+                try {
+                    hasNext = readLine();
+                } catch (IOException e) {
+                    close();
+                    throw uncheck(e);
+                }
+                done = !hasNext;
+                if (done)
+                    close();
+            }
+            return hasNext;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            hasNext = false;
+            return (E) (reuseLine ? line : line.toString());
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        boolean readLine() throws IOException {
+            line.setLength(0);
+            boolean read = false;
+            while (true) {
+                while (chars.hasRemaining()) {
+                    char c = chars.get();
+                    if (skipLF) {
+                        skipLF = false;
+                        if (c == '\n')
+                            continue;
+                    }
+                    if (c == '\n')
+                        return true;
+                    if (c == '\r') {
+                        skipLF = true;
+                        return true;
+                    }
+                    line.append(c);
+                    read = true;
+                }
+                if (!decode())
+                    return read;
+            }
+        }
+
+        boolean decode() throws CharacterCodingException, IOException {
+            chars.clear();
+            if (bytes == null || !bytes.hasRemaining()) {
+                if (position >= size) {
+                    if (flushed)
+                        return false;
+                    decoder.decode(ByteBuffer.allocate(0), chars, true);
+                    decoder.flush(chars);
+                    flushed = true;
+                    chars.flip();
+                    return chars.hasRemaining();
+                }
+                bytes = channel.map(MapMode.READ_ONLY, position, Math.min(bufferSize, size - position));
+                position += bytes.remaining();
+            }
+
+            boolean endOfInput = position >= size;
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError())
+                result.throwException();
+            if (!endOfInput && result.isUnderflow() && bytes.hasRemaining()) {
+                position -= bytes.remaining();
+                bytes = null;
+            }
+            chars.flip();
+            return true;
+        }
+
+        /**
+         * Closes the file. The current mapping is dropped, so it can be
+         * unmapped once it is garbage collected.
+         */
+        public void close() {
+            done = true;
+            hasNext = false;
+            bytes = null;
+            try {
+                in.close();
+            } catch (IOException silent) {
+            }
+        }
+    }
+}
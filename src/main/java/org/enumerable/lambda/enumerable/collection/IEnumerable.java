@@ -72,6 +72,11 @@ public interface IEnumerable<E> extends Iterable<E> {
      * Returns null if collection has no elements; otherwise, passes the
      * elements, one at a time to the block. When it reaches the end, it
      * repeats. The number of times it repeats is set by the parameter.
+     * <p>
+     * The collection is iterated at most once, and the result is a list
+     * repeating a single copy of its elements, so it is not affected by later
+     * changes to the collection. The elements are only copied for each repeat
+     * if the result itself is modified.
      */
     <R> Object cycle(int times, Fn1<? super E, R> block);
 
@@ -105,7 +110,9 @@ public interface IEnumerable<E> extends Iterable<E> {
     <R> IEnumerable<E> each(Fn1<? super E, R> block);
 
     /**
-     * Iterates the given block for each list of consecutive n elements.
+     * Iterates the given block for each list of consecutive n elements. The
+     * lists are read-only views sharing storage, so the whole iteration runs
+     * in linear time regardless of n.
      */
     <R> Object eachCons(int n, Fn1<List<E>, R> block);
 
@@ -215,6 +222,14 @@ public interface IEnumerable<E> extends Iterable<E> {
      */
     <R> R inject(R initial, Fn2<? super R, ? super E, ? extends R> block);
 
+    /**
+     * Returns a lazy view of collection, where select, collect, take and the
+     * other operations returning lists are chained without building any
+     * intermediate lists. The blocks are run in a single pass when a terminal
+     * operation like toList, inject or count is called.
+     */
+    ELazy<E> lazy();
+
     /**
      * @see #collect(Fn1)
      */
@@ -233,11 +248,30 @@ public interface IEnumerable<E> extends Iterable<E> {
     E max(Fn2<? super E, ? super E, Integer> block);
 
     /**
-     * Passes each item in the collection to the block. Returns the item
+     * Passes each item in the collection to the block once. Returns the item
      * corresponding to the largest value returned by the block.
      */
     <R extends Object & Comparable<? super R>> E maxBy(Fn1<? super E, R> block);
 
+    /**
+     * Passes each item in the collection to the block once. Returns the n
+     * items corresponding to the largest values returned by the block, largest
+     * first.
+     */
+    <R extends Object & Comparable<? super R>> EList<E> maxByN(int n, Fn1<? super E, R> block);
+
+    /**
+     * Returns the n objects in collection with the maximum values, largest
+     * first. This form assumes all objects implement {@link Comparable}.
+     */
+    EList<E> maxN(int n);
+
+    /**
+     * Returns the n objects in collection with the maximum values, largest
+     * first. This form uses the block to {@link Comparator#compare}.
+     */
+    EList<E> maxN(int n, Fn2<? super E, ? super E, Integer> block);
+
     /**
      * Returns true if any member of collection equals obj. Equality is tested
      * using {@link Object#equals(Object)}.
@@ -257,11 +291,30 @@ public interface IEnumerable<E> extends Iterable<E> {
     E min(Fn2<? super E, ? super E, Integer> block);
 
     /**
-     * Passes each item in the collection to the block. Returns the item
+     * Passes each item in the collection to the block once. Returns the item
      * corresponding to the smallest value returned by the block.
      */
     <R extends Object & Comparable<? super R>> E minBy(Fn1<? super E, R> block);
 
+    /**
+     * Passes each item in the collection to the block once. Returns the n
+     * items corresponding to the smallest values returned by the block,
+     * smallest first.
+     */
+    <R extends Object & Comparable<? super R>> EList<E> minByN(int n, Fn1<? super E, R> block);
+
+    /**
+     * Returns the n objects in collection with the minimum values, smallest
+     * first. This form assumes all objects implement {@link Comparable}.
+     */
+    EList<E> minN(int n);
+
+    /**
+     * Returns the n objects in collection with the minimum values, smallest
+     * first. This form uses the block to {@link Comparator#compare}.
+     */
+    EList<E> minN(int n, Fn2<? super E, ? super E, Integer> block);
+
     /**
      * Compares the elements of self using {@link Comparable}, returning the
      * minimum and maximum value.
@@ -275,7 +328,7 @@ public interface IEnumerable<E> extends Iterable<E> {
     EList<E> minMax(Fn2<? super E, ? super E, Integer> block);
 
     /**
-     * Passes each item in the collection to the block. Returns the items
+     * Passes each item in the collection to the block once. Returns the items
      * corresponding to the smallest and largest values returned by the block.
      */
     <R extends Object & Comparable<? super R>> EList<E> minMaxBy(Fn1<? super E, R> block);
@@ -306,6 +359,13 @@ public interface IEnumerable<E> extends Iterable<E> {
      */
     boolean one();
 
+    /**
+     * Returns a parallel view of collection, which splits it into slices and
+     * runs collect, select and inject on them using fork/join. Requires
+     * jsr166y.
+     */
+    EParallel<E> parallel();
+
     /**
      * Returns two lists, the first containing the elements of collection for
      * which the block evaluates to true, the second containing the rest.
@@ -356,9 +416,10 @@ public interface IEnumerable<E> extends Iterable<E> {
      * Sorts collection using a set of keys generated by mapping the values in
      * collection through the given block.
      * <p>
-     * The current implementation of sortBy generates an array of tuples
-     * containing the original collection element and the mapped value. This
-     * makes sortBy fairly expensive when the keysets are simple
+     * The current implementation of sortBy calls the block once for each
+     * element, and sorts an array of the mapped values together with a
+     * parallel array of the original collection elements. This makes sortBy
+     * fairly expensive when the keysets are simple
      * <p>
      * However, consider the case where comparing the keys is a non-trivial
      * operation. The following code sorts some files on modification time.
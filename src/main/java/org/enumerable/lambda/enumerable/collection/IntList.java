@@ -0,0 +1,390 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.lang.System.*;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.enumerable.lambda.Fn0;
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.primitives.Fn1ItoB;
+import org.enumerable.lambda.primitives.Fn1ItoD;
+import org.enumerable.lambda.primitives.Fn1ItoI;
+import org.enumerable.lambda.primitives.Fn1ItoL;
+import org.enumerable.lambda.primitives.Fn1ItoO;
+import org.enumerable.lambda.primitives.Fn2IItoI;
+
+
+/**
+ * A growable list of ints backed by an int array, which includes the
+ * {@link EnumerableModule} via {@link EList}.
+ * <p>
+ * The methods taking primitive blocks, like {@link #collect(Fn1ItoI)},
+ * {@link #select(Fn1ItoB)} and {@link #inject(int, Fn2IItoI)}, work directly
+ * on the array and return new primitive lists, without boxing the elements.
+ * Everything else, including the {@link List} interface, sees the elements as
+ * {@link Integer}s.
+ */
+public class IntList extends EList<Integer> {
+    final IntArrayList list;
+
+    public IntList() {
+        this(10);
+    }
+
+    public IntList(int capacity) {
+        this(new IntArrayList(new int[capacity], 0));
+    }
+
+    /**
+     * Creates a list using array as its backing storage, without copying it.
+     */
+    public IntList(int[] array) {
+        this(new IntArrayList(array, array.length));
+    }
+
+    IntList(IntArrayList list) {
+        super(list);
+        this.list = list;
+    }
+
+    public boolean all(Fn1ItoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (!block.call(list.elements[i]))
+                return false;
+        return true;
+    }
+
+    public boolean any(Fn1ItoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                return true;
+        return false;
+    }
+
+    public IntList collect(Fn1ItoI block) {
+        int[] result = new int[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new IntList(result);
+    }
+
+    public LongList collect(Fn1ItoL block) {
+        long[] result = new long[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new LongList(result);
+    }
+
+    public DoubleList collect(Fn1ItoD block) {
+        double[] result = new double[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new DoubleList(result);
+    }
+
+    public int count(Fn1ItoB block) {
+        int count = 0;
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the first element for which block is true, or ifNone.
+     */
+    public int detect(int ifNone, Fn1ItoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                return list.elements[i];
+        return ifNone;
+    }
+
+    public <R> IntList each(Fn1ItoO<R> block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public IntList each(Fn1ItoB block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public IntList each(Fn1ItoD block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public IntList each(Fn1ItoI block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public IntList each(Fn1ItoL block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    /**
+     * @see #detect(int, Fn1ItoB)
+     */
+    public int find(int ifNone, Fn1ItoB block) {
+        return detect(ifNone, block);
+    }
+
+    /**
+     * @see #select(Fn1ItoB)
+     */
+    public IntList findAll(Fn1ItoB block) {
+        return select(block);
+    }
+
+    /**
+     * Combines the elements by applying the block to an accumulator value
+     * (memo) and each element in turn, using the first element as the initial
+     * value. Returns 0 if the list is empty.
+     */
+    public int inject(Fn2IItoI block) {
+        if (list.size == 0)
+            return 0;
+        int memo = list.elements[0];
+        for (int i = 1; i < list.size; i++)
+            memo = block.call(memo, list.elements[i]);
+        return memo;
+    }
+
+    public int inject(int initial, Fn2IItoI block) {
+        for (int i = 0; i < list.size; i++)
+            initial = block.call(initial, list.elements[i]);
+        return initial;
+    }
+
+    /**
+     * @see #collect(Fn1ItoI)
+     */
+    public IntList map(Fn1ItoI block) {
+        return collect(block);
+    }
+
+    /**
+     * @see #collect(Fn1ItoL)
+     */
+    public LongList map(Fn1ItoL block) {
+        return collect(block);
+    }
+
+    /**
+     * @see #collect(Fn1ItoD)
+     */
+    public DoubleList map(Fn1ItoD block) {
+        return collect(block);
+    }
+
+    public IntList reject(Fn1ItoB block) {
+        return filter(block, false);
+    }
+
+    public IntList select(Fn1ItoB block) {
+        return filter(block, true);
+    }
+
+    /**
+     * Returns a new sorted list, using the natural ordering of the elements.
+     */
+    public IntList sort() {
+        int[] result = toIntArray();
+        Arrays.sort(result);
+        return new IntList(result);
+    }
+
+    /**
+     * Returns a copy of this list.
+     */
+    public IntList toList() {
+        return new IntList(toIntArray());
+    }
+
+    /**
+     * Returns a new array containing the elements.
+     */
+    public int[] toIntArray() {
+        return copyOf(list.elements, list.size);
+    }
+
+    public int getInt(int index) {
+        list.rangeCheck(index);
+        return list.elements[index];
+    }
+
+    public int setInt(int index, int element) {
+        list.rangeCheck(index);
+        int old = list.elements[index];
+        list.elements[index] = element;
+        return old;
+    }
+
+    public boolean addInt(int element) {
+        list.ensureCapacity(list.size + 1);
+        list.elements[list.size++] = element;
+        list.modified();
+        return true;
+    }
+
+    /**
+     * Uses the primitive versions of collect when block is a primitive
+     * lambda, which the weaver creates for plain blocks with primitive
+     * parameters and bodies, like λ(n, n * 2).
+     */
+    @SuppressWarnings("unchecked")
+    public <R> EList<R> collect(Fn1<? super Integer, ? extends R> block) {
+        if (block instanceof Fn1ItoI)
+            return (EList<R>) (EList<?>) collect((Fn1ItoI) block);
+        if (block instanceof Fn1ItoL)
+            return (EList<R>) (EList<?>) collect((Fn1ItoL) block);
+        if (block instanceof Fn1ItoD)
+            return (EList<R>) (EList<?>) collect((Fn1ItoD) block);
+        return super.collect(block);
+    }
+
+    public boolean all(Fn1<? super Integer, ?> block) {
+        if (block instanceof Fn1ItoB)
+            return all((Fn1ItoB) block);
+        return super.all(block);
+    }
+
+    public boolean any(Fn1<? super Integer, ?> block) {
+        if (block instanceof Fn1ItoB)
+            return any((Fn1ItoB) block);
+        return super.any(block);
+    }
+
+    public int count(Fn1<? super Integer, Boolean> block) {
+        if (block instanceof Fn1ItoB)
+            return count((Fn1ItoB) block);
+        return super.count(block);
+    }
+
+    public Integer detect(Fn0<Integer> ifNone, Fn1<? super Integer, Boolean> block) {
+        if (block instanceof Fn1ItoB) {
+            Fn1ItoB primitiveBlock = (Fn1ItoB) block;
+            for (int i = 0; i < list.size; i++)
+                if (primitiveBlock.call(list.elements[i]))
+                    return list.elements[i];
+            return ifNone == null ? null : ifNone.call();
+        }
+        return super.detect(ifNone, block);
+    }
+
+    public EList<Integer> findAll(Fn1<? super Integer, Boolean> block) {
+        if (block instanceof Fn1ItoB)
+            return filter((Fn1ItoB) block, true);
+        return super.findAll(block);
+    }
+
+    public EList<Integer> reject(Fn1<? super Integer, Boolean> block) {
+        if (block instanceof Fn1ItoB)
+            return filter((Fn1ItoB) block, false);
+        return super.reject(block);
+    }
+
+    public Integer inject(Fn2<? super Integer, ? super Integer, ? extends Integer> block) {
+        if (block instanceof Fn2IItoI && list.size > 0)
+            return inject((Fn2IItoI) block);
+        return super.inject(block);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R inject(R initial, Fn2<? super R, ? super Integer, ? extends R> block) {
+        if (block instanceof Fn2IItoI && initial instanceof Integer)
+            return (R) (Integer) inject(((Integer) initial).intValue(), (Fn2IItoI) block);
+        return super.inject(initial, block);
+    }
+
+    IntList filter(Fn1ItoB block, boolean keep) {
+        int[] result = new int[list.size];
+        int size = 0;
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]) == keep)
+                result[size++] = list.elements[i];
+        return new IntList(new IntArrayList(result, size));
+    }
+
+    static int[] copyOf(int[] array, int length) {
+        int[] result = new int[length];
+        arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    static class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+        int[] elements;
+        int size;
+
+        IntArrayList(int[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        public Integer get(int index) {
+            rangeCheck(index);
+            return elements[index];
+        }
+
+        public Integer set(int index, Integer element) {
+            rangeCheck(index);
+            int old = elements[index];
+            elements[index] = element;
+            return old;
+        }
+
+        public void add(int index, Integer element) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            ensureCapacity(size + 1);
+            arraycopy(elements, index, elements, index + 1, size - index);
+            elements[index] = element;
+            size++;
+            modified();
+        }
+
+        public Integer remove(int index) {
+            rangeCheck(index);
+            int old = elements[index];
+            arraycopy(elements, index + 1, elements, index, size - index - 1);
+            size--;
+            modified();
+            return old;
+        }
+
+        public void clear() {
+            size = 0;
+            modified();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > elements.length)
+                elements = copyOf(elements, Math.max(capacity, elements.length * 3 / 2 + 1));
+        }
+
+        void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        void modified() {
+            modCount++;
+        }
+    }
+}
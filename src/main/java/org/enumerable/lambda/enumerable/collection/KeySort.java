@@ -0,0 +1,69 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.lang.System.*;
+
+import java.util.Comparator;
+
+/**
+ * A stable merge sort of elements by keys kept in a parallel array, used by
+ * {@link EnumerableModule#sortBy(org.enumerable.lambda.Fn1)} so the block is
+ * called once per element, without allocating a pair for each.
+ */
+class KeySort {
+    static final int INSERTION_SORT_THRESHOLD = 7;
+
+    /**
+     * Sorts keys according to comparator, moving the element at each index
+     * along with its key.
+     */
+    static void sort(Object[] keys, Object[] elements, Comparator<?> comparator) {
+        mergeSort(keys.clone(), elements.clone(), keys, elements, 0, keys.length, comparator);
+    }
+
+    /**
+     * Sorts the range from src into dest, which both start out holding the
+     * same keys and elements.
+     */
+    static void mergeSort(Object[] srcKeys, Object[] srcElements, Object[] destKeys, Object[] destElements,
+            int from, int to, Comparator<?> comparator) {
+        if (to - from < INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++)
+                for (int j = i; j > from && compare(comparator, destKeys[j - 1], destKeys[j]) > 0; j--) {
+                    swap(destKeys, j, j - 1);
+                    swap(destElements, j, j - 1);
+                }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(destKeys, destElements, srcKeys, srcElements, from, middle, comparator);
+        mergeSort(destKeys, destElements, srcKeys, srcElements, middle, to, comparator);
+
+        if (compare(comparator, srcKeys[middle - 1], srcKeys[middle]) <= 0) {
+            arraycopy(srcKeys, from, destKeys, from, to - from);
+            arraycopy(srcElements, from, destElements, from, to - from);
+            return;
+        }
+
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || left < middle && compare(comparator, srcKeys[left], srcKeys[right]) <= 0) {
+                destKeys[i] = srcKeys[left];
+                destElements[i] = srcElements[left++];
+            } else {
+                destKeys[i] = srcKeys[right];
+                destElements[i] = srcElements[right++];
+            }
+        }
+    }
+
+    static void swap(Object[] array, int i, int j) {
+        Object tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compare(Comparator<?> comparator, Object a, Object b) {
+        return ((Comparator<Object>) comparator).compare(a, b);
+    }
+}
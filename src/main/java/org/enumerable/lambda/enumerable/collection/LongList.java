@@ -0,0 +1,390 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static java.lang.System.*;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.enumerable.lambda.Fn0;
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.primitives.Fn1LtoB;
+import org.enumerable.lambda.primitives.Fn1LtoD;
+import org.enumerable.lambda.primitives.Fn1LtoI;
+import org.enumerable.lambda.primitives.Fn1LtoL;
+import org.enumerable.lambda.primitives.Fn1LtoO;
+import org.enumerable.lambda.primitives.Fn2LLtoL;
+
+
+/**
+ * A growable list of longs backed by a long array, which includes the
+ * {@link EnumerableModule} via {@link EList}.
+ * <p>
+ * The methods taking primitive blocks, like {@link #collect(Fn1LtoL)},
+ * {@link #select(Fn1LtoB)} and {@link #inject(long, Fn2LLtoL)}, work directly
+ * on the array and return new primitive lists, without boxing the elements.
+ * Everything else, including the {@link List} interface, sees the elements as
+ * {@link Long}s.
+ */
+public class LongList extends EList<Long> {
+    final LongArrayList list;
+
+    public LongList() {
+        this(10);
+    }
+
+    public LongList(int capacity) {
+        this(new LongArrayList(new long[capacity], 0));
+    }
+
+    /**
+     * Creates a list using array as its backing storage, without copying it.
+     */
+    public LongList(long[] array) {
+        this(new LongArrayList(array, array.length));
+    }
+
+    LongList(LongArrayList list) {
+        super(list);
+        this.list = list;
+    }
+
+    public boolean all(Fn1LtoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (!block.call(list.elements[i]))
+                return false;
+        return true;
+    }
+
+    public boolean any(Fn1LtoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                return true;
+        return false;
+    }
+
+    public IntList collect(Fn1LtoI block) {
+        int[] result = new int[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new IntList(result);
+    }
+
+    public LongList collect(Fn1LtoL block) {
+        long[] result = new long[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new LongList(result);
+    }
+
+    public DoubleList collect(Fn1LtoD block) {
+        double[] result = new double[list.size];
+        for (int i = 0; i < list.size; i++)
+            result[i] = block.call(list.elements[i]);
+        return new DoubleList(result);
+    }
+
+    public int count(Fn1LtoB block) {
+        int count = 0;
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the first element for which block is true, or ifNone.
+     */
+    public long detect(long ifNone, Fn1LtoB block) {
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]))
+                return list.elements[i];
+        return ifNone;
+    }
+
+    public <R> LongList each(Fn1LtoO<R> block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public LongList each(Fn1LtoB block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public LongList each(Fn1LtoD block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public LongList each(Fn1LtoI block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    public LongList each(Fn1LtoL block) {
+        for (int i = 0; i < list.size; i++)
+            block.call(list.elements[i]);
+        return this;
+    }
+
+    /**
+     * @see #detect(long, Fn1LtoB)
+     */
+    public long find(long ifNone, Fn1LtoB block) {
+        return detect(ifNone, block);
+    }
+
+    /**
+     * @see #select(Fn1LtoB)
+     */
+    public LongList findAll(Fn1LtoB block) {
+        return select(block);
+    }
+
+    /**
+     * Combines the elements by applying the block to an accumulator value
+     * (memo) and each element in turn, using the first element as the initial
+     * value. Returns 0 if the list is empty.
+     */
+    public long inject(Fn2LLtoL block) {
+        if (list.size == 0)
+            return 0;
+        long memo = list.elements[0];
+        for (int i = 1; i < list.size; i++)
+            memo = block.call(memo, list.elements[i]);
+        return memo;
+    }
+
+    public long inject(long initial, Fn2LLtoL block) {
+        for (int i = 0; i < list.size; i++)
+            initial = block.call(initial, list.elements[i]);
+        return initial;
+    }
+
+    /**
+     * @see #collect(Fn1LtoI)
+     */
+    public IntList map(Fn1LtoI block) {
+        return collect(block);
+    }
+
+    /**
+     * @see #collect(Fn1LtoL)
+     */
+    public LongList map(Fn1LtoL block) {
+        return collect(block);
+    }
+
+    /**
+     * @see #collect(Fn1LtoD)
+     */
+    public DoubleList map(Fn1LtoD block) {
+        return collect(block);
+    }
+
+    public LongList reject(Fn1LtoB block) {
+        return filter(block, false);
+    }
+
+    public LongList select(Fn1LtoB block) {
+        return filter(block, true);
+    }
+
+    /**
+     * Returns a new sorted list, using the natural ordering of the elements.
+     */
+    public LongList sort() {
+        long[] result = toLongArray();
+        Arrays.sort(result);
+        return new LongList(result);
+    }
+
+    /**
+     * Returns a copy of this list.
+     */
+    public LongList toList() {
+        return new LongList(toLongArray());
+    }
+
+    /**
+     * Returns a new array containing the elements.
+     */
+    public long[] toLongArray() {
+        return copyOf(list.elements, list.size);
+    }
+
+    public long getLong(int index) {
+        list.rangeCheck(index);
+        return list.elements[index];
+    }
+
+    public long setLong(int index, long element) {
+        list.rangeCheck(index);
+        long old = list.elements[index];
+        list.elements[index] = element;
+        return old;
+    }
+
+    public boolean addLong(long element) {
+        list.ensureCapacity(list.size + 1);
+        list.elements[list.size++] = element;
+        list.modified();
+        return true;
+    }
+
+    /**
+     * Uses the primitive versions of collect when block is a primitive
+     * lambda, which the weaver creates for plain blocks with primitive
+     * parameters and bodies, like λ(n, n * 2).
+     */
+    @SuppressWarnings("unchecked")
+    public <R> EList<R> collect(Fn1<? super Long, ? extends R> block) {
+        if (block instanceof Fn1LtoI)
+            return (EList<R>) (EList<?>) collect((Fn1LtoI) block);
+        if (block instanceof Fn1LtoL)
+            return (EList<R>) (EList<?>) collect((Fn1LtoL) block);
+        if (block instanceof Fn1LtoD)
+            return (EList<R>) (EList<?>) collect((Fn1LtoD) block);
+        return super.collect(block);
+    }
+
+    public boolean all(Fn1<? super Long, ?> block) {
+        if (block instanceof Fn1LtoB)
+            return all((Fn1LtoB) block);
+        return super.all(block);
+    }
+
+    public boolean any(Fn1<? super Long, ?> block) {
+        if (block instanceof Fn1LtoB)
+            return any((Fn1LtoB) block);
+        return super.any(block);
+    }
+
+    public int count(Fn1<? super Long, Boolean> block) {
+        if (block instanceof Fn1LtoB)
+            return count((Fn1LtoB) block);
+        return super.count(block);
+    }
+
+    public Long detect(Fn0<Long> ifNone, Fn1<? super Long, Boolean> block) {
+        if (block instanceof Fn1LtoB) {
+            Fn1LtoB primitiveBlock = (Fn1LtoB) block;
+            for (int i = 0; i < list.size; i++)
+                if (primitiveBlock.call(list.elements[i]))
+                    return list.elements[i];
+            return ifNone == null ? null : ifNone.call();
+        }
+        return super.detect(ifNone, block);
+    }
+
+    public EList<Long> findAll(Fn1<? super Long, Boolean> block) {
+        if (block instanceof Fn1LtoB)
+            return filter((Fn1LtoB) block, true);
+        return super.findAll(block);
+    }
+
+    public EList<Long> reject(Fn1<? super Long, Boolean> block) {
+        if (block instanceof Fn1LtoB)
+            return filter((Fn1LtoB) block, false);
+        return super.reject(block);
+    }
+
+    public Long inject(Fn2<? super Long, ? super Long, ? extends Long> block) {
+        if (block instanceof Fn2LLtoL && list.size > 0)
+            return inject((Fn2LLtoL) block);
+        return super.inject(block);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R inject(R initial, Fn2<? super R, ? super Long, ? extends R> block) {
+        if (block instanceof Fn2LLtoL && initial instanceof Long)
+            return (R) (Long) inject(((Long) initial).longValue(), (Fn2LLtoL) block);
+        return super.inject(initial, block);
+    }
+
+    LongList filter(Fn1LtoB block, boolean keep) {
+        long[] result = new long[list.size];
+        int size = 0;
+        for (int i = 0; i < list.size; i++)
+            if (block.call(list.elements[i]) == keep)
+                result[size++] = list.elements[i];
+        return new LongList(new LongArrayList(result, size));
+    }
+
+    static long[] copyOf(long[] array, int length) {
+        long[] result = new long[length];
+        arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    static class LongArrayList extends AbstractList<Long> implements RandomAccess {
+        long[] elements;
+        int size;
+
+        LongArrayList(long[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        public Long get(int index) {
+            rangeCheck(index);
+            return elements[index];
+        }
+
+        public Long set(int index, Long element) {
+            rangeCheck(index);
+            long old = elements[index];
+            elements[index] = element;
+            return old;
+        }
+
+        public void add(int index, Long element) {
+            if (index < 0 || index > size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            ensureCapacity(size + 1);
+            arraycopy(elements, index, elements, index + 1, size - index);
+            elements[index] = element;
+            size++;
+            modified();
+        }
+
+        public Long remove(int index) {
+            rangeCheck(index);
+            long old = elements[index];
+            arraycopy(elements, index + 1, elements, index, size - index - 1);
+            size--;
+            modified();
+            return old;
+        }
+
+        public void clear() {
+            size = 0;
+            modified();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > elements.length)
+                elements = copyOf(elements, Math.max(capacity, elements.length * 3 / 2 + 1));
+        }
+
+        void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        void modified() {
+            modCount++;
+        }
+    }
+}
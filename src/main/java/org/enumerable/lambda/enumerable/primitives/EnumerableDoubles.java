@@ -3,10 +3,15 @@ package org.enumerable.lambda.enumerable.primitives;
 import static java.lang.System.*;
 
 import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
 
+import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.enumerable.Enumerable;
+import org.enumerable.lambda.enumerable.collection.DoubleList;
 import org.enumerable.lambda.enumerable.collection.EList;
 import org.enumerable.lambda.enumerable.collection.ESet;
 import org.enumerable.lambda.primitives.Fn1DtoB;
@@ -51,6 +56,45 @@ public class EnumerableDoubles {
         return false;
     }
 
+    /**
+     * Returns the index of the first occurrence of the maximum value in array,
+     * or -1 if array is empty. Values are compared with &gt; rather than a
+     * comparator, so the loop can be compiled to vector instructions.
+     */
+    public static int argmax(double[] array) {
+        if (array.length == 0)
+            return -1;
+        int index = 0;
+        double max = array[0];
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] > max) {
+                max = array[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the minimum value in array,
+     * or -1 if array is empty.
+     * 
+     * @see #argmax(double[])
+     */
+    public static int argmin(double[] array) {
+        if (array.length == 0)
+            return -1;
+        int index = 0;
+        double min = array[0];
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] < min) {
+                min = array[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
     /**
      * Returns a new list with the results of running block once for every
      * element in array.
@@ -129,6 +173,27 @@ public class EnumerableDoubles {
         return ifNone;
     }
 
+    /**
+     * Returns the sum of the products of the values at the same index in a and
+     * b, which must have the same length. Like {@link #sum(double[])} it adds
+     * into several independent sums.
+     */
+    public static double dot(double[] a, double[] b) {
+        if (a.length != b.length)
+            throw new IllegalArgumentException("arrays differ in length (" + a.length + " and " + b.length + ")");
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int length = a.length & ~3; i < length; i += 4) {
+            sum0 += a[i] * b[i];
+            sum1 += a[i + 1] * b[i + 1];
+            sum2 += a[i + 2] * b[i + 2];
+            sum3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++)
+            sum0 += a[i] * b[i];
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
     /**
      * Calls block for each item in array.
      */
@@ -174,6 +239,17 @@ public class EnumerableDoubles {
         return array;
     }
 
+    /**
+     * Iterates the given block for each list of consecutive n elements. The
+     * lists are read-only views of array, so no values are copied.
+     */
+    public static <R> Object eachCons(double[] array, int n, Fn1<List<Double>, R> block) {
+        checkWindowSize(n);
+        for (int i = n; i <= array.length; i++)
+            block.call(new DoubleWindow(array, i - n, n));
+        return null;
+    }
+
     /**
      * Calls block with two arguments, the item and its index, for each item in
      * array.
@@ -224,6 +300,28 @@ public class EnumerableDoubles {
         return select(array, block);
     }
 
+    /**
+     * Counts the values in array falling into each of bins equally wide bins
+     * between min and max. Values outside of them are ignored, while max itself
+     * is counted in the last bin.
+     */
+    public static int[] histogram(double[] array, double min, double max, int bins) {
+        if (bins <= 0)
+            throw new IllegalArgumentException("invalid size");
+        if (!(max > min))
+            throw new IllegalArgumentException("max must be greater than min");
+        int[] result = new int[bins];
+        /* don't change */double lower = min, upper = max;
+        /* don't change */double scale = bins / (upper - lower);
+        for (double each : array) {
+            if (each >= min && each <= max) {
+                int bin = (int) ((each - lower) * scale);
+                result[bin < bins ? bin : bins - 1]++;
+            }
+        }
+        return result;
+    }
+
     /**
      * Named parameter for detect.
      * 
@@ -316,6 +414,40 @@ public class EnumerableDoubles {
         return min(array, new ReverseNaturalOrderDoubleComparator(new BlockDoubleComparator(block)));
     }
 
+    /**
+     * Returns the n largest values in array, largest first. The values are
+     * found using quickselect on a copy of array, so only they are sorted.
+     */
+    public static double[] maxN(double[] array, int n) {
+        return minN(array, n, new ReverseNaturalOrderDoubleComparator(new NaturalOrderPrimitiveComparator()));
+    }
+
+    /**
+     * Returns the n largest values in array, largest first. This form uses the
+     * block to {@link Comparator#compare}.
+     */
+    public static double[] maxN(double[] array, int n, Fn2DDtoD block) {
+        return minN(array, n, new ReverseNaturalOrderDoubleComparator(new BlockDoubleComparator(block)));
+    }
+
+    /**
+     * Returns the arithmetic mean of the values in array, or NaN if it is
+     * empty. The values are added as doubles, so large values don't overflow.
+     */
+    public static/* don't change */double mean(double[] array) {
+        /* don't change */double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int length = array.length & ~3; i < length; i += 4) {
+            sum0 += array[i];
+            sum1 += array[i + 1];
+            sum2 += array[i + 2];
+            sum3 += array[i + 3];
+        }
+        for (; i < array.length; i++)
+            sum0 += array[i];
+        return (sum0 + sum1 + sum2 + sum3) / array.length;
+    }
+
     /**
      * Returns true if any member of array equals value. Equality is tested
      * using {@link Object#equals(Object)}.
@@ -339,6 +471,54 @@ public class EnumerableDoubles {
         return min(array, new BlockDoubleComparator(block));
     }
 
+    /**
+     * Returns the minimum and maximum values in array as an array of two, found
+     * in a single pass, or null if array is empty. Values are compared with
+     * &lt; and &gt; rather than a comparator, so the loop can be compiled to
+     * vector instructions.
+     */
+    public static double[] minMax(double[] array) {
+        if (array.length == 0)
+            return null;
+        double min = array[0], max = array[0];
+        for (int i = 1; i < array.length; i++) {
+            double each = array[i];
+            if (each < min)
+                min = each;
+            if (each > max)
+                max = each;
+        }
+        return new double[] { min, max };
+    }
+
+    /**
+     * Returns the n smallest values in array, smallest first. The values are
+     * found using quickselect on a copy of array, so only they are sorted.
+     */
+    public static double[] minN(double[] array, int n) {
+        return minN(array, n, new NaturalOrderPrimitiveComparator());
+    }
+
+    /**
+     * Returns the n smallest values in array, smallest first. This form uses
+     * the block to {@link Comparator#compare}.
+     */
+    public static double[] minN(double[] array, int n, Fn2DDtoD block) {
+        return minN(array, n, new BlockDoubleComparator(block));
+    }
+
+    /**
+     * Reorders array in place using quickselect, so that the value at index n
+     * is the one that would be there if array was sorted, with no greater
+     * values before it and no smaller values after it. Returns that value.
+     */
+    public static double nthElement(double[] array, int n) {
+        if (n < 0 || n >= array.length)
+            throw new ArrayIndexOutOfBoundsException(n);
+        nthElement(array, n, new NaturalOrderPrimitiveComparator());
+        return array[n];
+    }
+
     /**
      * Returns two lists, the first containing the elements of array for which
      * the block evaluates to true, the second containing the rest.
@@ -352,6 +532,18 @@ public class EnumerableDoubles {
         return result;
     }
 
+    /**
+     * Returns an array where each value is the sum of the values in array up to
+     * and including the one at the same index.
+     */
+    public static double[] prefixSum(double[] array) {
+        double[] result = new double[array.length];
+        double sum = 0;
+        for (int i = 0; i < array.length; i++)
+            result[i] = sum += array[i];
+        return result;
+    }
+
     /**
      * Returns an array containing all elements of array for which block is
      * false.
@@ -377,6 +569,83 @@ public class EnumerableDoubles {
         return copy(result, i);
     }
 
+    /**
+     * Returns the maximum of each window of n consecutive values in array. Runs
+     * in linear time regardless of n, by keeping the indexes of the values
+     * which may still become the maximum in a deque.
+     */
+    public static double[] slidingMax(double[] array, int n) {
+        return slidingMin(array, n, new ReverseNaturalOrderDoubleComparator(new NaturalOrderPrimitiveComparator()));
+    }
+
+    /**
+     * Returns the mean of each window of n consecutive values in array, keeping
+     * a running sum which is updated as the window slides.
+     * 
+     * @see #slidingSum(double[], int)
+     */
+    public static/* don't change */double[] slidingMean(double[] array, int n) {
+        checkWindowSize(n);
+        /* don't change */double[] result = new /* don't change */double[Math.max(0, array.length - n + 1)];
+        /* don't change */double sum = 0/* floating point only */, error = 0;
+        for (int i = 0; i < array.length; i++) {
+            /* don't change */double added = array[i];
+            /* floating point only */error += Math.abs(sum) >= Math.abs(added) ? (sum - (sum + added)) + added
+                    : (added - (sum + added)) + sum;
+            sum += added;
+            if (i >= n) {
+                /* don't change */double removed = array[i - n];
+                /* floating point only */error += Math.abs(sum) >= Math.abs(removed) ? (sum - (sum - removed))
+                        - removed : (-removed - (sum - removed)) + sum;
+                sum -= removed;
+            }
+            if (i >= n - 1) {
+                result[i - n + 1] = sum/* floating point only */ + error;
+                result[i - n + 1] /= n;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the minimum of each window of n consecutive values in array. Runs
+     * in linear time regardless of n, by keeping the indexes of the values
+     * which may still become the minimum in a deque.
+     */
+    public static double[] slidingMin(double[] array, int n) {
+        return slidingMin(array, n, new NaturalOrderPrimitiveComparator());
+    }
+
+    /**
+     * Returns the sum of each window of n consecutive values in array, keeping
+     * a running sum which is updated as the window slides. Values leaving the
+     * window don't leave an error behind in the sums of later windows.
+     */
+    public static double[] slidingSum(double[] array, int n) {
+        checkWindowSize(n);
+        double[] result = new double[Math.max(0, array.length - n + 1)];
+        // The rounding error of each addition and subtraction is kept in a
+        // separate sum, using Neumaier's variant of Kahan summation, so values
+        // of different magnitudes don't leave a drifting error behind once
+        // they leave the window. Integral sums are exact without it.
+        double sum = 0/* floating point only */, error = 0;
+        for (int i = 0; i < array.length; i++) {
+            double added = array[i];
+            /* floating point only */error += Math.abs(sum) >= Math.abs(added) ? (sum - (sum + added)) + added
+                    : (added - (sum + added)) + sum;
+            sum += added;
+            if (i >= n) {
+                double removed = array[i - n];
+                /* floating point only */error += Math.abs(sum) >= Math.abs(removed) ? (sum - (sum - removed))
+                        - removed : (-removed - (sum - removed)) + sum;
+                sum -= removed;
+            }
+            if (i >= n - 1)
+                result[i - n + 1] = sum/* floating point only */ + error;
+        }
+        return result;
+    }
+
     /**
      * Returns an array containing the items in array sorted, according to their
      * own compareTo method.
@@ -387,6 +656,27 @@ public class EnumerableDoubles {
         return result;
     }
 
+    /**
+     * Returns the sum of the values in array. Instead of adding each value to
+     * one sum in turn, the values are added into four independent sums which
+     * are combined at the end, so the loop can be compiled to vector
+     * instructions. Floating point results may therefore differ in rounding
+     * from {@link #inject(double[], double, Fn2DDtoD)}.
+     */
+    public static double sum(double[] array) {
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int length = array.length & ~3; i < length; i += 4) {
+            sum0 += array[i];
+            sum1 += array[i + 1];
+            sum2 += array[i + 2];
+            sum3 += array[i + 3];
+        }
+        for (; i < array.length; i++)
+            sum0 += array[i];
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
     // /**
     // * Returns an array containing the items in array sorted by using the
     // * results of the supplied block.
@@ -407,13 +697,22 @@ public class EnumerableDoubles {
     //
 
     /**
-     * Returns a list containing the items in array.
+     * Returns a list containing the items in array, backed by a copy of the
+     * array.
+     * 
+     * @see #toDoubleList(double[])
      */
     public static EList<Double> toList(double[] array) {
-        EList<Double> result = new EList<Double>(array.length);
-        for (double each : array)
-            result.add(each);
-        return result;
+        return toDoubleList(array);
+    }
+
+    /**
+     * Returns a list containing the items in array, backed by a copy of the
+     * array, declared as {@link DoubleList}, which keeps the results of
+     * primitive blocks unboxed.
+     */
+    public static DoubleList toDoubleList(double[] array) {
+        return new DoubleList(copy(array, array.length));
     }
 
     /**
@@ -468,6 +767,119 @@ public class EnumerableDoubles {
         return result;
     }
 
+    static double[] minN(double[] array, int n, DoubleComparator comparator) {
+        if (n < 0)
+            throw new IllegalArgumentException("negative size (" + n + ")");
+        n = Math.min(n, array.length);
+        double[] result = copy(array, array.length);
+        if (n < result.length)
+            nthElement(result, n, comparator);
+        result = copy(result, n);
+        quickSort(result, 0, n, comparator, new int[2]);
+        return result;
+    }
+
+    static double[] slidingMin(double[] array, int n, DoubleComparator comparator) {
+        checkWindowSize(n);
+        double[] result = new double[Math.max(0, array.length - n + 1)];
+        int[] deque = new int[Math.min(n, array.length)];
+        int head = 0, size = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (size > 0 && deque[head] <= i - n) {
+                head = (head + 1) % deque.length;
+                size--;
+            }
+            while (size > 0 && comparator.compare(array[deque[(head + size - 1) % deque.length]], array[i]) >= 0)
+                size--;
+            deque[(head + size++) % deque.length] = i;
+            if (i >= n - 1)
+                result[i - n + 1] = array[deque[head]];
+        }
+        return result;
+    }
+
+    static void checkWindowSize(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("invalid size");
+    }
+
+    static void nthElement(double[] array, int n, DoubleComparator comparator) {
+        int[] bounds = new int[2];
+        int from = 0, to = array.length;
+        while (to - from > 1) {
+            partition(array, from, to, comparator, bounds);
+            if (n < bounds[0])
+                to = bounds[0];
+            else if (n >= bounds[1])
+                from = bounds[1];
+            else
+                return;
+        }
+    }
+
+    static void quickSort(double[] array, int from, int to, DoubleComparator comparator, int[] bounds) {
+        while (to - from > 1) {
+            partition(array, from, to, comparator, bounds);
+            int lower = bounds[0], upper = bounds[1];
+            if (lower - from < to - upper) {
+                quickSort(array, from, lower, comparator, bounds);
+                from = upper;
+            } else {
+                quickSort(array, upper, to, comparator, bounds);
+                to = lower;
+            }
+        }
+    }
+
+    /**
+     * Partitions array between from and to in three around its middle value,
+     * leaving the values comparing equal to it between bounds[0] and
+     * bounds[1].
+     */
+    static void partition(double[] array, int from, int to, DoubleComparator comparator, int[] bounds) {
+        double pivot = array[(from + to) >>> 1];
+        int lower = from, i = from, upper = to;
+        while (i < upper) {
+            int result = comparator.compare(array[i], pivot);
+            if (result < 0)
+                swap(array, lower++, i++);
+            else if (result > 0)
+                swap(array, i, --upper);
+            else
+                i++;
+        }
+        bounds[0] = lower;
+        bounds[1] = upper;
+    }
+
+    static void swap(double[] array, int i, int j) {
+        double tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    static class DoubleWindow extends AbstractList<Double> implements RandomAccess {
+        final double[] array;
+        final int from;
+        final int size;
+
+        DoubleWindow(double[] array, int from, int size) {
+            this.array = array;
+            this.from = from;
+            this.size = size;
+        }
+
+        public Double get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return array[from + index];
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
     static interface DoubleComparator {
         int compare(double a, double b);
     }
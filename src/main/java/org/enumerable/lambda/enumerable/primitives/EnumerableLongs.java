@@ -3,12 +3,17 @@ package org.enumerable.lambda.enumerable.primitives;
 import static java.lang.System.*;
 
 import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
 
+import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.enumerable.Enumerable;
 import org.enumerable.lambda.enumerable.collection.EList;
 import org.enumerable.lambda.enumerable.collection.ESet;
+import org.enumerable.lambda.enumerable.collection.LongList;
 import org.enumerable.lambda.primitives.Fn1LtoB;
 import org.enumerable.lambda.primitives.Fn1LtoD;
 import org.enumerable.lambda.primitives.Fn1LtoI;
@@ -52,6 +57,45 @@ public class EnumerableLongs {
         return false;
     }
 
+    /**
+     * Returns the index of the first occurrence of the maximum value in array,
+     * or -1 if array is empty. Values are compared with &gt; rather than a
+     * comparator, so the loop can be compiled to vector instructions.
+     */
+    public static int argmax(long[] array) {
+        if (array.length == 0)
+            return -1;
+        int index = 0;
+        long max = array[0];
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] > max) {
+                max = array[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the minimum value in array,
+     * or -1 if array is empty.
+     * 
+     * @see #argmax(long[])
+     */
+    public static int argmin(long[] array) {
+        if (array.length == 0)
+            return -1;
+        int index = 0;
+        long min = array[0];
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] < min) {
+                min = array[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
     /**
      * Returns a new list with the results of running block once for every
      * element in array.
@@ -121,6 +165,27 @@ public class EnumerableLongs {
         return ifNone;
     }
 
+    /**
+     * Returns the sum of the products of the values at the same index in a and
+     * b, which must have the same length. Like {@link #sum(long[])} it adds
+     * into several independent sums.
+     */
+    public static long dot(long[] a, long[] b) {
+        if (a.length != b.length)
+            throw new IllegalArgumentException("arrays differ in length (" + a.length + " and " + b.length + ")");
+        long sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int length = a.length & ~3; i < length; i += 4) {
+            sum0 += a[i] * b[i];
+            sum1 += a[i + 1] * b[i + 1];
+            sum2 += a[i + 2] * b[i + 2];
+            sum3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++)
+            sum0 += a[i] * b[i];
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
     /**
      * Calls block for each item in array.
      */
@@ -166,6 +231,17 @@ public class EnumerableLongs {
         return array;
     }
 
+    /**
+     * Iterates the given block for each list of consecutive n elements. The
+     * lists are read-only views of array, so no values are copied.
+     */
+    public static <R> Object eachCons(long[] array, int n, Fn1<List<Long>, R> block) {
+        checkWindowSize(n);
+        for (int i = n; i <= array.length; i++)
+            block.call(new LongWindow(array, i - n, n));
+        return null;
+    }
+
     /**
      * Calls block with two arguments, the item and its index, for each item in
      * array.
@@ -208,6 +284,28 @@ public class EnumerableLongs {
         return select(array, block);
     }
 
+    /**
+     * Counts the values in array falling into each of bins equally wide bins
+     * between min and max. Values outside of them are ignored, while max itself
+     * is counted in the last bin.
+     */
+    public static int[] histogram(long[] array, long min, long max, int bins) {
+        if (bins <= 0)
+            throw new IllegalArgumentException("invalid size");
+        if (!(max > min))
+            throw new IllegalArgumentException("max must be greater than min");
+        int[] result = new int[bins];
+        /* don't change */double lower = min, upper = max;
+        /* don't change */double scale = bins / (upper - lower);
+        for (long each : array) {
+            if (each >= min && each <= max) {
+                int bin = (int) ((each - lower) * scale);
+                result[bin < bins ? bin : bins - 1]++;
+            }
+        }
+        return result;
+    }
+
     /**
      * Named parameter for detect.
      * 
@@ -300,6 +398,40 @@ public class EnumerableLongs {
         return min(array, new ReverseNaturalOrderLongComparator(new BlockLongComparator(block)));
     }
 
+    /**
+     * Returns the n largest values in array, largest first. The values are
+     * found using quickselect on a copy of array, so only they are sorted.
+     */
+    public static long[] maxN(long[] array, int n) {
+        return minN(array, n, new ReverseNaturalOrderLongComparator(new NaturalOrderPrimitiveComparator()));
+    }
+
+    /**
+     * Returns the n largest values in array, largest first. This form uses the
+     * block to {@link Comparator#compare}.
+     */
+    public static long[] maxN(long[] array, int n, Fn2LLtoL block) {
+        return minN(array, n, new ReverseNaturalOrderLongComparator(new BlockLongComparator(block)));
+    }
+
+    /**
+     * Returns the arithmetic mean of the values in array, or NaN if it is
+     * empty. The values are added as longs, so large values don't overflow.
+     */
+    public static/* don't change */double mean(long[] array) {
+        /* don't change */double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int length = array.length & ~3; i < length; i += 4) {
+            sum0 += array[i];
+            sum1 += array[i + 1];
+            sum2 += array[i + 2];
+            sum3 += array[i + 3];
+        }
+        for (; i < array.length; i++)
+            sum0 += array[i];
+        return (sum0 + sum1 + sum2 + sum3) / array.length;
+    }
+
     /**
      * Returns true if any member of array equals value. Equality is tested
      * using {@link Object#equals(Object)}.
@@ -323,6 +455,54 @@ public class EnumerableLongs {
         return min(array, new BlockLongComparator(block));
     }
 
+    /**
+     * Returns the minimum and maximum values in array as an array of two, found
+     * in a single pass, or null if array is empty. Values are compared with
+     * &lt; and &gt; rather than a comparator, so the loop can be compiled to
+     * vector instructions.
+     */
+    public static long[] minMax(long[] array) {
+        if (array.length == 0)
+            return null;
+        long min = array[0], max = array[0];
+        for (int i = 1; i < array.length; i++) {
+            long each = array[i];
+            if (each < min)
+                min = each;
+            if (each > max)
+                max = each;
+        }
+        return new long[] { min, max };
+    }
+
+    /**
+     * Returns the n smallest values in array, smallest first. The values are
+     * found using quickselect on a copy of array, so only they are sorted.
+     */
+    public static long[] minN(long[] array, int n) {
+        return minN(array, n, new NaturalOrderPrimitiveComparator());
+    }
+
+    /**
+     * Returns the n smallest values in array, smallest first. This form uses
+     * the block to {@link Comparator#compare}.
+     */
+    public static long[] minN(long[] array, int n, Fn2LLtoL block) {
+        return minN(array, n, new BlockLongComparator(block));
+    }
+
+    /**
+     * Reorders array in place using quickselect, so that the value at index n
+     * is the one that would be there if array was sorted, with no greater
+     * values before it and no smaller values after it. Returns that value.
+     */
+    public static long nthElement(long[] array, int n) {
+        if (n < 0 || n >= array.length)
+            throw new ArrayIndexOutOfBoundsException(n);
+        nthElement(array, n, new NaturalOrderPrimitiveComparator());
+        return array[n];
+    }
+
     /**
      * Returns two lists, the first containing the elements of array for which
      * the block evaluates to true, the second containing the rest.
@@ -336,6 +516,18 @@ public class EnumerableLongs {
         return result;
     }
 
+    /**
+     * Returns an array where each value is the sum of the values in array up to
+     * and including the one at the same index.
+     */
+    public static long[] prefixSum(long[] array) {
+        long[] result = new long[array.length];
+        long sum = 0;
+        for (int i = 0; i < array.length; i++)
+            result[i] = sum += array[i];
+        return result;
+    }
+
     /**
      * Returns an array containing all elements of array for which block is
      * false.
@@ -361,6 +553,71 @@ public class EnumerableLongs {
         return copy(result, i);
     }
 
+    /**
+     * Returns the maximum of each window of n consecutive values in array. Runs
+     * in linear time regardless of n, by keeping the indexes of the values
+     * which may still become the maximum in a deque.
+     */
+    public static long[] slidingMax(long[] array, int n) {
+        return slidingMin(array, n, new ReverseNaturalOrderLongComparator(new NaturalOrderPrimitiveComparator()));
+    }
+
+    /**
+     * Returns the mean of each window of n consecutive values in array, keeping
+     * a running sum which is updated as the window slides.
+     * 
+     * @see #slidingSum(long[], int)
+     */
+    public static/* don't change */double[] slidingMean(long[] array, int n) {
+        checkWindowSize(n);
+        /* don't change */double[] result = new /* don't change */double[Math.max(0, array.length - n + 1)];
+        /* don't change */double sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            /* don't change */double added = array[i];
+            sum += added;
+            if (i >= n) {
+                /* don't change */double removed = array[i - n];
+                sum -= removed;
+            }
+            if (i >= n - 1) {
+                result[i - n + 1] = sum;
+                result[i - n + 1] /= n;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the minimum of each window of n consecutive values in array. Runs
+     * in linear time regardless of n, by keeping the indexes of the values
+     * which may still become the minimum in a deque.
+     */
+    public static long[] slidingMin(long[] array, int n) {
+        return slidingMin(array, n, new NaturalOrderPrimitiveComparator());
+    }
+
+    /**
+     * Returns the sum of each window of n consecutive values in array, keeping
+     * a running sum which is updated as the window slides. Values leaving the
+     * window don't leave an error behind in the sums of later windows.
+     */
+    public static long[] slidingSum(long[] array, int n) {
+        checkWindowSize(n);
+        long[] result = new long[Math.max(0, array.length - n + 1)];
+        long sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            long added = array[i];
+            sum += added;
+            if (i >= n) {
+                long removed = array[i - n];
+                sum -= removed;
+            }
+            if (i >= n - 1)
+                result[i - n + 1] = sum;
+        }
+        return result;
+    }
+
     /**
      * Returns an array containing the items in array sorted, according to their
      * own compareTo method.
@@ -372,13 +629,43 @@ public class EnumerableLongs {
     }
 
     /**
-     * Returns a list containing the items in array.
+     * Returns the sum of the values in array. Instead of adding each value to
+     * one sum in turn, the values are added into four independent sums which
+     * are combined at the end, so the loop can be compiled to vector
+     * instructions. Floating point results may therefore differ in rounding
+     * from {@link #inject(long[], long, Fn2LLtoL)}.
+     */
+    public static long sum(long[] array) {
+        long sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (int length = array.length & ~3; i < length; i += 4) {
+            sum0 += array[i];
+            sum1 += array[i + 1];
+            sum2 += array[i + 2];
+            sum3 += array[i + 3];
+        }
+        for (; i < array.length; i++)
+            sum0 += array[i];
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+    /**
+     * Returns a list containing the items in array, backed by a copy of the
+     * array.
+     * 
+     * @see #toLongList(long[])
      */
     public static EList<Long> toList(long[] array) {
-        EList<Long> result = new EList<Long>(array.length);
-        for (long each : array)
-            result.add(each);
-        return result;
+        return toLongList(array);
+    }
+
+    /**
+     * Returns a list containing the items in array, backed by a copy of the
+     * array, declared as {@link LongList}, which keeps the results of
+     * primitive blocks unboxed.
+     */
+    public static LongList toLongList(long[] array) {
+        return new LongList(copy(array, array.length));
     }
 
     /**
@@ -406,6 +693,119 @@ public class EnumerableLongs {
         return result;
     }
 
+    static long[] minN(long[] array, int n, LongComparator comparator) {
+        if (n < 0)
+            throw new IllegalArgumentException("negative size (" + n + ")");
+        n = Math.min(n, array.length);
+        long[] result = copy(array, array.length);
+        if (n < result.length)
+            nthElement(result, n, comparator);
+        result = copy(result, n);
+        quickSort(result, 0, n, comparator, new int[2]);
+        return result;
+    }
+
+    static long[] slidingMin(long[] array, int n, LongComparator comparator) {
+        checkWindowSize(n);
+        long[] result = new long[Math.max(0, array.length - n + 1)];
+        int[] deque = new int[Math.min(n, array.length)];
+        int head = 0, size = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (size > 0 && deque[head] <= i - n) {
+                head = (head + 1) % deque.length;
+                size--;
+            }
+            while (size > 0 && comparator.compare(array[deque[(head + size - 1) % deque.length]], array[i]) >= 0)
+                size--;
+            deque[(head + size++) % deque.length] = i;
+            if (i >= n - 1)
+                result[i - n + 1] = array[deque[head]];
+        }
+        return result;
+    }
+
+    static void checkWindowSize(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("invalid size");
+    }
+
+    static void nthElement(long[] array, int n, LongComparator comparator) {
+        int[] bounds = new int[2];
+        int from = 0, to = array.length;
+        while (to - from > 1) {
+            partition(array, from, to, comparator, bounds);
+            if (n < bounds[0])
+                to = bounds[0];
+            else if (n >= bounds[1])
+                from = bounds[1];
+            else
+                return;
+        }
+    }
+
+    static void quickSort(long[] array, int from, int to, LongComparator comparator, int[] bounds) {
+        while (to - from > 1) {
+            partition(array, from, to, comparator, bounds);
+            int lower = bounds[0], upper = bounds[1];
+            if (lower - from < to - upper) {
+                quickSort(array, from, lower, comparator, bounds);
+                from = upper;
+            } else {
+                quickSort(array, upper, to, comparator, bounds);
+                to = lower;
+            }
+        }
+    }
+
+    /**
+     * Partitions array between from and to in three around its middle value,
+     * leaving the values comparing equal to it between bounds[0] and
+     * bounds[1].
+     */
+    static void partition(long[] array, int from, int to, LongComparator comparator, int[] bounds) {
+        long pivot = array[(from + to) >>> 1];
+        int lower = from, i = from, upper = to;
+        while (i < upper) {
+            int result = comparator.compare(array[i], pivot);
+            if (result < 0)
+                swap(array, lower++, i++);
+            else if (result > 0)
+                swap(array, i, --upper);
+            else
+                i++;
+        }
+        bounds[0] = lower;
+        bounds[1] = upper;
+    }
+
+    static void swap(long[] array, int i, int j) {
+        long tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    static class LongWindow extends AbstractList<Long> implements RandomAccess {
+        final long[] array;
+        final int from;
+        final int size;
+
+        LongWindow(long[] array, int from, int size) {
+            this.array = array;
+            this.from = from;
+            this.size = size;
+        }
+
+        public Long get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return array[from + index];
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
     static interface LongComparator {
         int compare(long a, long b);
     }
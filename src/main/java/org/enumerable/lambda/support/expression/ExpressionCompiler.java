@@ -0,0 +1,636 @@
+package org.enumerable.lambda.support.expression;
+
+import japa.parser.ast.expr.BinaryExpr;
+import japa.parser.ast.expr.BooleanLiteralExpr;
+import japa.parser.ast.expr.CastExpr;
+import japa.parser.ast.expr.CharLiteralExpr;
+import japa.parser.ast.expr.ConditionalExpr;
+import japa.parser.ast.expr.DoubleLiteralExpr;
+import japa.parser.ast.expr.EnclosedExpr;
+import japa.parser.ast.expr.Expression;
+import japa.parser.ast.expr.IntegerLiteralExpr;
+import japa.parser.ast.expr.IntegerLiteralMinValueExpr;
+import japa.parser.ast.expr.LongLiteralExpr;
+import japa.parser.ast.expr.LongLiteralMinValueExpr;
+import japa.parser.ast.expr.NameExpr;
+import japa.parser.ast.expr.NullLiteralExpr;
+import japa.parser.ast.expr.StringLiteralExpr;
+import japa.parser.ast.expr.UnaryExpr;
+import japa.parser.ast.type.ClassOrInterfaceType;
+import japa.parser.ast.type.PrimitiveType;
+import japa.parser.ast.type.ReferenceType;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.EmptyVisitor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.objectweb.asm.Type.*;
+
+/**
+ * Generates the class of a function straight from an expression tree with
+ * ASM, without a round trip through javac. Covers expressions built from
+ * literals, the parameters, the unary and binary operators, conditionals and
+ * casts to primitive and java.lang types. Anything else, like method calls
+ * or field access, throws {@link UnsupportedExpressionException}, and
+ * {@link LambdaExpressionTrees} compiles the source with the
+ * {@link org.enumerable.lambda.weaving.InMemoryCompiler} instead.
+ * <p>
+ * The class has a single call method taking and returning Object, which
+ * casts and unboxes the arguments as needed, following the typing and
+ * conversion rules of the Java language for the covered expressions.
+ */
+class ExpressionCompiler implements Opcodes {
+    static final Type NULL_TYPE = getObjectType("null");
+    static final Type STRING_TYPE = getType(String.class);
+    static final Type OBJECT_TYPE = getType(Object.class);
+
+    static final Map<String, Class<?>> javaLangClasses = new HashMap<String, Class<?>>();
+    static final Map<Type, Type> primitivesByBox = new HashMap<Type, Type>();
+    static final Map<Type, Type> boxesByPrimitive = new HashMap<Type, Type>();
+    static final Map<String, Type> primitivesByName = new HashMap<String, Type>();
+
+    static {
+        for (Class<?> c : new Class<?>[] { Object.class, String.class, Number.class, Boolean.class, Character.class,
+                Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class })
+            javaLangClasses.put(c.getSimpleName(), c);
+
+        Class<?>[] boxes = { Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+                Float.class, Double.class };
+        Type[] primitives = { BOOLEAN_TYPE, CHAR_TYPE, BYTE_TYPE, SHORT_TYPE, INT_TYPE, LONG_TYPE, FLOAT_TYPE,
+                DOUBLE_TYPE };
+        for (int i = 0; i < boxes.length; i++) {
+            primitivesByBox.put(getType(boxes[i]), primitives[i]);
+            boxesByPrimitive.put(primitives[i], getType(boxes[i]));
+            primitivesByName.put(primitives[i].getClassName(), primitives[i]);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static class UnsupportedExpressionException extends RuntimeException {
+        UnsupportedExpressionException(Object what) {
+            super("Cannot generate bytecode directly for " + what);
+        }
+    }
+
+    final Class<?> fnClass;
+    final Class<?> returnType;
+    final Class<?>[] parameterTypes;
+    final String[] parameterNames;
+    final Expression expression;
+
+    MethodVisitor mv;
+
+    ExpressionCompiler(Class<?> fnClass, Class<?> returnType, Class<?>[] parameterTypes, String[] parameterNames,
+            Expression expression) {
+        this.fnClass = fnClass;
+        this.returnType = returnType;
+        this.parameterTypes = parameterTypes;
+        this.parameterNames = parameterNames;
+        this.expression = expression;
+    }
+
+    byte[] compile(String className) {
+        if (returnType.isPrimitive())
+            throw new UnsupportedExpressionException(returnType);
+        for (Class<?> type : parameterTypes)
+            if (type.isPrimitive())
+                throw new UnsupportedExpressionException(type);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String superName = getInternalName(fnClass);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_SUPER, className.replace('.', '/'), null, superName, null);
+
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        Type[] arguments = new Type[parameterTypes.length];
+        Arrays.fill(arguments, OBJECT_TYPE);
+        mv = cw.visitMethod(ACC_PUBLIC, "call", getMethodDescriptor(OBJECT_TYPE, arguments), null, null);
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+
+        returnValue(compile(expression));
+
+        Label end = new Label();
+        mv.visitLabel(end);
+        for (int i = 0; i < parameterNames.length; i++)
+            mv.visitLocalVariable(parameterNames[i], OBJECT_TYPE.getDescriptor(), null, start, end, i + 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    void returnValue(Type type) {
+        if (type != NULL_TYPE) {
+            Type returned = isPrimitive(type) ? box(type) : type;
+            if (!returnType.isAssignableFrom(classOf(returned)))
+                throw new UnsupportedExpressionException(type.getClassName() + " returned as "
+                        + returnType.getName());
+            coerce(type, returned);
+        }
+        mv.visitInsn(ARETURN);
+    }
+
+    /**
+     * Returns the type of expression without generating any code for it.
+     */
+    Type typeOf(Expression expression) {
+        MethodVisitor mv = this.mv;
+        try {
+            this.mv = new EmptyVisitor();
+            return compile(expression);
+        } finally {
+            this.mv = mv;
+        }
+    }
+
+    Type compile(Expression expression) {
+        if (expression instanceof EnclosedExpr)
+            return compile(((EnclosedExpr) expression).getInner());
+        if (expression instanceof NameExpr)
+            return compileName((NameExpr) expression);
+        if (expression instanceof NullLiteralExpr) {
+            mv.visitInsn(ACONST_NULL);
+            return NULL_TYPE;
+        }
+        if (expression instanceof BooleanLiteralExpr) {
+            mv.visitInsn(((BooleanLiteralExpr) expression).getValue() ? ICONST_1 : ICONST_0);
+            return BOOLEAN_TYPE;
+        }
+        if (expression instanceof StringLiteralExpr)
+            return compileLiteral((StringLiteralExpr) expression);
+        if (expression instanceof UnaryExpr)
+            return compileUnary((UnaryExpr) expression);
+        if (expression instanceof BinaryExpr)
+            return compileBinary((BinaryExpr) expression);
+        if (expression instanceof ConditionalExpr)
+            return compileConditional((ConditionalExpr) expression);
+        if (expression instanceof CastExpr)
+            return compileCast((CastExpr) expression);
+        throw new UnsupportedExpressionException(expression);
+    }
+
+    Type compileName(NameExpr name) {
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i].equals(name.getName())) {
+                mv.visitVarInsn(ALOAD, i + 1);
+                Type type = getType(parameterTypes[i]);
+                if (parameterTypes[i] != Object.class)
+                    mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+                return type;
+            }
+        }
+        throw new UnsupportedExpressionException(name);
+    }
+
+    Type compileLiteral(StringLiteralExpr literal) {
+        String value = literal.getValue();
+        if (value.indexOf('\\') != -1 || literal instanceof IntegerLiteralMinValueExpr
+                || literal instanceof LongLiteralMinValueExpr)
+            throw new UnsupportedExpressionException(literal);
+        try {
+            if (literal instanceof CharLiteralExpr) {
+                if (value.length() != 1)
+                    throw new UnsupportedExpressionException(literal);
+                loadInt(value.charAt(0));
+                return CHAR_TYPE;
+            }
+            if (literal instanceof LongLiteralExpr) {
+                mv.visitLdcInsn(Long.decode(value.substring(0, value.length() - 1)));
+                return LONG_TYPE;
+            }
+            if (literal instanceof IntegerLiteralExpr) {
+                loadInt(Integer.decode(value));
+                return INT_TYPE;
+            }
+            if (literal instanceof DoubleLiteralExpr) {
+                if (value.endsWith("f") || value.endsWith("F")) {
+                    mv.visitLdcInsn(Float.valueOf(value));
+                    return FLOAT_TYPE;
+                }
+                mv.visitLdcInsn(Double.valueOf(value));
+                return DOUBLE_TYPE;
+            }
+        } catch (NumberFormatException e) {
+            throw new UnsupportedExpressionException(literal);
+        }
+        mv.visitLdcInsn(value);
+        return STRING_TYPE;
+    }
+
+    Type compileUnary(UnaryExpr unary) {
+        Type type = unbox(typeOf(unary.getExpr()));
+        switch (unary.getOperator()) {
+        case not:
+            compileAs(unary.getExpr(), BOOLEAN_TYPE);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(IXOR);
+            return BOOLEAN_TYPE;
+        case positive:
+            return compileAs(unary.getExpr(), promote(type, INT_TYPE));
+        case negative:
+            type = compileAs(unary.getExpr(), promote(type, INT_TYPE));
+            mv.visitInsn(type.getOpcode(INEG));
+            return type;
+        case inverse:
+            type = compileAs(unary.getExpr(), integral(promote(type, INT_TYPE)));
+            if (type == LONG_TYPE)
+                mv.visitLdcInsn(-1L);
+            else
+                mv.visitInsn(ICONST_M1);
+            mv.visitInsn(type.getOpcode(IXOR));
+            return type;
+        default:
+            throw new UnsupportedExpressionException(unary);
+        }
+    }
+
+    Type compileBinary(BinaryExpr binary) {
+        Expression left = binary.getLeft(), right = binary.getRight();
+        Type leftType = typeOf(left), rightType = typeOf(right);
+        switch (binary.getOperator()) {
+        case and:
+        case or:
+            return compileLogical(binary);
+        case plus:
+            if (leftType.equals(STRING_TYPE) || rightType.equals(STRING_TYPE))
+                return compileConcatenation(left, right);
+        case minus:
+        case times:
+        case divide:
+        case remainder:
+            return compileArithmetic(binary.getOperator(), left, right,
+                    promote(unbox(leftType), unbox(rightType)));
+        case binAnd:
+        case binOr:
+        case xor:
+            if (unbox(leftType) == BOOLEAN_TYPE && unbox(rightType) == BOOLEAN_TYPE)
+                return compileArithmetic(binary.getOperator(), left, right, BOOLEAN_TYPE);
+            return compileArithmetic(binary.getOperator(), left, right,
+                    integral(promote(unbox(leftType), unbox(rightType))));
+        case lShift:
+        case rSignedShift:
+        case rUnsignedShift:
+            return compileShift(binary.getOperator(), left, right, integral(promote(unbox(leftType), INT_TYPE)),
+                    integral(promote(unbox(rightType), INT_TYPE)));
+        default:
+            return compileComparison(binary.getOperator(), left, right, leftType, rightType);
+        }
+    }
+
+    Type compileArithmetic(BinaryExpr.Operator operator, Expression left, Expression right, Type type) {
+        compileAs(left, type);
+        compileAs(right, type);
+        switch (operator) {
+        case plus:
+            mv.visitInsn(type.getOpcode(IADD));
+            break;
+        case minus:
+            mv.visitInsn(type.getOpcode(ISUB));
+            break;
+        case times:
+            mv.visitInsn(type.getOpcode(IMUL));
+            break;
+        case divide:
+            mv.visitInsn(type.getOpcode(IDIV));
+            break;
+        case remainder:
+            mv.visitInsn(type.getOpcode(IREM));
+            break;
+        case binAnd:
+            mv.visitInsn(type.getOpcode(IAND));
+            break;
+        case binOr:
+            mv.visitInsn(type.getOpcode(IOR));
+            break;
+        default:
+            mv.visitInsn(type.getOpcode(IXOR));
+        }
+        return type;
+    }
+
+    Type compileShift(BinaryExpr.Operator operator, Expression left, Expression right, Type leftType, Type rightType) {
+        compileAs(left, leftType);
+        compileAs(right, rightType);
+        if (rightType == LONG_TYPE)
+            mv.visitInsn(L2I);
+        switch (operator) {
+        case lShift:
+            mv.visitInsn(leftType.getOpcode(ISHL));
+            break;
+        case rSignedShift:
+            mv.visitInsn(leftType.getOpcode(ISHR));
+            break;
+        default:
+            mv.visitInsn(leftType.getOpcode(IUSHR));
+        }
+        return leftType;
+    }
+
+    Type compileConcatenation(Expression left, Expression right) {
+        compileAsString(left);
+        compileAsString(right);
+        mv.visitMethodInsn(INVOKEVIRTUAL, STRING_TYPE.getInternalName(), "concat", "(Ljava/lang/String;)"
+                + STRING_TYPE.getDescriptor());
+        return STRING_TYPE;
+    }
+
+    void compileAsString(Expression expression) {
+        Type type = compile(expression);
+        if (type == BYTE_TYPE || type == SHORT_TYPE)
+            type = INT_TYPE;
+        else if (!isPrimitive(type))
+            type = OBJECT_TYPE;
+        mv.visitMethodInsn(INVOKESTATIC, STRING_TYPE.getInternalName(), "valueOf", getMethodDescriptor(STRING_TYPE,
+                new Type[] { type }));
+    }
+
+    Type compileLogical(BinaryExpr binary) {
+        boolean and = binary.getOperator() == BinaryExpr.Operator.and;
+        Label shortCircuit = new Label(), end = new Label();
+        compileAs(binary.getLeft(), BOOLEAN_TYPE);
+        mv.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+        compileAs(binary.getRight(), BOOLEAN_TYPE);
+        mv.visitJumpInsn(and ? IFEQ : IFNE, shortCircuit);
+        mv.visitInsn(and ? ICONST_1 : ICONST_0);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(shortCircuit);
+        mv.visitInsn(and ? ICONST_0 : ICONST_1);
+        mv.visitLabel(end);
+        return BOOLEAN_TYPE;
+    }
+
+    Type compileComparison(BinaryExpr.Operator operator, Expression left, Expression right, Type leftType,
+            Type rightType) {
+        boolean equality = operator == BinaryExpr.Operator.equals || operator == BinaryExpr.Operator.notEquals;
+        Type type;
+        if (equality && !isPrimitive(leftType) && !isPrimitive(rightType)) {
+            if (!isComparableReference(leftType, rightType))
+                throw new UnsupportedExpressionException(leftType.getClassName() + " == " + rightType.getClassName());
+            type = OBJECT_TYPE;
+        } else if (equality && unbox(leftType) == BOOLEAN_TYPE && unbox(rightType) == BOOLEAN_TYPE) {
+            type = BOOLEAN_TYPE;
+        } else {
+            type = promote(unbox(leftType), unbox(rightType));
+        }
+        compileAs(left, type);
+        compileAs(right, type);
+
+        Label isTrue = new Label(), end = new Label();
+        int jump = jumpIfTrue(operator);
+        if (type == OBJECT_TYPE) {
+            mv.visitJumpInsn(jump == IFEQ ? IF_ACMPEQ : IF_ACMPNE, isTrue);
+        } else if (type == LONG_TYPE || type == FLOAT_TYPE || type == DOUBLE_TYPE) {
+            boolean nanIsGreater = jump == IFLT || jump == IFLE;
+            if (type == LONG_TYPE)
+                mv.visitInsn(LCMP);
+            else if (type == FLOAT_TYPE)
+                mv.visitInsn(nanIsGreater ? FCMPG : FCMPL);
+            else
+                mv.visitInsn(nanIsGreater ? DCMPG : DCMPL);
+            mv.visitJumpInsn(jump, isTrue);
+        } else {
+            mv.visitJumpInsn(jump + IF_ICMPEQ - IFEQ, isTrue);
+        }
+        mv.visitInsn(ICONST_0);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(isTrue);
+        mv.visitInsn(ICONST_1);
+        mv.visitLabel(end);
+        return BOOLEAN_TYPE;
+    }
+
+    int jumpIfTrue(BinaryExpr.Operator operator) {
+        switch (operator) {
+        case equals:
+            return IFEQ;
+        case notEquals:
+            return IFNE;
+        case less:
+            return IFLT;
+        case lessEquals:
+            return IFLE;
+        case greater:
+            return IFGT;
+        default:
+            return IFGE;
+        }
+    }
+
+    boolean isComparableReference(Type leftType, Type rightType) {
+        if (leftType == NULL_TYPE || rightType == NULL_TYPE)
+            return true;
+        Class<?> left = classOf(leftType), right = classOf(rightType);
+        return left.isAssignableFrom(right) || right.isAssignableFrom(left);
+    }
+
+    Type compileConditional(ConditionalExpr conditional) {
+        Type thenType = typeOf(conditional.getThenExpr()), elseType = typeOf(conditional.getElseExpr());
+        Type type = conditionalType(thenType, elseType);
+
+        Label otherwise = new Label(), end = new Label();
+        compileAs(conditional.getCondition(), BOOLEAN_TYPE);
+        mv.visitJumpInsn(IFEQ, otherwise);
+        compileAs(conditional.getThenExpr(), type);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(otherwise);
+        compileAs(conditional.getElseExpr(), type);
+        mv.visitLabel(end);
+        return type;
+    }
+
+    Type conditionalType(Type thenType, Type elseType) {
+        if (thenType.equals(elseType))
+            return thenType;
+        if (thenType == NULL_TYPE || elseType == NULL_TYPE) {
+            Type other = thenType == NULL_TYPE ? elseType : thenType;
+            return isPrimitive(other) ? box(other) : other;
+        }
+        Type thenUnboxed = unbox(thenType), elseUnboxed = unbox(elseType);
+        if (thenUnboxed == BOOLEAN_TYPE && elseUnboxed == BOOLEAN_TYPE)
+            return BOOLEAN_TYPE;
+        if (isNumeric(thenUnboxed) && isNumeric(elseUnboxed)) {
+            Type type = promote(thenUnboxed, elseUnboxed);
+            if (!thenUnboxed.equals(elseUnboxed) && type == INT_TYPE)
+                throw new UnsupportedExpressionException(thenType.getClassName() + " : " + elseType.getClassName());
+            return type;
+        }
+        if (!isPrimitive(thenType) && !isPrimitive(elseType)) {
+            Class<?> thenClass = classOf(thenType), elseClass = classOf(elseType);
+            if (thenClass.isAssignableFrom(elseClass))
+                return thenType;
+            if (elseClass.isAssignableFrom(thenClass))
+                return elseType;
+        }
+        throw new UnsupportedExpressionException(thenType.getClassName() + " : " + elseType.getClassName());
+    }
+
+    Type compileCast(CastExpr cast) {
+        japa.parser.ast.type.Type target = cast.getType();
+        if (target instanceof ReferenceType && ((ReferenceType) target).getArrayCount() == 0)
+            target = ((ReferenceType) target).getType();
+
+        if (target instanceof PrimitiveType) {
+            Type type = primitivesByName.get(((PrimitiveType) target).getType().name().toLowerCase());
+            Type from = unbox(typeOf(cast.getExpr()));
+            if ((type == BOOLEAN_TYPE) != (from == BOOLEAN_TYPE))
+                throw new UnsupportedExpressionException(cast);
+            compile(cast.getExpr());
+            coerce(typeOf(cast.getExpr()), from);
+            convert(from, type);
+            return type;
+        }
+        if (target instanceof ClassOrInterfaceType && ((ClassOrInterfaceType) target).getScope() == null) {
+            Class<?> targetClass = javaLangClasses.get(((ClassOrInterfaceType) target).getName());
+            if (targetClass != null) {
+                Type type = getType(targetClass);
+                Type from = compile(cast.getExpr());
+                if (isPrimitive(from)) {
+                    if (!targetClass.isAssignableFrom(classOf(box(from))))
+                        throw new UnsupportedExpressionException(cast);
+                    coerce(from, box(from));
+                } else if (from != NULL_TYPE && !targetClass.isAssignableFrom(classOf(from))) {
+                    if (!classOf(from).isAssignableFrom(targetClass))
+                        throw new UnsupportedExpressionException(cast);
+                    mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+                }
+                return type;
+            }
+        }
+        throw new UnsupportedExpressionException(cast);
+    }
+
+    /**
+     * Compiles expression and converts its value to type, unboxing or boxing
+     * it, or widening a primitive.
+     */
+    Type compileAs(Expression expression, Type type) {
+        coerce(compile(expression), type);
+        return type;
+    }
+
+    void coerce(Type from, Type to) {
+        if (from.equals(to))
+            return;
+        if (isPrimitive(to)) {
+            Type unboxed = unbox(from);
+            if (!isPrimitive(unboxed) || (unboxed == BOOLEAN_TYPE) != (to == BOOLEAN_TYPE))
+                throw new UnsupportedExpressionException(from.getClassName() + " as " + to.getClassName());
+            if (!isPrimitive(from))
+                mv.visitMethodInsn(INVOKEVIRTUAL, from.getInternalName(), unboxed.getClassName() + "Value", "()"
+                        + unboxed.getDescriptor());
+            if (!unboxed.equals(to) && promote(unboxed, to) != to)
+                throw new UnsupportedExpressionException(from.getClassName() + " as " + to.getClassName());
+            convert(unboxed, to);
+        } else if (isPrimitive(from)) {
+            Type box = box(from);
+            mv.visitMethodInsn(INVOKESTATIC, box.getInternalName(), "valueOf", getMethodDescriptor(box,
+                    new Type[] { from }));
+        }
+    }
+
+    void convert(Type from, Type to) {
+        Type fromKind = stackType(from), toKind = stackType(to);
+        if (fromKind != toKind) {
+            int[][] opcodes = { { NOP, I2L, I2F, I2D }, { L2I, NOP, L2F, L2D }, { F2I, F2L, NOP, F2D },
+                    { D2I, D2L, D2F, NOP } };
+            mv.visitInsn(opcodes[kindIndex(fromKind)][kindIndex(toKind)]);
+        }
+        if (from.equals(to) || toKind != INT_TYPE)
+            return;
+        if (to == BYTE_TYPE && from != BYTE_TYPE)
+            mv.visitInsn(I2B);
+        else if (to == SHORT_TYPE && from != SHORT_TYPE && from != BYTE_TYPE)
+            mv.visitInsn(I2S);
+        else if (to == CHAR_TYPE)
+            mv.visitInsn(I2C);
+    }
+
+    static Type stackType(Type type) {
+        if (type == LONG_TYPE || type == FLOAT_TYPE || type == DOUBLE_TYPE)
+            return type;
+        return INT_TYPE;
+    }
+
+    static int kindIndex(Type kind) {
+        if (kind == INT_TYPE)
+            return 0;
+        if (kind == LONG_TYPE)
+            return 1;
+        return kind == FLOAT_TYPE ? 2 : 3;
+    }
+
+    /**
+     * Binary numeric promotion of two primitive types, also used with
+     * {@link Type#INT_TYPE} for unary promotion.
+     */
+    static Type promote(Type a, Type b) {
+        if (!isNumeric(a) || !isNumeric(b))
+            throw new UnsupportedExpressionException(a.getClassName() + " and " + b.getClassName());
+        if (a == DOUBLE_TYPE || b == DOUBLE_TYPE)
+            return DOUBLE_TYPE;
+        if (a == FLOAT_TYPE || b == FLOAT_TYPE)
+            return FLOAT_TYPE;
+        if (a == LONG_TYPE || b == LONG_TYPE)
+            return LONG_TYPE;
+        return INT_TYPE;
+    }
+
+    static Type integral(Type type) {
+        if (type != INT_TYPE && type != LONG_TYPE)
+            throw new UnsupportedExpressionException(type.getClassName());
+        return type;
+    }
+
+    static boolean isNumeric(Type type) {
+        return isPrimitive(type) && type != BOOLEAN_TYPE;
+    }
+
+    static boolean isPrimitive(Type type) {
+        return type.getSort() != OBJECT && type.getSort() != ARRAY;
+    }
+
+    static Type unbox(Type type) {
+        Type primitive = primitivesByBox.get(type);
+        return primitive != null ? primitive : type;
+    }
+
+    static Type box(Type type) {
+        return boxesByPrimitive.get(type);
+    }
+
+    Class<?> classOf(Type type) {
+        for (Class<?> c : parameterTypes)
+            if (getType(c).equals(type))
+                return c;
+        for (Class<?> c : javaLangClasses.values())
+            if (getType(c).equals(type))
+                return c;
+        throw new UnsupportedExpressionException(type.getClassName());
+    }
+
+    void loadInt(int value) {
+        if (value >= -1 && value <= 5)
+            mv.visitInsn(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            mv.visitIntInsn(BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            mv.visitIntInsn(SIPUSH, value);
+        else
+            mv.visitLdcInsn(value);
+    }
+}
@@ -1,11 +1,14 @@
 package org.enumerable.lambda.support.expression;
 
+import japa.parser.ast.Node;
 import japa.parser.ast.expr.Expression;
 import org.enumerable.lambda.Fn0;
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.Fn2;
 import org.enumerable.lambda.Fn3;
 import org.enumerable.lambda.annotation.LambdaLocal;
+import org.enumerable.lambda.support.expression.ExpressionCompiler.UnsupportedExpressionException;
+import org.enumerable.lambda.weaving.ClassInjector;
 import org.enumerable.lambda.weaving.InMemoryCompiler;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
@@ -21,16 +24,26 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import static java.util.Collections.synchronizedMap;
 import static org.enumerable.lambda.exception.UncheckedException.uncheck;
 import static org.objectweb.asm.Type.*;
 
 public class LambdaExpressionTrees {
     static int expressionId = 1;
     static InMemoryCompiler compiler = new InMemoryCompiler();
+    static int compiledExpressionsCacheSize = Integer.getInteger("lambda.support.expression.cache.size", 256);
+    static Map<String, Class<?>> compiledExpressions = synchronizedMap(new CompiledExpressionsCache());
+    static Map<Class<?>, Expression> expressionsByLambdaClass = synchronizedMap(new WeakHashMap<Class<?>, Expression>());
 
     public static Expression parseExpression(String expression) {
         try {
@@ -99,9 +112,10 @@ public class LambdaExpressionTrees {
     @SuppressWarnings("unchecked")
     static MethodNode findMethodNode(Method method) throws IOException {
         String className = method.getDeclaringClass().getName();
+        byte[] bs = InMemoryCompiler.bytesByClassName.get(method.getDeclaringClass().getClassLoader(), className);
         ClassReader cr;
-        if (InMemoryCompiler.bytesByClassName.containsKey(className))
-            cr = new ClassReader(InMemoryCompiler.bytesByClassName.get(className));
+        if (bs != null)
+            cr = new ClassReader(bs);
 
         else
             cr = new ClassReader(className);
@@ -117,27 +131,74 @@ public class LambdaExpressionTrees {
         throw new IllegalStateException("Cannot find method which does exist");
     }
 
+    /**
+     * Returns the expression of the lambda. The bytecode of each lambda class
+     * is only analyzed once, and the expression is kept for as long as the
+     * class is alive. Each call returns a new copy, which the caller is free
+     * to modify.
+     */
     @SuppressWarnings("unchecked")
     public static <R extends Expression> R toExpression(Fn0<?> fn) {
-        if (fn.getClass().getDeclaredFields().length > 0)
+        if (isClosure(fn))
             throw new IllegalArgumentException("Turning Closures into Expressions isn't supported");
 
-        List<LambdaLocal> parameters = fn.getParameters();
-        String[] parameterNames = new String[parameters.size()];
-        for (int i = 0; i < parameters.size(); i++)
-            parameterNames[i] = parameters.get(i).name();
+        Expression expression = expressionsByLambdaClass.get(fn.getClass());
+        if (expression == null) {
+            List<LambdaLocal> parameters = fn.getParameters();
+            String[] parameterNames = new String[parameters.size()];
+            for (int i = 0; i < parameters.size(); i++)
+                parameterNames[i] = parameters.get(i).name();
 
-        return (R) parseExpressionFromSingleMethodClass(fn.getClass(), parameterNames);
+            expression = parseExpressionFromSingleMethodClass(fn.getClass(), parameterNames);
+            expressionsByLambdaClass.put(fn.getClass(), expression);
+        }
+        return (R) copy(expression);
     }
 
-    public static <R> Fn0<R> toFn0(Class<R> returnType, Expression expression) {
+    /**
+     * Makes a deep copy of an expression tree. The nodes of the Java parser
+     * have no copy support, so this copies their fields reflectively, along
+     * with the nodes in any lists.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copy(T node) {
+        if (node instanceof List<?>) {
+            List<Object> copy = new ArrayList<Object>();
+            for (Object each : (List<Object>) node)
+                copy.add(copy(each));
+            return (T) copy;
+        }
+        if (!(node instanceof Node))
+            return node;
         try {
-            String className = "ExpressionFn0_" + expressionId++;
+            Object copy = node.getClass().newInstance();
+            for (Class<?> c = node.getClass(); c != Object.class; c = c.getSuperclass())
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()))
+                        continue;
+                    field.setAccessible(true);
+                    field.set(copy, copy(field.get(node)));
+                }
+            return (T) copy;
+        } catch (Exception e) {
+            throw uncheck(e);
+        }
+    }
+
+    static boolean isClosure(Fn0<?> fn) {
+        for (Field field : fn.getClass().getDeclaredFields())
+            if (!Modifier.isStatic(field.getModifiers()))
+                return true;
+        return false;
+    }
 
-            String source = "class " + className + " extends " + Fn0.class.getName() + "{ public "
+    public static <R> Fn0<R> toFn0(Class<R> returnType, Expression expression) {
+        try {
+            String source = " extends " + Fn0.class.getName() + "{ public "
                     + typeToString(returnType) + " call() { return " + expression + "; }}";
 
-            return compileAndCreate(className, source);
+            return compileAndCreate("ExpressionFn0_", source, new ExpressionCompiler(Fn0.class, returnType,
+                    new Class<?>[0], new String[0], expression));
         } catch (Exception e) {
             throw uncheck(e);
         }
@@ -146,14 +207,13 @@ public class LambdaExpressionTrees {
     public static <A1, R> Fn1<A1, R> toFn1(Class<R> returnType, Class<A1> a1Type, String a1Name,
             Expression expression) {
         try {
-            String className = "ExpressionFn1_" + expressionId++;
-
-            String source = "class " + className + " extends " + Fn1.class.getName() + "{ public "
+            String source = " extends " + Fn1.class.getName() + "{ public "
                     + typeToString(returnType) + " call(" + typeToString(a1Type) + " " + a1Name + ") { return "
                     + expression + "; } public " + typeToString(returnType) + " call(Object " + a1Name
                     + ") { return call((" + typeToString(a1Type) + ") " + a1Name + ");  }  }";
 
-            return compileAndCreate(className, source);
+            return compileAndCreate("ExpressionFn1_", source, new ExpressionCompiler(Fn1.class, returnType,
+                    new Class<?>[] { a1Type }, new String[] { a1Name }, expression));
         } catch (Exception e) {
             throw uncheck(e);
         }
@@ -162,16 +222,15 @@ public class LambdaExpressionTrees {
     public static <A1, A2, R> Fn2<A1, A2, R> toFn2(Class<R> returnType, Class<A1> a1Type, String a1Name,
             Class<A2> a2Type, String a2Name, Expression expression) {
         try {
-            String className = "ExpressionFn2_" + expressionId++;
-
-            String source = "class " + className + " extends " + Fn2.class.getName() + "{ public "
+            String source = " extends " + Fn2.class.getName() + "{ public "
                     + typeToString(returnType) + " call(" + typeToString(a1Type) + " " + a1Name + ", "
                     + typeToString(a2Type) + " " + a2Name + ") { return " + expression + "; } public "
                     + typeToString(returnType) + " call(Object " + a1Name + ", Object " + a2Name
                     + ") { return call((" + typeToString(a1Type) + ") " + a1Name + ", (" + typeToString(a2Type)
                     + ") " + a2Name + ");  }  }";
 
-            return compileAndCreate(className, source);
+            return compileAndCreate("ExpressionFn2_", source, new ExpressionCompiler(Fn2.class, returnType,
+                    new Class<?>[] { a1Type, a2Type }, new String[] { a1Name, a2Name }, expression));
         } catch (Exception e) {
             throw uncheck(e);
         }
@@ -180,9 +239,7 @@ public class LambdaExpressionTrees {
     public static <A1, A2, A3, R> Fn3<A1, A2, A3, R> toFn3(Class<R> returnType, Class<A1> a1Type, String a1Name,
             Class<A2> a2Type, String a2Name, Class<A2> a3Type, String a3Name, Expression expression) {
         try {
-            String className = "ExpressionFn3_" + expressionId++;
-
-            String source = "class " + className + " extends " + Fn3.class.getName() + "{ public "
+            String source = " extends " + Fn3.class.getName() + "{ public "
                     + typeToString(returnType) + " call(" + typeToString(a1Type) + " " + a1Name + ", "
                     + typeToString(a2Type) + " " + a2Name + ", " + typeToString(a3Type) + " " + a3Name
                     + ") { return " + expression + "; } public " + typeToString(returnType) + " call(Object "
@@ -190,7 +247,8 @@ public class LambdaExpressionTrees {
                     + typeToString(a1Type) + ") " + a1Name + ", (" + typeToString(a2Type) + ") " + a2Name + ", ("
                     + typeToString(a3Type) + ") " + a3Name + ");  }  }";
 
-            return compileAndCreate(className, source);
+            return compileAndCreate("ExpressionFn3_", source, new ExpressionCompiler(Fn3.class, returnType,
+                    new Class<?>[] { a1Type, a2Type, a3Type }, new String[] { a1Name, a2Name, a3Name }, expression));
         } catch (Exception e) {
             throw uncheck(e);
         }
@@ -200,12 +258,71 @@ public class LambdaExpressionTrees {
         return returnType.isArray() ? returnType.getComponentType().getName() + "[]" : returnType.getName();
     }
 
+    /**
+     * Generates the class for the expression directly with ASM, falling back
+     * to compiling "class " + a new class name + source when the expression is
+     * not supported by the {@link ExpressionCompiler}, unless the same source
+     * has already been compiled with the same prefix, in which case the
+     * existing class is reused. The functions are stateless, so identical
+     * expressions can share a class. Each class is defined in a class loader
+     * of its own, so it can be unloaded once evicted from the cache.
+     */
     @SuppressWarnings("unchecked")
-    static <R extends Fn0<?>> R compileAndCreate(String className, String source) throws IOException,
-            InstantiationException, IllegalAccessException, InvocationTargetException {
-        Class<?> aClass = compiler.compile(className, source);
+    static <R extends Fn0<?>> R compileAndCreate(String classNamePrefix, String source,
+            ExpressionCompiler expressionCompiler) throws IOException, InstantiationException,
+            IllegalAccessException, InvocationTargetException {
+        String key = classNamePrefix + source;
+        Class<?> aClass = compiledExpressions.get(key);
+        if (aClass == null) {
+            synchronized (compiler) {
+                aClass = compiledExpressions.get(key);
+                if (aClass == null) {
+                    String className = classNamePrefix + expressionId++;
+                    ClassLoader loader = new ExpressionClassLoader();
+                    try {
+                        byte[] bs = expressionCompiler.compile(className);
+                        InMemoryCompiler.bytesByClassName.put(loader, className, bs);
+                        new ClassInjector().inject(loader, className, bs);
+                        aClass = Class.forName(className, true, loader);
+                    } catch (UnsupportedExpressionException e) {
+                        aClass = compiler.compile(className, "class " + className + source, loader);
+                    } catch (ClassNotFoundException e) {
+                        throw uncheck(e);
+                    }
+                    if (aClass == null)
+                        throw new IllegalArgumentException("Could not compile " + className + source);
+                    compiledExpressions.put(key, aClass);
+                }
+            }
+        }
         Constructor<?> ctor = aClass.getDeclaredConstructors()[0];
         ctor.setAccessible(true);
         return (R) ctor.newInstance();
     }
+
+    static class ExpressionClassLoader extends ClassLoader {
+        ExpressionClassLoader() {
+            super(LambdaExpressionTrees.class.getClassLoader());
+        }
+    }
+
+    /**
+     * Keeps the classes of the most recently used expressions, so the sources
+     * used as keys and the classes do not accumulate for as long as the
+     * application creates new expressions.
+     */
+    @SuppressWarnings("serial")
+    static class CompiledExpressionsCache extends LinkedHashMap<String, Class<?>> {
+        CompiledExpressionsCache() {
+            super(16, 0.75f, true);
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<String, Class<?>> eldest) {
+            if (size() <= compiledExpressionsCacheSize)
+                return false;
+            Class<?> evicted = eldest.getValue();
+            InMemoryCompiler.bytesByClassName.remove(evicted.getClassLoader(), evicted.getName());
+            return true;
+        }
+    }
 }
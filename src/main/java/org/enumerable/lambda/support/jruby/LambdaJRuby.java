@@ -28,7 +28,7 @@ import org.jruby.runtime.builtin.IRubyObject;
 @SuppressWarnings("serial")
 public class LambdaJRuby {
     public abstract static class RubyProcFnBase extends RubyProc {
-        private Method setup;
+        private static Method setup;
 
         class FnBlockCallback implements BlockCallback {
             public IRubyObject call(ThreadContext context, IRubyObject[] args, Block block) {
@@ -69,7 +69,7 @@ public class LambdaJRuby {
             }
         }
 
-        private Method setup() throws NoSuchMethodException {
+        private static Method setup() throws NoSuchMethodException {
             if (setup == null) {
                 setup = RubyProc.class.getDeclaredMethod("setup", Block.class);
                 setup.setAccessible(true);
@@ -0,0 +1,92 @@
+package org.enumerable.lambda.weaving;
+
+import static java.util.Collections.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the bytecode of generated classes by class name, scoped per
+ * {@link ClassLoader}. The class loaders are weakly referenced, so the bytes
+ * of a loader's classes go away together with the loader. Classes loaded by
+ * the bootstrap loader are kept under the null key.
+ * <p>
+ * Safe to use from several threads, like parallel class loading or
+ * {@link LambdaCompiler}.
+ */
+public class ClassBytesRegistry {
+    final Map<ClassLoader, Map<String, byte[]>> bytesByLoader = synchronizedMap(new WeakHashMap<ClassLoader, Map<String, byte[]>>());
+
+    public void put(ClassLoader loader, String className, byte[] bs) {
+        synchronized (bytesByLoader) {
+            Map<String, byte[]> bytesByClassName = bytesByLoader.get(loader);
+            if (bytesByClassName == null) {
+                bytesByClassName = new ConcurrentHashMap<String, byte[]>();
+                bytesByLoader.put(loader, bytesByClassName);
+            }
+            bytesByClassName.put(className, bs);
+        }
+    }
+
+    public byte[] get(ClassLoader loader, String className) {
+        Map<String, byte[]> bytesByClassName = bytesByLoader.get(loader);
+        if (bytesByClassName == null || className == null)
+            return null;
+        return bytesByClassName.get(className);
+    }
+
+    public byte[] remove(ClassLoader loader, String className) {
+        Map<String, byte[]> bytesByClassName = bytesByLoader.get(loader);
+        if (bytesByClassName == null || className == null)
+            return null;
+        return bytesByClassName.remove(className);
+    }
+
+    /**
+     * Returns a copy of the bytes held for loader, by class name.
+     */
+    public Map<String, byte[]> getAll(ClassLoader loader) {
+        Map<String, byte[]> bytesByClassName = bytesByLoader.get(loader);
+        if (bytesByClassName == null)
+            return new HashMap<String, byte[]>();
+        return new HashMap<String, byte[]>(bytesByClassName);
+    }
+
+    /**
+     * Returns the number of classes held, over all loaders still alive.
+     */
+    public int size() {
+        int size = 0;
+        synchronized (bytesByLoader) {
+            for (Map<String, byte[]> bytesByClassName : bytesByLoader.values())
+                size += bytesByClassName.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes held, over all loaders still alive.
+     */
+    public long byteCount() {
+        long byteCount = 0;
+        synchronized (bytesByLoader) {
+            for (Map<String, byte[]> bytesByClassName : bytesByLoader.values())
+                for (byte[] bs : bytesByClassName.values())
+                    byteCount += bs.length;
+        }
+        return byteCount;
+    }
+
+    /**
+     * Returns the number of class loaders still alive with classes held.
+     */
+    public int loaders() {
+        return bytesByLoader.size();
+    }
+
+    public void clear() {
+        bytesByLoader.clear();
+    }
+}
@@ -21,6 +21,7 @@ public class ClassFilter {
             add("org.eclipse.jdt.internal.");
             add("org.junit.");
             add("junit.");
+            add("org.openjdk.jmh.");
             add("com.sun.");
             add("clojure.");
             add("org.jruby.");
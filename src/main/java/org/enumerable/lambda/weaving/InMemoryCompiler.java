@@ -29,11 +29,16 @@ public class InMemoryCompiler {
         }
     }
 
-    public static Map<String, byte[]> bytesByClassName = new HashMap<String, byte[]>();
-
-    public static void registerLambda(String name, byte[] bs) {
+    /**
+     * The bytes of lambdas and compiled classes, kept so their expression
+     * trees can be parsed from the bytecode. Only populated when expression
+     * support is enabled.
+     */
+    public static ClassBytesRegistry bytesByClassName = new ClassBytesRegistry();
+
+    public static void registerLambda(ClassLoader loader, String name, byte[] bs) {
         if (expressionSupportEnabled)
-            bytesByClassName.put(name, bs);
+            bytesByClassName.put(loader, name, bs);
     }
 
     static JavaCompiler createCompiler() {
@@ -48,20 +53,36 @@ public class InMemoryCompiler {
     }
 
     private boolean debugInfo = true;
+    private StandardJavaFileManager standardFileManager;
     
     public InMemoryCompiler debugInfo(boolean debugInfo){
         this.debugInfo = debugInfo;
         return this;
     }
     
+    /**
+     * Compiles and loads the class. The standard file manager is reused
+     * between calls, so this method is synchronized.
+     */
     public Class<?> compile(String className, String source) throws IOException {
+        return compile(className, source, getClass().getClassLoader());
+    }
+
+    /**
+     * Compiles the class and defines it in loader, which lets a caller give
+     * each class a loader of its own, so it can be unloaded.
+     */
+    public synchronized Class<?> compile(String className, String source, final ClassLoader loader)
+            throws IOException {
         DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
 
-        JavaFileManager manager = new ForwardingJavaFileManager<StandardJavaFileManager>(compiler
-                .getStandardFileManager(null, null, null)) {
+        if (standardFileManager == null)
+            standardFileManager = compiler.getStandardFileManager(null, null, null);
+
+        JavaFileManager manager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager) {
             public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind,
                     FileObject sibling) throws IOException {
-                return new ByteArrayFileObject(className.replace('/', '.'));
+                return new ByteArrayFileObject(loader, className.replace('/', '.'));
             }
         };
 
@@ -84,7 +105,7 @@ public class InMemoryCompiler {
 
         if (success) {
             try {
-                return Class.forName(className);
+                return Class.forName(className, true, loader);
             } catch (ClassNotFoundException e) {
                 throw uncheck(e);
             }
@@ -103,10 +124,12 @@ public class InMemoryCompiler {
     }
 
     static class ByteArrayFileObject extends SimpleJavaFileObject {
+        ClassLoader loader;
         String className;
 
-        ByteArrayFileObject(String className) {
+        ByteArrayFileObject(ClassLoader loader, String className) {
             super(URI.create("file://" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.loader = loader;
             this.className = className;
         }
 
@@ -114,8 +137,8 @@ public class InMemoryCompiler {
             return new ByteArrayOutputStream() {
                 public void close() throws IOException {
                     super.close();
-                    bytesByClassName.put(className, toByteArray());
-                    new ClassInjector().inject(getClass().getClassLoader(), className, toByteArray());
+                    bytesByClassName.put(loader, className, toByteArray());
+                    new ClassInjector().inject(loader, className, toByteArray());
                 }
             };
         }
@@ -3,8 +3,16 @@ package org.enumerable.lambda.weaving;
 import org.enumerable.lambda.weaving.tree.LambdaTreeTransformer;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -21,6 +29,13 @@ import static org.enumerable.lambda.weaving.Version.getVersionString;
  * of class directories/jars and compiles them in place, the originals will be
  * overwritten.
  * <p>
+ * Classes are woven in parallel, using lambda.weaving.aot.threads threads,
+ * defaulting to the number of processors. Jars are streamed entry by entry into
+ * a new jar, keeping the order of the original, with the generated lambdas
+ * written right after the class they were generated from. Directories which
+ * have already been compiled are compiled again incrementally, only weaving the
+ * classes changed since the last compilation.
+ * <p>
  * The classpath must contain all dependencies for the directories/jars when
  * compiling.
  * <p>
@@ -49,104 +64,180 @@ public class LambdaCompiler {
         new LambdaCompiler().compile(args);
     }
 
-    LambdaTreeTransformer transformer = new LambdaTreeTransformer();
-    byte[] buffer = new byte[8 * 1024];
+    static int threads = Integer.getInteger("lambda.weaving.aot.threads", Runtime.getRuntime().availableProcessors());
 
-    void compile(String[] args) throws Exception {
-        for (String name : args) {
-            File file = new File(name);
-            debug("compiling " + file.getPath());
-            if (file.isDirectory()) {
-                compileClassesDirectory(file);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
 
-            } else if (file.getName().endsWith(".jar"))
-                compilieJar(file);
+    void compile(String[] args) throws Exception {
+        try {
+            for (String name : args) {
+                File file = new File(name);
+                debug("compiling " + file.getPath());
+                if (file.isDirectory()) {
+                    compileClassesDirectory(file);
+
+                } else if (file.getName().endsWith(".jar"))
+                    compilieJar(file);
+            }
+        } finally {
+            executor.shutdown();
         }
     }
 
     private void compileClassesDirectory(File file) throws Exception {
         File aotCompiledMarker = new File(file, AOT_COMPILED_MARKER);
+        long changedSince = 0;
         if (aotCompiledMarker.exists()) {
-            out.println(file + " is already compiled, skipping.");
-            return;
+            changedSince = aotCompiledMarker.lastModified();
+            out.println(file + " is already compiled, compiling changed classes.");
+        } else {
+            aotCompiledMarker.getParentFile().mkdir();
+            aotCompiledMarker.createNewFile();
+            ensureCreated(aotCompiledMarker);
         }
-        aotCompiledMarker.getParentFile().mkdir();
-        aotCompiledMarker.createNewFile();
-        ensureCreated(aotCompiledMarker);
 
-        compileDirectory(file);
-        debug("writing generated lambdas in " + file);
-        writeGeneratedLambdas(file);
+        List<File> classes = new ArrayList<File>();
+        findClassesChangedSince(file, changedSince, classes);
+
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (final File classFile : classes)
+            futures.add(executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    compileFile(classFile);
+                    return null;
+                }
+            }));
+        for (Future<Object> future : futures)
+            future.get();
+
+        aotCompiledMarker.setLastModified(currentTimeMillis());
     }
 
-    void compileDirectory(File dir) throws Exception {
+    void findClassesChangedSince(File dir, long changedSince, List<File> classes) {
         for (File file : dir.listFiles())
-            if (file.getName().endsWith(".class"))
-                compileFile(file);
+            if (file.getName().endsWith(".class") && file.lastModified() >= changedSince)
+                classes.add(file);
             else if (file.isDirectory())
-                compileDirectory(file);
+                findClassesChangedSince(file, changedSince, classes);
     }
 
     void compileFile(File file) throws Exception {
-        FileInputStream in = null;
-        FileOutputStream out = null;
-        try {
-            in = new FileInputStream(file);
-            byte[] bs = transformer.transform(ClassLoader.getSystemClassLoader(), createClassFilter(), null, in);
-            in.close();
-            if (bs != null) {
-                out = new FileOutputStream(file);
-                out.write(bs);
-            }
-        } finally {
-            if (in != null)
-                try {
-                    in.close();
-                } catch (IOException silent) {
-                }
-            if (out != null)
-                try {
-                    out.close();
-                } catch (IOException silent) {
-                }
+        WovenClass woven = transform(readFully(new FileInputStream(file)));
+        if (woven.lambdasByClassName.isEmpty())
+            return;
+
+        write(file, woven.bytes);
+        for (Map.Entry<String, byte[]> lambdaClass : woven.lambdasByClassName.entrySet())
+            write(new File(file.getParentFile(), getSimpleName(lambdaClass.getKey()) + ".class"), lambdaClass
+                    .getValue());
+    }
+
+    WovenClass transform(byte[] bs) throws Exception {
+        LambdaTreeTransformer transformer = new LambdaTreeTransformer(true);
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        byte[] transformed = transformer.transform(loader, createClassFilter(), null, new ByteArrayInputStream(bs));
+        if (transformed == null)
+            return new WovenClass(bs, new TreeMap<String, byte[]>());
+        return new WovenClass(transformed, new TreeMap<String, byte[]>(transformer.getLambdasByClassName(loader)));
+    }
+
+    static class WovenClass {
+        byte[] bytes;
+        Map<String, byte[]> lambdasByClassName;
+
+        WovenClass(byte[] bytes, Map<String, byte[]> lambdasByClassName) {
+            this.bytes = bytes;
+            this.lambdasByClassName = lambdasByClassName;
         }
     }
 
     void compilieJar(File jar) throws Exception {
         try {
             JarFile jarFile = new JarFile(jar);
+            File newJar = new File(jar.getAbsolutePath() + ".aot");
+            try {
+                if (jarFile.getEntry(AOT_COMPILED_MARKER) != null) {
+                    out.println(jar + " is already compiled, skipping.");
+                    return;
+                }
 
-            if (jarFile.getEntry(AOT_COMPILED_MARKER) != null) {
-                out.println(jar + " is already compiled, skipping.");
-                return;
+                JarOutputStream out = new JarOutputStream(new FileOutputStream(newJar));
+                try {
+                    compileJarEntries(jarFile, out);
+                    out.putNextEntry(new JarEntry(AOT_COMPILED_MARKER));
+                    out.closeEntry();
+                } finally {
+                    out.close();
+                }
+            } finally {
+                jarFile.close();
             }
 
-            File tempDir = unjar(jarFile);
-
-            File aotCompiledMarker = new File(tempDir, AOT_COMPILED_MARKER);
-            aotCompiledMarker.getParentFile().mkdir();
-            aotCompiledMarker.createNewFile();
-            ensureCreated(aotCompiledMarker);
-
-            compileDirectory(tempDir);
-            debug("writing generated lambdas in " + jar);
-            writeGeneratedLambdas(tempDir);
-
-            File newJar = jar(tempDir);
-
             File bak = new File(jar.getAbsolutePath() + ".bak");
             rename(jar, bak);
             ensureCreated(bak);
             rename(newJar, jar);
             ensureCreated(jar);
             delete(bak);
-
-            delete(tempDir);
         } catch (Exception e) {
             throw uncheck(e);
         }
     }
 
+    /**
+     * Reads the entries in order and weaves the classes in the background,
+     * writing each entry once it and all entries before it are done. At most a
+     * few entries per thread are held in memory at any time.
+     */
+    void compileJarEntries(JarFile jarFile, JarOutputStream out) throws Exception {
+        LinkedList<Future<WovenEntry>> pending = new LinkedList<Future<WovenEntry>>();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            final JarEntry jarEntry = entries.nextElement();
+            final byte[] bs = jarEntry.isDirectory() ? null : readFully(jarFile.getInputStream(jarEntry));
+
+            pending.add(executor.submit(new Callable<WovenEntry>() {
+                public WovenEntry call() throws Exception {
+                    if (bs != null && jarEntry.getName().endsWith(".class"))
+                        return new WovenEntry(jarEntry, transform(bs));
+                    return new WovenEntry(jarEntry, new WovenClass(bs, new TreeMap<String, byte[]>()));
+                }
+            }));
+
+            if (pending.size() > threads * 4)
+                pending.removeFirst().get().write(out);
+        }
+        while (!pending.isEmpty())
+            pending.removeFirst().get().write(out);
+    }
+
+    class WovenEntry {
+        JarEntry jarEntry;
+        WovenClass woven;
+
+        WovenEntry(JarEntry jarEntry, WovenClass woven) {
+            this.jarEntry = jarEntry;
+            this.woven = woven;
+        }
+
+        void write(JarOutputStream out) throws IOException {
+            JarEntry newEntry = new JarEntry(jarEntry.getName());
+            newEntry.setTime(jarEntry.getTime());
+            out.putNextEntry(newEntry);
+            if (woven.bytes != null)
+                out.write(woven.bytes);
+            out.closeEntry();
+
+            for (Map.Entry<String, byte[]> lambdaClass : woven.lambdasByClassName.entrySet()) {
+                JarEntry lambdaEntry = new JarEntry(lambdaClass.getKey().replace('.', '/') + ".class");
+                lambdaEntry.setTime(jarEntry.getTime());
+                out.putNextEntry(lambdaEntry);
+                out.write(lambdaClass.getValue());
+                out.closeEntry();
+            }
+        }
+    }
+
     private void rename(File from, File to) {
         if (!from.renameTo(to)) throw new IllegalStateException("Could not rename " + from + " to " + to);
     }
@@ -162,104 +253,29 @@ public class LambdaCompiler {
         if (!file.isFile()) throw new IllegalStateException("Could not create " + file);
     }
 
-    void ensureDirCreated(File dir) throws IOException {
-        if (!dir.mkdir()) throw new IOException("Could not create directory " + dir);
+    String getSimpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
     }
 
-    void writeGeneratedLambdas(File tempDir) throws IOException {
-        for (Map.Entry<String, byte[]> lambdaClass : transformer.getLambdasByClassName().entrySet()) {
-            File lambdaFile = new File(tempDir, lambdaClass.getKey().replace('.', '/'));
-            FileOutputStream out = null;
-            try {
-                out = new FileOutputStream(lambdaFile + ".class");
-                out.write(lambdaClass.getValue());
-            } finally {
-                if (out != null)
-                    out.close();
-            }
-
-        }
-    }
-
-    File jar(File dir) throws Exception {
-        File newJar = new File(dir.getAbsolutePath() + ".jar");
-        JarOutputStream out = null;
+    byte[] readFully(InputStream in) throws IOException {
         try {
-            out = new JarOutputStream(new FileOutputStream(newJar));
-            addDirToJar(dir, dir, out);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
         } finally {
-            if (out != null)
-                out.close();
-        }
-        return newJar;
-    }
-
-    void addDirToJar(File baseDir, File dir, JarOutputStream out) throws IOException {
-        for (File file : dir.listFiles()) {
-            String nameInJar = file.getPath().substring(baseDir.getPath().length() + 1).replace(File.separatorChar,
-                    '/');
-
-            if (file.isDirectory()) {
-                JarEntry jarEntry = new JarEntry(nameInJar.endsWith("/") ? nameInJar : nameInJar + "/");
-                jarEntry.setTime(file.lastModified());
-                out.putNextEntry(jarEntry);
-                out.closeEntry();
-                addDirToJar(baseDir, file, out);
-
-            } else {
-                JarEntry jarEntry = new JarEntry(nameInJar);
-                jarEntry.setTime(file.lastModified());
-                out.putNextEntry(jarEntry);
-
-                InputStream in = null;
-                try {
-                    in = new FileInputStream(file);
-                    int read;
-                    while ((read = in.read(buffer)) != -1)
-                        out.write(buffer, 0, read);
-                    out.closeEntry();
-                } finally {
-                    if (in != null)
-                        in.close();
-                }
-            }
+            in.close();
         }
     }
 
-    File unjar(JarFile jarFile) throws IOException {
-        InputStream in = null;
-        OutputStream out = null;
-
-        File tempDir = new File(getProperty("java.io.tmpdir"), new File(jarFile.getName()).getName() + "-" + currentTimeMillis());
-        ensureDirCreated(tempDir);
-
+    void write(File file, byte[] bs) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
         try {
-            Enumeration<JarEntry> entries = jarFile.entries();
-            while (entries.hasMoreElements()) {
-
-                JarEntry jarEntry = entries.nextElement();
-
-                File file = new File(tempDir, jarEntry.getName());
-                if (jarEntry.isDirectory()) {
-                    file.mkdir();
-                } else {
-                    file.getParentFile().mkdirs();
-
-                    in = jarFile.getInputStream(jarEntry);
-                    out = new FileOutputStream(file);
-                    int read;
-                    while ((read = in.read(buffer)) != -1)
-                        out.write(buffer, 0, read);
-                    out.flush();
-                }
-            }
-            return tempDir;
+            out.write(bs);
         } finally {
-            if (out != null)
-                out.close();
-            if (in != null)
-                in.close();
-            jarFile.close();
+            out.close();
         }
     }
 }
@@ -16,6 +16,7 @@ import static org.enumerable.lambda.weaving.Debug.debug;
  *  lambda.weaving.annotation.newlambda=org.enumerable.lambda.annotation.NewLambda
  *  lambda.weaving.annotation.lambdaparameter=org.enumerable.lambda.annotation.LambdaParameter
  *  lambda.weaving.annotation.lambdalocal=org.enumerable.lambda.annotation.LambdaLocal
+ *  lambda.weaving.annotation.atomiclambdalocals=org.enumerable.lambda.annotation.AtomicLambdaLocals
  *
  * </code>
  * </p>
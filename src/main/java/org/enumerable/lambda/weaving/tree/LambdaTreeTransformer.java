@@ -1,8 +1,10 @@
 package org.enumerable.lambda.weaving.tree;
 
+import org.enumerable.lambda.weaving.ClassBytesRegistry;
 import org.enumerable.lambda.weaving.ClassFilter;
 import org.enumerable.lambda.weaving.ClassInjector;
 import org.enumerable.lambda.weaving.InMemoryCompiler;
+import org.enumerable.lambda.weaving.LambdaLoader;
 import org.enumerable.lambda.weaving.tree.LambdaTreeWeaver.MethodAnalyzer.LambdaAnalyzer;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
@@ -10,35 +12,94 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static java.util.Collections.synchronizedMap;
 import static org.enumerable.lambda.weaving.Debug.debug;
 import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
 import static org.objectweb.asm.Type.getObjectType;
 
 public class LambdaTreeTransformer implements Opcodes {
-    Map<String, byte[]> lambdasByClassName = new HashMap<String, byte[]>();
+    static boolean lazyLambdas = Boolean.valueOf(System.getProperty("lambda.weaving.lazy"));
+
+    ClassBytesRegistry lambdas = new ClassBytesRegistry();
+    Map<ClassLoader, Map<String, ClassNode>> pendingLambdasByLoader = synchronizedMap(new WeakHashMap<ClassLoader, Map<String, ClassNode>>());
 
     ClassInjector injector = new ClassInjector();
 
+    boolean retainLambdas;
+
     public LambdaTreeTransformer() {
+        this(false);
+    }
+
+    /**
+     * If retainLambdas is true, the bytes of the generated lambdas are kept
+     * after they have been injected, see {@link #getLambdasByClassName}.
+     * Otherwise they are only kept until they have been defined in their class
+     * loader.
+     */
+    public LambdaTreeTransformer(boolean retainLambdas) {
+        this.retainLambdas = retainLambdas;
         debug("current class loader is " + getClass().getClassLoader());
     }
 
-    public Map<String, byte[]> getLambdasByClassName() {
-        return lambdasByClassName;
+    public Map<String, byte[]> getLambdasByClassName(ClassLoader loader) {
+        return lambdas.getAll(loader);
+    }
+
+    public ClassBytesRegistry getLambdas() {
+        return lambdas;
+    }
+
+    /**
+     * Returns the number of lambdas which have been woven but not yet
+     * requested by their class loader, see {@link #isLazy(ClassLoader)}.
+     */
+    public int getPendingLambdaCount(ClassLoader loader) {
+        Map<String, ClassNode> pendingLambdas = pendingLambdasByLoader.get(loader);
+        return pendingLambdas == null ? 0 : pendingLambdas.size();
+    }
+
+    /**
+     * With lambda.weaving.lazy=true, lambdas woven for a {@link LambdaLoader}
+     * are not written or defined until the loader first asks for them, so
+     * lambdas which are never used are never generated. This requires the
+     * classes to be loaded through a LambdaLoader, like when using
+     * {@link LambdaLoader#launchApplication(String, String[])}. Other class
+     * loaders, including all loaders seen by the java agent, don't ask the
+     * transformer for classes they cannot find, so their lambdas are always
+     * injected up front.
+     * <p>
+     * A pending lambda is released as soon as its class has been generated.
+     */
+    boolean isLazy(ClassLoader loader) {
+        return lazyLambdas && loader instanceof LambdaLoader;
     }
 
     public byte[] transform(ClassLoader loader, ClassFilter filter, String name, InputStream in) throws Exception {
-        if (lambdasByClassName.containsKey(name)) {
+        byte[] lambda = lambdas.get(loader, name);
+        if (lambda != null) {
             debug("generated lambda requested by the class loader " + name);
-            return lambdasByClassName.get(name);
+            return lambda;
+        }
+
+        ClassNode pendingLambda = name == null ? null : pendingLambdaFor(loader, name);
+        if (pendingLambda != null) {
+            debug("generating lambda requested by the class loader " + name);
+            byte[] bs = writeLambdaClass(loader, name, pendingLambda);
+            removePendingLambda(loader, name);
+            return bs;
         }
 
         ClassReader cr = new ClassReader(in);
         name = cr.getClassName();
 
+        if (!LambdaTreeWeaver.mayHaveLambdas(loader, cr))
+            return null;
+
         LambdaTreeWeaver weaver = new LambdaTreeWeaver(loader, filter, cr);
         ClassNode cn = weaver.analyze().transform();
 
@@ -53,22 +114,59 @@ public class LambdaTreeTransformer implements Opcodes {
         injector.dump(name, bs);
         injector.verifyIfAsmUtilIsAvailable(bs);
 
-        for (LambdaAnalyzer la : weaver.getLambdas()) {
-            cw = new ClassWriter(COMPUTE_FRAMES);
-            la.lambda.accept(cw);
-            newLambdaClass(loader, getObjectType(la.lambdaClass()).getClassName(), cw.toByteArray());
-        }
+        if (isLazy(loader))
+            for (LambdaAnalyzer la : weaver.getLambdas())
+                pendingLambdasFor(loader).put(getObjectType(la.lambdaClass()).getClassName(), la.lambda);
+        else
+            for (LambdaAnalyzer la : weaver.getLambdas())
+                newLambdaClass(loader, getObjectType(la.lambdaClass()).getClassName(), la.lambda);
 
         return bs;
     }
 
-    void newLambdaClass(ClassLoader loader, String name, byte[] bs) {
-        lambdasByClassName.put(name, bs);
-        
-        InMemoryCompiler.registerLambda(name, bs);
+    Map<String, ClassNode> pendingLambdasFor(ClassLoader loader) {
+        synchronized (pendingLambdasByLoader) {
+            Map<String, ClassNode> pendingLambdas = pendingLambdasByLoader.get(loader);
+            if (pendingLambdas == null) {
+                pendingLambdas = new ConcurrentHashMap<String, ClassNode>();
+                pendingLambdasByLoader.put(loader, pendingLambdas);
+            }
+            return pendingLambdas;
+        }
+    }
+
+    ClassNode pendingLambdaFor(ClassLoader loader, String name) {
+        Map<String, ClassNode> pendingLambdas = pendingLambdasByLoader.get(loader);
+        return pendingLambdas == null ? null : pendingLambdas.get(name);
+    }
+
+    void removePendingLambda(ClassLoader loader, String name) {
+        synchronized (pendingLambdasByLoader) {
+            Map<String, ClassNode> pendingLambdas = pendingLambdasByLoader.get(loader);
+            if (pendingLambdas == null)
+                return;
+            pendingLambdas.remove(name);
+            if (pendingLambdas.isEmpty())
+                pendingLambdasByLoader.remove(loader);
+        }
+    }
+
+    byte[] writeLambdaClass(ClassLoader loader, String name, ClassNode lambda) {
+        ClassWriter cw = new ClassWriter(COMPUTE_FRAMES);
+        lambda.accept(cw);
+        byte[] bs = cw.toByteArray();
+
+        InMemoryCompiler.registerLambda(loader, name, bs);
 
         injector.dump(name, bs);
         injector.verifyIfAsmUtilIsAvailable(bs);
+        return bs;
+    }
+
+    void newLambdaClass(ClassLoader loader, String name, ClassNode lambda) {
+        byte[] bs = writeLambdaClass(loader, name, lambda);
+        if (loader == null || retainLambdas)
+            lambdas.put(loader, name, bs);
         if (loader != null)
             injector.inject(loader, name, bs);
     }
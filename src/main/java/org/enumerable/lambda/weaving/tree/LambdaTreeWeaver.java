@@ -16,9 +16,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static java.lang.System.out;
 import static java.util.Arrays.asList;
+import static java.util.Collections.synchronizedMap;
 import static org.enumerable.lambda.exception.UncheckedException.uncheck;
 import static org.enumerable.lambda.weaving.Debug.*;
 import static org.objectweb.asm.ClassReader.*;
@@ -29,9 +33,21 @@ class LambdaTreeWeaver implements Opcodes {
     static Type newLambdaAnnotation = getConfigurableAnnotationType("lambda.weaving.annotation.newlambda", false);
     static Type lambdaParameterAnnotation = getConfigurableAnnotationType("lambda.weaving.annotation.lambdaparameter", false);
     static Type lambdaLocalAnnotation = getConfigurableAnnotationType("lambda.weaving.annotation.lambdalocal", true);
+    static Type atomicLambdaLocalsAnnotation = getConfigurableAnnotationType("lambda.weaving.annotation.atomiclambdalocals", true);
 
+    static int classNodeCacheSize = Integer.getInteger("lambda.weaving.class.cache.size", 1024);
+    static boolean singletonLambdas = Boolean.valueOf(System.getProperty("lambda.weaving.singletons", "true"));
+    static boolean primitiveLambdas = Boolean.valueOf(System.getProperty("lambda.weaving.primitives", "true"));
+    static boolean atomicLambdaLocals = Boolean.valueOf(System.getProperty("lambda.weaving.atomic.locals", "false"));
+    static Map<ClassLoader, Map<String, ClassNode>> classNodesByLoader = synchronizedMap(new WeakHashMap<ClassLoader, Map<String, ClassNode>>());
+    static Map<ClassLoader, Map<String, Boolean>> lambdaOwnersByLoader = synchronizedMap(new WeakHashMap<ClassLoader, Map<String, Boolean>>());
+
+    static final int FIELDREF = 9;
+    static final int METHODREF = 10;
+    static final int INTERFACE_METHODREF = 11;
 
     ClassNode c;
+    boolean atomicLocals;
     int currentLambdaId = 1;
     List<MethodAnalyzer> methods = new ArrayList<MethodAnalyzer>();
 
@@ -59,6 +75,7 @@ class LambdaTreeWeaver implements Opcodes {
 
             c = new ClassNode();
             cr.accept(c, 0);
+            atomicLocals = atomicLambdaLocals || hasAnnotation(c, atomicLambdaLocalsAnnotation);
 
             devDebug(c.name);
             devDebug("");
@@ -155,6 +172,12 @@ class LambdaTreeWeaver implements Opcodes {
 
                     lambda.instantiate(m, null);
 
+                } else if (isAtomicIncrementOfLocal(instructions, i, instructions.size())) {
+                    IincInsnNode iinc = atomicIncrementOfLocal(instructions, i);
+                    loadArrayFromLocal(m, getLocalVariable(iinc.var));
+                    atomicIncrementInArray(m, iinc, n.getType() == VAR_INSN);
+                    i++;
+
                 } else if (n.getType() == VAR_INSN) {
                     VarInsnNode vin = (VarInsnNode) n;
                     LocalVariableNode local = getLocalVariable(vin.var);
@@ -257,6 +280,8 @@ class LambdaTreeWeaver implements Opcodes {
 
             while (arguments-- > 0) {
                 int start = findInstructionWithRelativeStackDepthOf(end, -1);
+                if (arguments > 0)
+                    start = includePrefixIncrementOfLocal(start);
                 argumentRanges.add(0, new int[] { start, end - 1 });
                 end = start;
             }
@@ -264,6 +289,23 @@ class LambdaTreeWeaver implements Opcodes {
             return argumentRanges;
         }
 
+        /**
+         * In atomic mode, ++local is compiled as an iinc of the local followed
+         * by a load of it. The iinc doesn't change the stack, so it is included
+         * in the argument starting with the load if it directly precedes it.
+         * This is only called for arguments after the first, where the iinc
+         * has to be part of the lambda call, as an iinc before the first
+         * argument can't be told apart from a separate local++ statement.
+         */
+        int includePrefixIncrementOfLocal(int start) {
+            if (!atomicLocals || start == 0 || m.instructions.get(start).getOpcode() != ILOAD)
+                return start;
+            AbstractInsnNode n = m.instructions.get(start - 1);
+            if (n.getType() == IINC_INSN && ((IincInsnNode) n).var == ((VarInsnNode) m.instructions.get(start)).var)
+                return start - 1;
+            return start;
+        }
+
         int findInstructionWithRelativeStackDepthOf(int index, int relativeDepth) {
             if (relativeDepth == 0)
                 return index;
@@ -353,7 +395,15 @@ class LambdaTreeWeaver implements Opcodes {
 
         void loadFirstElementOfArray(MethodVisitor mv, Type type) {
             mv.visitInsn(ICONST_0);
-            mv.visitInsn(type.getOpcode(IALOAD));
+            Type atomicArrayType = toAtomicArrayType(type);
+            if (atomicArrayType != null) {
+                Type elementType = toAtomicElementType(type);
+                mv.visitMethodInsn(INVOKEVIRTUAL, atomicArrayType.getInternalName(), "get", getMethodDescriptor(
+                        elementType, new Type[] { INT_TYPE }));
+                if (!type.equals(elementType))
+                    mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+            } else
+                mv.visitInsn(type.getOpcode(IALOAD));
         }
 
         void storeTopOfStackInArray(MethodVisitor mv, Type type) {
@@ -366,7 +416,16 @@ class LambdaTreeWeaver implements Opcodes {
             // a[] 0 x a[] 0
             mv.visitInsn(POP2);
             // a[] 0 x
-            mv.visitInsn(type.getOpcode(IASTORE));
+            storeInArray(mv, type);
+        }
+
+        void storeInArray(MethodVisitor mv, Type type) {
+            Type atomicArrayType = toAtomicArrayType(type);
+            if (atomicArrayType != null)
+                mv.visitMethodInsn(INVOKEVIRTUAL, atomicArrayType.getInternalName(), "set", getMethodDescriptor(
+                        VOID_TYPE, new Type[] { INT_TYPE, toAtomicElementType(type) }));
+            else
+                mv.visitInsn(type.getOpcode(IASTORE));
         }
 
         Map<String, LocalVariableNode> getLocalsMutableFromLambdas() {
@@ -403,11 +462,24 @@ class LambdaTreeWeaver implements Opcodes {
             // a[] a[] 0
             mv.visitVarInsn(type.getOpcode(ILOAD), index);
             // a[] a[] 0 x
-            mv.visitInsn(type.getOpcode(IASTORE));
+            storeInArray(mv, type);
             // a[]
         }
 
         void newArray(MethodVisitor mv, Type type) {
+            Type atomicArrayType = toAtomicArrayType(type);
+            if (atomicArrayType != null) {
+                // 1
+                mv.visitTypeInsn(NEW, atomicArrayType.getInternalName());
+                // 1 a[]
+                mv.visitInsn(DUP_X1);
+                // a[] 1 a[]
+                mv.visitInsn(SWAP);
+                // a[] a[] 1
+                mv.visitMethodInsn(INVOKESPECIAL, atomicArrayType.getInternalName(), "<init>", "(I)V");
+                // a[]
+                return;
+            }
             int arrayType;
             switch (type.getSort()) {
             case Type.BOOLEAN:
@@ -442,6 +514,17 @@ class LambdaTreeWeaver implements Opcodes {
         }
 
         void incrementInArray(MethodVisitor mv, int increment) {
+            if (atomicLocals) {
+                // a[]
+                mv.visitInsn(ICONST_0);
+                // a[] 0
+                loadInt(mv, increment);
+                // a[] 0 i
+                addInAtomicArray(mv, INT_TYPE, false);
+                // a+i
+                mv.visitInsn(POP);
+                return;
+            }
             // a[]
             mv.visitInsn(ICONST_0);
             // a[] 0
@@ -456,6 +539,55 @@ class LambdaTreeWeaver implements Opcodes {
             mv.visitInsn(IASTORE);
         }
 
+        /**
+         * In atomic mode, returns true if the instruction at start and the next
+         * one are local++ or ++local on a mutable int local whose value is used,
+         * compiled as a load of the local followed by an iinc of it, or the
+         * other way around. Both have to be done by one atomic update, or two
+         * threads could see the same value.
+         */
+        boolean isAtomicIncrementOfLocal(InsnList instructions, int start, int end) {
+            if (!atomicLocals || start + 1 >= end)
+                return false;
+            if (currentLambda < lambdas.size() && start + 1 == lambdas.get(currentLambda).getStart())
+                return false;
+            IincInsnNode iinc = atomicIncrementOfLocal(instructions, start);
+            if (iinc == null)
+                return false;
+            LocalVariableNode local = getLocalVariable(iinc.var);
+            return local != null && getLocalsMutableFromLambdas().containsKey(local.name);
+        }
+
+        IincInsnNode atomicIncrementOfLocal(InsnList instructions, int start) {
+            AbstractInsnNode first = instructions.get(start);
+            AbstractInsnNode second = instructions.get(start + 1);
+            if (first.getOpcode() == ILOAD && second.getType() == IINC_INSN) {
+                IincInsnNode iinc = (IincInsnNode) second;
+                return ((VarInsnNode) first).var == iinc.var ? iinc : null;
+            }
+            if (first.getType() == IINC_INSN && second.getOpcode() == ILOAD) {
+                IincInsnNode iinc = (IincInsnNode) first;
+                return ((VarInsnNode) second).var == iinc.var ? iinc : null;
+            }
+            return null;
+        }
+
+        void atomicIncrementInArray(MethodVisitor mv, IincInsnNode iinc, boolean postfix) {
+            debug("variable " + getLocalVariable(iinc.var).name + " int atomically incremented and read");
+            // a[]
+            mv.visitInsn(ICONST_0);
+            // a[] 0
+            loadInt(mv, iinc.incr);
+            // a[] 0 i
+            addInAtomicArray(mv, INT_TYPE, postfix);
+            // a or a+i
+        }
+
+        void addInAtomicArray(MethodVisitor mv, Type type, boolean returnPrevious) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, toAtomicArrayType(type).getInternalName(), returnPrevious ? "getAndAdd"
+                    : "addAndGet", getMethodDescriptor(type, new Type[] { INT_TYPE, type }));
+        }
+
         void loadInt(MethodVisitor mv, int value) {
             if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
                 mv.visitIntInsn(Opcodes.BIPUSH, value);
@@ -487,6 +619,8 @@ class LambdaTreeWeaver implements Opcodes {
 
             List<int[]> argumentRanges;
 
+            boolean unboxedExpression;
+
             Method sam;
             ClassNode lambda;
             MethodNode saMn;
@@ -521,6 +655,8 @@ class LambdaTreeWeaver implements Opcodes {
                 lambda.visitSource(c.sourceFile, null);
 
                 createLambdaConstructor();
+                if (isSingleton())
+                    createSingletonField();
                 createSAMethod();
 
                 for (String parameter : parametersWithDefaultValue) {
@@ -545,8 +681,21 @@ class LambdaTreeWeaver implements Opcodes {
 
                         la.transform(instructions);
                         la.instantiate(saMn, this);
-                    } else if (isInSAMBody(i))
-                        handleInsnNodeInSAM(saMn, n);
+                    } else if (isInSAMBody(i)) {
+                        int store = findAtomicAddToLocal(instructions, i);
+                        if (store == -1 && isInSAMBody(i + 1) && isAtomicIncrementOfLocal(instructions, i, getEnd())) {
+                            IincInsnNode iinc = atomicIncrementOfLocal(instructions, i);
+                            LocalVariableNode local = getLocalVariable(iinc.var);
+                            loadLambdaField(saMn, local, toArrayType(getType(local.desc)));
+                            atomicIncrementInArray(saMn, iinc, n.getType() == VAR_INSN);
+                            i++;
+                        } else if (store == -1) {
+                            handleInsnNodeInSAM(saMn, n);
+                        } else {
+                            atomicAddToLocal(saMn, instructions, i, store);
+                            i = store;
+                        }
+                    }
                 }
 
                 returnFromSAMethod();
@@ -629,6 +778,106 @@ class LambdaTreeWeaver implements Opcodes {
                 }
             }
 
+            /**
+             * In atomic mode, finds local += expression or local -= expression
+             * on a mutable int or long local starting at start, compiled as a
+             * load of the local, the expression, the add or sub, an optional
+             * dup of the result and a store to the local. A long local++ used
+             * as a value is compiled with a dup of the loaded value instead,
+             * which is returned by getAndAdd. Returns the index of
+             * the store, or -1. The stack may not go below the loaded value
+             * while the expression is evaluated, which is straight line code
+             * not touching the local itself.
+             */
+            int findAtomicAddToLocal(InsnList instructions, int start) {
+                if (!atomicLocals || instructions.get(start).getType() != VAR_INSN)
+                    return -1;
+                VarInsnNode load = (VarInsnNode) instructions.get(start);
+                LocalVariableNode local = getLocalVariable(load.var);
+                if (local == null || isStoreInstruction(load) || !getLocalsMutableFromLambdas().containsKey(local.name))
+                    return -1;
+                Type type = getType(local.desc);
+                if (type.getSort() != Type.INT && type.getSort() != Type.LONG)
+                    return -1;
+
+                int depth = getStackSize(start);
+                int from = start + 1;
+                boolean postfix = isDupOf(instructions.get(from), type);
+                if (postfix) {
+                    from++;
+                    depth++;
+                }
+                for (int i = from; i < getEnd(); i++) {
+                    if (currentLambda < lambdas.size() && i >= lambdas.get(currentLambda).getStart())
+                        return -1;
+                    if (i > from && getStackSize(i) < depth + 2)
+                        return -1;
+
+                    AbstractInsnNode n = instructions.get(i);
+                    int opcode = n.getOpcode();
+                    if (getStackSize(i) == depth + 2
+                            && (opcode == type.getOpcode(IADD) || opcode == type.getOpcode(ISUB))) {
+                        int store = i + 1;
+                        if (!postfix && isDupOf(instructions.get(store), type))
+                            store++;
+                        if (store < getEnd() && isInSAMBody(store) && instructions.get(store).getType() == VAR_INSN
+                                && ((VarInsnNode) instructions.get(store)).var == load.var
+                                && instructions.get(store).getOpcode() == type.getOpcode(ISTORE))
+                            return store;
+                        return -1;
+                    }
+
+                    switch (n.getType()) {
+                    case LABEL:
+                    case FRAME:
+                    case JUMP_INSN:
+                    case TABLESWITCH_INSN:
+                    case LOOKUPSWITCH_INSN:
+                        return -1;
+                    case VAR_INSN:
+                        if (((VarInsnNode) n).var == load.var)
+                            return -1;
+                        break;
+                    case IINC_INSN:
+                        if (((IincInsnNode) n).var == load.var)
+                            return -1;
+                        break;
+                    }
+                    if (opcode >= POP && opcode <= SWAP)
+                        return -1;
+                }
+                return -1;
+            }
+
+            void atomicAddToLocal(MethodVisitor mv, InsnList instructions, int start, int store) throws IOException {
+                LocalVariableNode local = getLocalVariable(((VarInsnNode) instructions.get(start)).var);
+                Type type = getType(local.desc);
+                boolean postfix = isDupOf(instructions.get(start + 1), type);
+                boolean resultUsed = postfix || isDupOf(instructions.get(store - 1), type);
+                int add = resultUsed && !postfix ? store - 2 : store - 1;
+
+                debug("variable " + local.name + " " + getSimpleClassName(type) + " atomically added to in lambda field "
+                        + getFieldNameForLocal(local));
+
+                loadLambdaField(mv, local, toArrayType(type));
+                // a[]
+                mv.visitInsn(ICONST_0);
+                // a[] 0
+                for (int i = postfix ? start + 2 : start + 1; i < add; i++)
+                    handleInsnNodeInSAM(mv, instructions.get(i));
+                // a[] 0 x
+                if (instructions.get(add).getOpcode() == type.getOpcode(ISUB))
+                    mv.visitInsn(type.getOpcode(INEG));
+                addInAtomicArray(mv, type, postfix);
+                // a or a+x
+                if (!resultUsed)
+                    mv.visitInsn(type.getSize() == 2 ? POP2 : POP);
+            }
+
+            boolean isDupOf(AbstractInsnNode n, Type type) {
+                return n.getOpcode() == (type.getSize() == 2 ? DUP2 : DUP);
+            }
+
             void initArray(MethodVisitor mv, Type type, int index) {
                 mv.visitInsn(ICONST_1);
                 newArray(mv, type);
@@ -1008,7 +1257,7 @@ class LambdaTreeWeaver implements Opcodes {
             }
 
             boolean isInSAMBody(int index) {
-                return index >= getBodyStart() && index != getEnd();
+                return index >= getBodyStart() && index != getEnd() && !(unboxedExpression && index == getEnd() - 1);
             }
 
             void createLambdaConstructor() throws IOException {
@@ -1027,7 +1276,53 @@ class LambdaTreeWeaver implements Opcodes {
                 mv.visitEnd();
             }
 
-            void instantiate(MethodVisitor mv, LambdaAnalyzer parentLambda) {
+            /**
+             * A lambda which captures no locals or parent parameters, and whose
+             * super class has no state, is created once, when the lambda class
+             * is initialized, and the call site loads it from a static field
+             * instead of allocating a new instance each time.
+             */
+            @SuppressWarnings("unchecked")
+            boolean isSingleton() throws IOException {
+                if (!singletonLambdas || !locals.isEmpty() || !parentParameters.isEmpty())
+                    return false;
+
+                String superName = getSuperType().getInternalName();
+                while (superName != null && !"java/lang/Object".equals(superName)) {
+                    ClassNode superClass = readClassNoCode(superName);
+                    for (FieldNode f : (List<FieldNode>) superClass.fields)
+                        if (!hasAccess(f, ACC_STATIC))
+                            return false;
+                    superName = superClass.superName;
+                }
+                return true;
+            }
+
+            void createSingletonField() {
+                String descriptor = getObjectType(lambdaClass()).getDescriptor();
+                lambda.visitField(ACC_PUBLIC | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, "instance$", descriptor, null,
+                        null).visitEnd();
+
+                MethodVisitor mv = lambda.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+                mv.visitCode();
+                mv.visitTypeInsn(NEW, lambdaClass());
+                mv.visitInsn(DUP);
+                mv.visitMethodInsn(INVOKESPECIAL, lambdaClass(), "<init>", "()V");
+                mv.visitFieldInsn(PUTSTATIC, lambdaClass(), "instance$", descriptor);
+                mv.visitInsn(RETURN);
+                mv.visitMaxs(0, 0);
+                mv.visitEnd();
+
+                debug("lambda captures nothing, will reuse a single instance");
+            }
+
+            void instantiate(MethodVisitor mv, LambdaAnalyzer parentLambda) throws IOException {
+                if (isSingleton()) {
+                    mv.visitFieldInsn(GETSTATIC, lambdaClass(), "instance$", getObjectType(lambdaClass())
+                            .getDescriptor());
+                    return;
+                }
+
                 mv.visitTypeInsn(NEW, lambdaClass());
                 mv.visitInsn(DUP);
 
@@ -1228,6 +1523,8 @@ class LambdaTreeWeaver implements Opcodes {
                             + (i == argumentRanges.size() - 1 ? "body: " : "argument " + parameter + ": ")
                             + range[0] + " -> " + range[1]);                    
                 }
+                specializeForPrimitives();
+
                 devDebug("    type: " + lambdaType);
                 devDebug("    class: " + lambdaClass());
 
@@ -1252,6 +1549,61 @@ class LambdaTreeWeaver implements Opcodes {
                             + newLambdaParameterTypes.size()  + " at " + sourceAndLine());
             }
 
+            /**
+             * A plain Fn1 or Fn2 whose parameters are all ints, longs, doubles
+             * or booleans, and whose body is a boxed primitive, is woven as the
+             * matching class from the primitives package instead, like
+             * Fn1ItoI. The SAM then becomes call(int), and the boxing of the
+             * body is left out. The boxed call(Integer) is inherited, so the
+             * lambda still works as a normal Fn1, but code which checks for
+             * the primitive class can call it without boxing.
+             */
+            void specializeForPrimitives() throws IOException {
+                String type = lambdaType.getInternalName();
+                if (!primitiveLambdas || getStart() == getEnd() || !parametersWithDefaultValue.isEmpty()
+                        || parameters.size() != newLambdaParameterTypes.size()
+                        || !(type.equals("org/enumerable/lambda/Fn1") || type.equals("org/enumerable/lambda/Fn2")))
+                    return;
+
+                AbstractInsnNode n = m.instructions.get(getEnd() - 1);
+                if (n.getOpcode() != INVOKESTATIC || !"valueOf".equals(((MethodInsnNode) n).name))
+                    return;
+                MethodInsnNode valueOf = (MethodInsnNode) n;
+                Type[] valueOfArguments = getArgumentTypes(valueOf.desc);
+                if (valueOfArguments.length != 1
+                        || !getBoxedType(valueOfArguments[0]).getInternalName().equals(valueOf.owner))
+                    return;
+
+                String specialized = "org/enumerable/lambda/primitives/Fn" + parameters.size();
+                for (Type parameterType : getParameterTypes())
+                    specialized += primitiveLetter(parameterType);
+                specialized += "to" + primitiveLetter(valueOfArguments[0]);
+
+                if (specialized.contains("?") || readClassNoCode(specialized).name == null)
+                    return;
+
+                debug("lambda body and parameters are primitive, specialized " + getSimpleClassName(lambdaType)
+                        + " as " + getSimpleClassName(getObjectType(specialized)));
+
+                lambdaType = getObjectType(specialized);
+                expressionType = valueOfArguments[0];
+                unboxedExpression = true;
+            }
+
+            String primitiveLetter(Type type) {
+                switch (type.getSort()) {
+                case Type.INT:
+                    return "I";
+                case Type.LONG:
+                    return "L";
+                case Type.DOUBLE:
+                    return "D";
+                case Type.BOOLEAN:
+                    return "B";
+                }
+                return "?";
+            }
+
             void devDebugPrintInstructionHeader() {
                 if (!devDebug)
                     return;
@@ -1489,9 +1841,35 @@ class LambdaTreeWeaver implements Opcodes {
     }
 
     Type toArrayType(Type type) {
+        Type atomicArrayType = toAtomicArrayType(type);
+        if (atomicArrayType != null)
+            return atomicArrayType;
         return getType("[" + type.getDescriptor());
     }
 
+    /**
+     * Returns the atomic array type holding a mutable local of type in atomic
+     * mode, or null if it is held in a plain one element array.
+     */
+    Type toAtomicArrayType(Type type) {
+        if (!atomicLocals)
+            return null;
+        switch (type.getSort()) {
+        case Type.INT:
+            return getType(AtomicIntegerArray.class);
+        case Type.LONG:
+            return getType(AtomicLongArray.class);
+        case Type.OBJECT:
+        case Type.ARRAY:
+            return getType(AtomicReferenceArray.class);
+        }
+        return null;
+    }
+
+    Type toAtomicElementType(Type type) {
+        return isReference(type) ? getType(Object.class) : type;
+    }
+
     boolean isReference(Type type) {
         return type.getSort() == OBJECT || type.getSort() == ARRAY;
     }
@@ -1528,9 +1906,115 @@ class LambdaTreeWeaver implements Opcodes {
         return null;
     }
 
+    /**
+     * Reads the class without its code, to look at annotations and access
+     * flags. The result is cached per class loader, as the same classes, like
+     * Lambda and Parameters, are referenced over and over again.
+     */
     ClassNode readClassNoCode(String internalName) throws IOException {
         if (internalName.equals(c.name))
             return c;
+        return readClassNoCode(loader, internalName);
+    }
+
+    static ClassNode readClassNoCode(ClassLoader loader, String internalName) throws IOException {
+        Map<String, ClassNode> classNodes = cacheFor(classNodesByLoader, loader);
+        ClassNode cn = classNodes.get(internalName);
+        if (cn == null) {
+            cn = readClassNoCodeFromLoader(loader, internalName);
+            if (cn.name != null)
+                classNodes.put(internalName, cn);
+        }
+        return cn;
+    }
+
+    /**
+     * Scans the constant pool of the class for fields and methods owned by
+     * classes which declare methods annotated with NewLambda or fields
+     * annotated with LambdaParameter, without parsing the rest of the class.
+     * Classes where this returns false cannot contain any lambdas. The answer
+     * for each owner is cached per class loader.
+     */
+    static boolean mayHaveLambdas(ClassLoader loader, ClassReader cr) throws IOException {
+        Map<String, Boolean> lambdaOwners = cacheFor(lambdaOwnersByLoader, loader);
+        String name = cr.getClassName();
+        char[] buffer = new char[maxStringLength(cr)];
+
+        int items = cr.readUnsignedShort(8);
+        for (int i = 1; i < items; i++) {
+            int index = cr.getItem(i);
+            if (index == 0)
+                continue;
+            int tag = cr.b[index - 1];
+            if (tag != FIELDREF && tag != METHODREF && tag != INTERFACE_METHODREF)
+                continue;
+
+            String owner = cr.readClass(index, buffer);
+            if (owner.startsWith("java/") || owner.startsWith("javax/") || owner.startsWith("["))
+                continue;
+
+            Boolean isLambdaOwner = lambdaOwners.get(owner);
+            if (isLambdaOwner == null) {
+                ClassNode cn = new ClassNode();
+                if (owner.equals(name))
+                    cr.accept(cn, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+                else
+                    cn = readClassNoCodeFromLoader(loader, owner);
+                isLambdaOwner = declaresNewLambdaMethodsOrLambdaParameters(cn);
+                if (!owner.equals(name))
+                    lambdaOwners.put(owner, isLambdaOwner);
+            }
+            if (isLambdaOwner)
+                return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    static boolean declaresNewLambdaMethodsOrLambdaParameters(ClassNode cn) {
+        for (MethodNode m : (List<MethodNode>) cn.methods)
+            if (hasAnnotation(m, newLambdaAnnotation))
+                return true;
+        for (FieldNode f : (List<FieldNode>) cn.fields)
+            if (hasAnnotation(f, lambdaParameterAnnotation))
+                return true;
+        return false;
+    }
+
+    static int maxStringLength(ClassReader cr) {
+        int max = 0;
+        int items = cr.readUnsignedShort(8);
+        for (int i = 1; i < items; i++) {
+            int index = cr.getItem(i);
+            if (index != 0 && cr.b[index - 1] == 1)
+                max = Math.max(max, cr.readUnsignedShort(index));
+        }
+        return max;
+    }
+
+    static <V> Map<String, V> cacheFor(Map<ClassLoader, Map<String, V>> cachesByLoader, ClassLoader loader) {
+        synchronized (cachesByLoader) {
+            Map<String, V> cache = cachesByLoader.get(loader);
+            if (cache == null) {
+                cache = synchronizedMap(new LRUCache<V>());
+                cachesByLoader.put(loader, cache);
+            }
+            return cache;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static class LRUCache<V> extends LinkedHashMap<String, V> {
+        LRUCache() {
+            super(16, 0.75f, true);
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > classNodeCacheSize;
+        }
+    }
+
+    static ClassNode readClassNoCodeFromLoader(ClassLoader loader, String internalName) throws IOException {
         ClassNode cn = new ClassNode();
         String className = getObjectType(internalName).getClassName();
         if (isEnum(className))
@@ -1540,7 +2024,7 @@ class LambdaTreeWeaver implements Opcodes {
         try {
             in = loader.getResourceAsStream(className.replace(".", "/") + ".class");
             if (in == null)
-                debug("could not read: " + className + " for ASM reflection when transforming " + c.name);
+                debug("could not read: " + className + " for ASM reflection");
             new ClassReader(in).accept(cn, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
         } catch (IOException ignore) {
         } finally {
@@ -1550,12 +2034,12 @@ class LambdaTreeWeaver implements Opcodes {
         return cn;
     }
 
-    boolean isEnum(String className) {
+    static boolean isEnum(String className) {
         return className.endsWith("[]");
     }
 
     @SuppressWarnings("unchecked")
-    boolean hasAnnotation(MemberNode mn, Type a) {
+    static boolean hasAnnotation(MemberNode mn, Type a) {
         if (mn.invisibleAnnotations == null)
             return false;
         for (AnnotationNode an : (List<AnnotationNode>) mn.invisibleAnnotations)
@@ -1582,6 +2066,9 @@ class LambdaTreeWeaver implements Opcodes {
     }
 
     static Type getConfigurableAnnotationType(String property, boolean nullable) {
-        return getType("L" + LambdaWeavingProperties.get(property, nullable).replace('.', '/') + ";");
+        String annotation = LambdaWeavingProperties.get(property, nullable);
+        if (annotation == null)
+            return null;
+        return getType("L" + annotation.replace('.', '/') + ";");
     }
 }
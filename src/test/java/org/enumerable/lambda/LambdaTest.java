@@ -1,11 +1,15 @@
 package org.enumerable.lambda;
 
+import org.enumerable.lambda.annotation.AtomicLambdaLocals;
 import org.enumerable.lambda.annotation.LambdaLocal;
 import org.enumerable.lambda.annotation.LambdaParameter;
 import org.enumerable.lambda.annotation.NewLambda;
 import org.enumerable.lambda.exception.LambdaWeavingNotEnabledException;
+import org.enumerable.lambda.primitives.Fn1DtoB;
 import org.enumerable.lambda.primitives.Fn1ItoB;
 import org.enumerable.lambda.primitives.Fn1ItoI;
+import org.enumerable.lambda.primitives.Fn1ItoO;
+import org.enumerable.lambda.primitives.Fn2IItoI;
 import org.junit.Test;
 
 import javax.swing.*;
@@ -19,6 +23,9 @@ import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.Timer;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static java.lang.Thread.sleep;
 import static org.enumerable.lambda.Lambda.delegate;
@@ -250,6 +257,33 @@ public class LambdaTest extends TestBase {
         assertEquals(3, λ(n, m, s, null).arity());
     }
 
+    @Test
+    public void arityIsCheckedOncePerClass() throws Exception {
+        Fn2<Integer, Integer, Integer> nTimesM = λ(n, m = 3, n * m);
+        assertEquals(-2, Fn0.getAndCheckArityForMethod(nTimesM.getClass(), "call"));
+        assertEquals(-2, Fn0.getAndCheckArityForMethod(nTimesM.getClass(), "call"));
+        assertEquals(2, nTimesM.arity());
+    }
+
+    @Test
+    public void lambdasCanBeCreatedFromSeveralThreads() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 1000; j++)
+                        if (λ(n, m = 3, n * m).call(2) == 6)
+                            created.incrementAndGet();
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(4000, created.get());
+    }
+
     @Test
     public void assignLambdaParameter() throws Exception {
         assertEquals(1, λ(n, n = 1).call(5));
@@ -578,6 +612,40 @@ public class LambdaTest extends TestBase {
         assertEquals(3, (int) addToI.call(1));
     }
 
+    @Test
+    public void lambdasWhichCaptureNothingAreOnlyCreatedOnce() throws Exception {
+        List<Fn1<Integer, Integer>> squares = new ArrayList<Fn1<Integer, Integer>>();
+        List<Fn1<Integer, Integer>> adders = new ArrayList<Fn1<Integer, Integer>>();
+        for (int i = 0; i < 2; i++) {
+            squares.add(λ(n, n * n));
+            adders.add(λ(n, n + i));
+        }
+        assertSame(squares.get(0), squares.get(1));
+        assertEquals(9, (int) squares.get(1).call(3));
+
+        assertNotSame(adders.get(0), adders.get(1));
+    }
+
+    @Test
+    public void genericLambdasWithPrimitiveParametersAndBodyAreWovenAsPrimitiveLambdas() throws Exception {
+        Fn1<Integer, Integer> square = Lambda.λ(n, n * n);
+        assertTrue(square instanceof Fn1ItoI);
+        assertEquals(9, ((Fn1ItoI) square).call(3));
+        assertEquals(9, (int) square.call(3));
+
+        Fn2<Integer, Integer, Integer> add = Lambda.λ(n, m, n + m);
+        assertTrue(add instanceof Fn2IItoI);
+        assertEquals(5, (int) add.call(2, 3));
+
+        Fn1<Double, Boolean> positive = Lambda.λ(d, d > 0);
+        assertTrue(positive instanceof Fn1DtoB);
+        assertFalse(positive.call(-1.0));
+
+        Fn1<Integer, String> toString = Lambda.λ(n, "n" + n);
+        assertFalse(toString instanceof Fn1ItoO<?>);
+        assertEquals("n1", toString.call(1));
+    }
+
     @Test
     public void partialApplication() throws Exception {
         Fn3<String, Integer, Integer, String> addWithPrefixString = λ(s, n, m, s + (n + m));
@@ -669,6 +737,113 @@ public class LambdaTest extends TestBase {
         assertFalse(isSumEven.complement().call(1, 2, 1));
     }
 
+    @Test
+    public void memoizationOfFn() throws Exception {
+        MemoCache fibCache = new MemoCache();
+        fib = λ(n, n <= 1 ? n : fib.call(n - 1) + fib.call(n - 2)).memoize(fibCache);
+        assertEquals(55, (int) fib.call(10));
+        assertEquals(11, fibCache.misses());
+        assertEquals(8, fibCache.hits());
+        assertEquals(55, (int) fib.call(10));
+        assertEquals(9, fibCache.hits());
+
+        MemoCache timesCache = new MemoCache(2);
+        Fn2<Integer, Integer, Integer> times = λ(n, m, n * m).memoize(timesCache);
+        assertEquals(2, (int) times.call(1, 2));
+        assertEquals(2, (int) times.call(1, 2));
+        assertEquals(6, (int) times.call(2, 3));
+        assertEquals(12, (int) times.call(3, 4));
+        assertEquals(2, (int) times.call(1, 2));
+        assertEquals(1, timesCache.hits());
+        assertEquals(4, timesCache.misses());
+        assertEquals(2, timesCache.evictions());
+        assertEquals(2, timesCache.size());
+
+        MemoCache concatCache = new MemoCache(10, 200, TimeUnit.MILLISECONDS);
+        Fn3<String, Integer, Integer, String> concat = λ(s, n, m, s + n + m).memoize(concatCache);
+        assertEquals("a12", concat.call("a", 1, 2));
+        assertEquals("a12", concat.call("a", 1, 2));
+        assertEquals("a21", concat.call("a", 2, 1));
+        sleep(250);
+        assertEquals("a12", concat.call("a", 1, 2));
+        assertEquals(1, concatCache.hits());
+        assertEquals(3, concatCache.misses());
+        assertEquals(1, concatCache.evictions());
+    }
+
+    @AtomicLambdaLocals
+    static class AtomicCounter {
+        Fn1<Integer, Integer> increment;
+
+        long[] countFromThreads(int threads, final int times) throws InterruptedException {
+            int calls = 0;
+            int prefixCalls = 0;
+            long ids = 0;
+            long sum = 0;
+            increment = λ(n, calls++);
+            final Fn1<Integer, Integer> increment = this.increment;
+            final Fn1<Integer, Integer> prefixIncrement = λ(n, ++prefixCalls);
+            final Fn1<Integer, Long> nextId = λ(n, ids++);
+            final Fn1<Integer, Long> add = λ(n, sum += n);
+
+            final Set<Object> returned = Collections.synchronizedSet(new HashSet<Object>());
+            List<Thread> workers = new ArrayList<Thread>();
+            for (int i = 0; i < threads; i++)
+                workers.add(new Thread() {
+                    public void run() {
+                        for (int i = 0; i < times; i++) {
+                            returned.add(increment.call(i));
+                            returned.add(-prefixIncrement.call(i));
+                            returned.add(nextId.call(i));
+                            add.call(2);
+                        }
+                    }
+                });
+            for (Thread worker : workers)
+                worker.start();
+            for (Thread worker : workers)
+                worker.join();
+
+            return new long[] { calls, prefixCalls, ids, sum, returned.size() };
+        }
+    }
+
+    @Test
+    public void atomicLambdaLocalsAreUpdatedAtomicallyFromSeveralThreads() throws Exception {
+        AtomicCounter counter = new AtomicCounter();
+        long[] result = counter.countFromThreads(4, 10000);
+        assertEquals(40000, result[0]);
+        assertEquals(40000, result[1]);
+        assertEquals(40000, result[2]);
+        assertEquals(80000, result[3]);
+        assertEquals("distinct values returned by the increments", 3 * 40000, result[4]);
+
+        List<Class<?>> fieldTypes = new ArrayList<Class<?>>();
+        for (Field field : counter.increment.getClass().getDeclaredFields())
+            fieldTypes.add(field.getType());
+        assertTrue(fieldTypes.contains(AtomicIntegerArray.class));
+    }
+
+    @Test
+    public void incrementOfLocalBeforeLambdaOnSameLineIsNotPartOfLambda() throws Exception {
+        int i = 0;
+        i++; Fn0<Integer> f = λ(i);
+        assertEquals(1, i);
+        assertEquals(1, (int) f.call());
+        assertEquals(1, (int) f.call());
+        assertEquals(1, i);
+    }
+
+    @Test
+    public void prefixIncrementOfLocalInZeroArgumentLambdaIsEvaluatedOnce() throws Exception {
+        int i = 0;
+        Fn0<Integer> f = λ(++i);
+        assertEquals(1, i);
+        assertEquals(1, (int) f.call());
+        assertEquals(1, (int) f.call());
+        assertEquals(1, i);
+    }
+
     @Test
     public void comparsionsInZeroArgumentLambdas() throws Exception {
         assertTrue(λ(true).call());
@@ -32,6 +32,15 @@ public class EnumerableArraysTest extends TestBase {
         assertArrayEquals(expected, actualStrings);
     }
 
+    @Test
+    public void parallelCollectElementsToDifferentType() throws Exception {
+        String[] expected = new String[] { "#1", "#2", "#3", "#4", "#5" };
+        assertArrayEquals(expected, pcollect(oneToFive, λ(n, "#" + n)));
+        assertArrayEquals(expected, pcollect(oneToFive, λ(n, "#" + n), String.class));
+        assertArrayEquals(new Integer[] { 2, 4 }, pselect(oneToFive, λ(n, n % 2 == 0)));
+        assertEquals(15, (int) pinject(oneToFive, λ(n, m, n + m)));
+    }
+
     @Test
     public void collectElementsToDifferentTypeWithEmptyArray() throws Exception {
         String[] expected = new String[] {};
@@ -49,6 +58,35 @@ public class EnumerableArraysTest extends TestBase {
         assertArrayEquals(list(1, 2, 3, 4).toArray(), range(1, 5, true));
     }
 
+    @Test
+    public void emptyRanges() throws Exception {
+        assertEquals(0, range(5, 1).length);
+        assertEquals(0, range(1, 1, true).length);
+    }
+
+    @Test
+    public void rangesEndingAtIntegerMaxValueDoNotOverflow() throws Exception {
+        assertArrayEquals(new Integer[] { Integer.MAX_VALUE - 1, Integer.MAX_VALUE }, range(Integer.MAX_VALUE - 1,
+                Integer.MAX_VALUE));
+        assertArrayEquals(new Integer[] { Integer.MAX_VALUE - 1 }, range(Integer.MAX_VALUE - 1, Integer.MAX_VALUE,
+                true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangesTooLargeForAnArrayThrowException() throws Exception {
+        range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void partitionAndTakeKeepTheComponentTypeOfTheArray() throws Exception {
+        Integer[][] partition = partition(oneToFive, λ(n, n % 2 == 0));
+        assertArrayEquals(new Integer[] { 2, 4 }, partition[0]);
+        assertArrayEquals(new Integer[] { 1, 3, 5 }, partition[1]);
+        assertArrayEquals(new Integer[] { 1, 2 }, takeWhile(oneToFive, λ(n, n < 3)));
+        assertArrayEquals(new Integer[] { 1, 2, 3 }, take(oneToFive, 3));
+        assertArrayEquals(oneToFive, take(oneToFive, 10));
+    }
+
     @Test
     public void selectMatchingElements() throws Exception {
         Integer[] selected = select(oneToFive, λ(n, n % 2 == 0));
@@ -70,6 +108,39 @@ public class EnumerableArraysTest extends TestBase {
         assertNull(max(new String[0]));
     }
 
+    @Test
+    public void minNAndMaxNKeepTheComponentTypeOfTheArray() throws Exception {
+        String[] animals = { "albatross", "dog", "horse", "fox" };
+        assertArrayEquals(new String[] { "albatross", "dog" }, minN(animals, 2));
+        assertArrayEquals(new String[] { "horse", "fox" }, maxN(animals, 2));
+        assertArrayEquals(new String[] { "albatross", "dog", "fox", "horse" }, minN(animals, 10));
+        assertArrayEquals(new String[0], maxN(animals, 0));
+        assertArrayEquals(new String[] { "albatross", "horse" }, maxN(animals, 2, λ(s, t, s.length() - t.length())));
+        assertArrayEquals(new String[] { "dog", "fox" }, minByN(animals, 2, λ(s, s.length())));
+        assertArrayEquals(new String[] { "albatross", "horse" }, maxByN(animals, 2, λ(s, s.length())));
+        assertEquals(String[].class, minN(animals, 2).getClass());
+    }
+
+    @Test
+    public void minNAndMaxNKeepTheFirstOfEqualKeysInOrder() throws Exception {
+        String[] words = { "ccc", "a", "bb", "dd", "ee", "ff", "gg", "b", "hh" };
+        assertArrayEquals(new String[] { "a", "b", "bb", "dd" }, minByN(words, 4, λ(s, s.length())));
+        assertArrayEquals(new String[] { "ccc", "bb", "dd", "ee" }, maxByN(words, 4, λ(s, s.length())));
+        assertArrayEquals(new String[] { "a", "b", "bb", "dd", "ee", "ff", "gg", "hh", "ccc" }, minByN(words, 20,
+                λ(s, s.length())));
+        assertArrayEquals(new String[] { "bb", "dd", "ee" }, minN(words, 3, λ(s, t, s.length() % 2 - t.length() % 2)));
+        assertEquals(list("a", "b", "bb", "dd"), Enumerable.minByN(list(words), 4, λ(s, s.length())));
+    }
+
+    @Test
+    public void minMaxReturnsFirstMinimumAndMaximum() throws Exception {
+        String[] animals = { "albatross", "dog", "horse", "fox" };
+        assertArrayEquals(new String[] { "albatross", "horse" }, minMax(animals));
+        assertArrayEquals(new String[] { "dog", "albatross" }, minMax(animals, λ(s, t, s.length() - t.length())));
+        assertArrayEquals(new String[] { "dog", "albatross" }, minMaxBy(animals, λ(s, s.length())));
+        assertArrayEquals(new String[] { null, null }, minMax(new String[0]));
+    }
+
     @Test
     public void partitionArrayIntoTwoBasedOnPredicate() throws Exception {
         Integer[] even = { 2, 4 };
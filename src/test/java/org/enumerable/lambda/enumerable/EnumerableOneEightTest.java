@@ -5,7 +5,11 @@ import static org.enumerable.lambda.Lambda.*;
 import static org.enumerable.lambda.Parameters.*;
 import static org.enumerable.lambda.enumerable.Enumerable.*;
 import static org.junit.Assert.*;
+import static org.junit.Assume.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
@@ -13,9 +17,12 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 
+import org.enumerable.lambda.Fn0;
+import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.TestBase;
 import org.enumerable.lambda.annotation.LambdaParameter;
 import org.enumerable.lambda.enumerable.EnumerableArrays.ReverseArrayIterable;
+import org.enumerable.lambda.enumerable.collection.ECollections;
 import org.enumerable.lambda.enumerable.collection.EList;
 import org.junit.Test;
 
@@ -56,6 +63,77 @@ public class EnumerableOneEightTest extends TestBase {
         assertEquals(list("hello", "world"), actual);
     }
 
+    @Test
+    public void callsBlockOnceForEachLineInFile() throws Exception {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = list();
+        for (int i = 0; i < 100; i++) {
+            String line = i % 10 == 0 ? "" : "line " + i + " \u00e5\u00e4\u00f6 \u20ac";
+            expected.add(line);
+            content.append(line).append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\n" : "\r");
+        }
+        expected.add("no newline at the end");
+        content.append("no newline at the end");
+
+        File file = File.createTempFile("lines", ".txt");
+        try {
+            Charset utf8 = Charset.forName("UTF-8");
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(content.toString().getBytes(utf8));
+            out.close();
+
+            List<String> actual = list();
+            eachLine(file, utf8, λ(s, actual.add(s)));
+            assertEquals(expected, actual);
+
+            assertEquals(expected, ECollections.lines(file, utf8, 64).toList());
+            assertEquals(expected.subList(0, 3), ECollections.lines(file, utf8, 64).first(3));
+            assertEquals(expected.size(), ECollections.lineSequences(file, utf8, 64).count());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void closesFileWhenIterationOfLinesStopsEarly() throws Exception {
+        File fds = new File("/proc/self/fd");
+        assumeTrue(fds.isDirectory());
+
+        File file = File.createTempFile("lines", ".txt");
+        try {
+            final Charset utf8 = Charset.forName("UTF-8");
+            FileOutputStream out = new FileOutputStream(file);
+            out.write("hello\nworld\n".getBytes(utf8));
+            out.close();
+
+            Fn1<String, Object> fails = new Fn1<String, Object>() {
+                public Object call(String a1) {
+                    throw new IllegalStateException();
+                }
+            };
+
+            int open = fds.list().length;
+            for (int i = 0; i < 50; i++) {
+                assertEquals("hello", ECollections.lines(file, utf8, 64).first());
+                assertEquals("world", ECollections.lines(file, utf8, 64).detect(λ(s, s.startsWith("w"))));
+                assertEquals(list("hello"), ECollections.lines(file, utf8, 64).take(1).toList());
+                try {
+                    eachLine(file, utf8, fails);
+                    fail();
+                } catch (IllegalStateException expected) {
+                }
+                try {
+                    ECollections.lines(file, utf8, 64).collect(fails).count();
+                    fail();
+                } catch (IllegalStateException expected) {
+                }
+            }
+            assertTrue(fds.list().length - open < 10);
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test
     public void eachOnEmptyCollectionDoesNotCallBlock() throws Exception {
         List<Integer> actual = list();
@@ -127,6 +205,106 @@ public class EnumerableOneEightTest extends TestBase {
         assertEquals(list(), range(-1, -1, true).collect(λ(n, n)));
     }
 
+    @Test
+    public void rangesWithStep() throws Exception {
+        assertEquals(list(1, 4, 7, 10), range(1, 10).step(3).toList());
+        assertEquals(list(1, 4, 7), range(1, 10, true).step(3).toList());
+        assertEquals(list(0, 6), range(0, 10).step(3).step(2).toList());
+        assertEquals(list(1L, 3L, 5L), range(1L, 5L).step(2).toList());
+        assertEquals(list(1.0, 1.5, 2.0), range(1.0, 2.0).step(0.5).toList());
+        assertEquals(list(1.0, 1.5), range(1.0, 2.0, true).step(0.5).toList());
+        assertEquals(11, range(0.0, 1.0).step(0.1).count());
+        assertEquals(1.0, range(0.0, 1.0).step(0.1).last(), 0);
+        assertEquals(10, range(0.0, 1.0, true).step(0.1).count());
+        assertEquals(3, new DoubleRange(0, 1.0000000000000002, true, 0.5).size());
+        assertEquals(1.0, new DoubleRange(0, 1.0000000000000002, true, 0.5).last(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeStepCannotBeZero() throws Exception {
+        range(1, 10).step(0);
+    }
+
+    @Test
+    public void rangesCalculateWithoutIterating() throws Exception {
+        Range range = range(1, 10).step(3);
+        assertEquals(4, range.count());
+        assertEquals(1, (int) range.first());
+        assertEquals(10, (int) range.last());
+        assertEquals(1, (int) range.min());
+        assertEquals(10, (int) range.max());
+        assertEquals(22, range.sum());
+        assertTrue(range.include(7));
+        assertFalse(range.include(8));
+        assertFalse(range.include(13));
+        assertFalse(range.include(-2));
+
+        assertEquals(5000000050000000L, range(1, 100000000).sum());
+        assertEquals(Integer.MAX_VALUE, range(Integer.MIN_VALUE, Integer.MAX_VALUE).count());
+        assertEquals(1L << 32, range(Integer.MIN_VALUE, Integer.MAX_VALUE).size());
+        assertTrue(range(0L, Long.MAX_VALUE).step(2).include(Long.MAX_VALUE - 1));
+        assertTrue(range(0.0, 1.0).step(0.25).include(0.75));
+        assertFalse(range(0.0, 1.0).step(0.25).include(0.8));
+
+        assertNull(range(1, 0).first());
+        assertEquals(0, range(1, 0).sum());
+    }
+
+    @Test
+    public void rangesTooLargeForAListOrArrayThrowInsteadOfTruncating() throws Exception {
+        assertEquals(4, range(1, 10).step(3).asList().size());
+        assertEquals(3, range(1.0, 2.0).step(0.5).toArray().length);
+
+        assertEquals(Long.MAX_VALUE, range(0L, Long.MAX_VALUE).size());
+        assertEquals(Long.MAX_VALUE, range(Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(Long.MAX_VALUE / 2 + 1, range(0L, Long.MAX_VALUE).step(2).size());
+        assertEquals(Long.MAX_VALUE / 3 * 2 + 1, range(Long.MIN_VALUE + 1, Long.MAX_VALUE).step(3).size());
+        assertEquals(Long.MAX_VALUE, range(0.0, Double.MAX_VALUE).size());
+
+        Range ints = range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        LongRange longs = range(0L, Long.MAX_VALUE);
+        DoubleRange doubles = range(0.0, 1.0).step(1e-10);
+        assertTooLargeForListOrArray(λ(ints.asList()));
+        assertTooLargeForListOrArray(λ(ints.toArray()));
+        assertTooLargeForListOrArray(λ(longs.asList()));
+        assertTooLargeForListOrArray(λ(longs.toArray()));
+        assertTooLargeForListOrArray(λ(doubles.asList()));
+        assertTooLargeForListOrArray(λ(doubles.toArray()));
+    }
+
+    void assertTooLargeForListOrArray(Fn0<?> block) {
+        try {
+            block.call();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void rangesCallPrimitiveBlocksWithoutBoxing() throws Exception {
+        long sum = 0;
+        range(1, 100).each(λ(n, sum += n));
+        assertEquals(5050, sum);
+        range(1L, 100L).step(3).each(λ(k, sum -= k));
+        assertEquals(5050 - range(1L, 100L).step(3).sum(), sum);
+    }
+
+    @Test
+    public void rangesCanBeSplitWithoutMaterializing() throws Exception {
+        EList<Range> parts = range(1, 10).split(3);
+        assertEquals(3, parts.size());
+        assertEquals(list(1, 2, 3, 4), parts.get(0).toList());
+        assertEquals(list(8, 9, 10), parts.get(2).toList());
+
+        List<Integer> all = list();
+        for (Range part : range(1, 20).step(3).split(4))
+            all.addAll(part.toList());
+        assertEquals(range(1, 20).step(3).toList(), all);
+
+        assertEquals(list(6, 7), range(5, 9).asList().subList(1, 3));
+        assertEquals(range(1, 10000).step(7).toList(), range(1, 10000).step(7).parallel().collect(λ(n, n)));
+    }
+
     @Test
     public void rejectMatchingElements() throws Exception {
         List<Integer> odd = list(1, 3, 5, 7, 9);
@@ -318,6 +496,20 @@ public class EnumerableOneEightTest extends TestBase {
         assertEquals(list(3, 4, 5), result.get(2));
     }
 
+    @Test
+    public void eachConsPassesReadOnlyWindowsWhichStayValid() throws Exception {
+        List<List<Integer>> result = list();
+        eachCons(range(1, 100), 7, λ(list, result.add(list)));
+        assertEquals(94, result.size());
+        for (int i = 0; i < result.size(); i++)
+            assertEquals(toList(range(i + 1, i + 7)), result.get(i));
+        try {
+            result.get(0).add(0);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
     @Test
     public void eachConsDoesNothingIfNIsGreaterThanListSize() throws Exception {
         List<List<Integer>> result = list();
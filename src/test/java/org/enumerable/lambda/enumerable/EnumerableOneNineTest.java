@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 
+import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.TestBase;
 import org.enumerable.lambda.annotation.LambdaParameter;
 import org.enumerable.lambda.enumerable.collection.EList;
@@ -44,6 +45,24 @@ public class EnumerableOneNineTest extends TestBase {
         assertEquals(oneToFiveThrice, cycle(oneToFive, 3, λ(n, n)));
     }
 
+    @Test
+    public void cycleCollectionIsNotAffectedByLaterChangesToCollection() throws Exception {
+        List<Integer> oneToThree = list(1, 2, 3);
+        EList<Integer> cycled = cycle(oneToThree, 2, λ(n, n));
+        oneToThree.set(0, 4);
+        oneToThree.add(5);
+        assertEquals(list(1, 2, 3, 1, 2, 3), cycled);
+    }
+
+    @Test
+    public void cycleCollectionCanBeModified() throws Exception {
+        EList<Integer> cycled = cycle(list(1, 2, 3), 2, λ(n, n));
+        cycled.add(4);
+        cycled.set(0, 5);
+        cycled.remove(1);
+        assertEquals(list(5, 3, 1, 2, 3, 4), cycled);
+    }
+
     @Test
     public void cycleCollectionZeroTimesReturnsNull() throws Exception {
         assertNull(cycle(oneToFive, 0, λ(n, n)));
@@ -142,6 +161,51 @@ public class EnumerableOneNineTest extends TestBase {
         assertEquals("horse", minBy(animals, λ(s, new StringBuilder(s).reverse().toString())));
     }
 
+    @Test
+    public void minNAndMaxNReturnsListWithNItemsInOrder() throws Exception {
+        assertEquals(list("albatross", "dog"), minN(animals, 2));
+        assertEquals(list("horse", "fox"), maxN(animals, 2));
+        assertEquals(list("albatross", "dog", "fox", "horse"), minN(animals, 10));
+        assertEquals(list(), maxN(animals, 0));
+        assertEquals(list("albatross", "horse"), maxN(animals, 2, λ(s, t, s.length() - t.length())));
+    }
+
+    @Test
+    public void minByNAndMaxByNCallsBlockOncePerItem() throws Exception {
+        assertEquals(list("horse", "dog"), minByN(animals, 2, λ(s, new StringBuilder(s).reverse().toString())));
+        assertEquals(list("fox", "albatross"), maxByN(animals, 2, λ(s, new StringBuilder(s).reverse().toString())));
+
+        final List<String> seen = list();
+        assertEquals(list("albatross"), maxByN(animals, 1, λ(s, seen.add(s) ? s.length() : 0)));
+        assertEquals(animals, seen);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minNThrowsExceptionForNegativeSize() throws Exception {
+        minN(animals, -1);
+    }
+
+    @Test
+    public void byMethodsCallBlockOncePerItem() throws Exception {
+        final List<String> seen = list();
+        Fn1<String, Integer> length = λ(s, seen.add(s) ? s.length() : 0);
+
+        assertEquals("dog", minBy(animals, length));
+        assertEquals(animals, seen);
+
+        seen.clear();
+        assertEquals("albatross", maxBy(animals, length));
+        assertEquals(animals, seen);
+
+        seen.clear();
+        assertEquals(list("dog", "albatross"), minMaxBy(animals, length));
+        assertEquals(animals, seen);
+
+        seen.clear();
+        assertEquals(list("dog", "fox", "horse", "albatross"), sortBy(animals, length));
+        assertEquals(animals, seen);
+    }
+
     @Test
     public void minMaxReturnsListWithTwoItems() throws Exception {
         assertEquals(list("albatross", "horse"), minMax(animals));
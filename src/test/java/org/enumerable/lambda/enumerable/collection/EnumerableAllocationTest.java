@@ -0,0 +1,120 @@
+package org.enumerable.lambda.enumerable.collection;
+
+import static org.enumerable.lambda.Lambda.*;
+import static org.enumerable.lambda.Parameters.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.TestBase;
+import org.enumerable.lambda.enumerable.Enumerable;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EnumerableAllocationTest extends TestBase {
+    static final int WARMUP = 100;
+    static final int CALLS = 1000;
+
+    com.sun.management.ThreadMXBean threads;
+    EList<Integer> oneToThousand;
+    Fn1<Integer, Boolean> greaterThanFive;
+
+    @Before
+    public void measureAllocationsIfSupported() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        this.threads = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(this.threads.isThreadAllocatedMemorySupported());
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++)
+            list.add(i);
+        oneToThousand = new EList<Integer>(list);
+        greaterThanFive = λ(n, n > 5);
+    }
+
+    @Test
+    public void countWithBlockDoesNotAllocate() throws Exception {
+        assertEquals(994, oneToThousand.count(greaterThanFive));
+        assertAllocatesLessThan(16, new Runnable() {
+            public void run() {
+                oneToThousand.count(greaterThanFive);
+            }
+        });
+    }
+
+    @Test
+    public void reverseEachDoesNotCopyList() throws Exception {
+        assertAllocatesLessThan(16, new Runnable() {
+            public void run() {
+                oneToThousand.reverseEach(greaterThanFive);
+            }
+        });
+        final EList<Integer> linkedList = new EList<Integer>(new LinkedList<Integer>(oneToThousand));
+        assertAllocatesLessThan(128, new Runnable() {
+            public void run() {
+                linkedList.reverseEach(greaterThanFive);
+            }
+        });
+    }
+
+    @Test
+    public void cycleDoesNotCopyListForEachCycle() throws Exception {
+        assertEquals(10000, oneToThousand.cycle(10, greaterThanFive).size());
+        assertAllocatesLessThan(8 * 1000 + 256, new Runnable() {
+            public void run() {
+                oneToThousand.cycle(10, greaterThanFive);
+            }
+        });
+    }
+
+    @Test
+    public void firstAndTakeDoNotIterateList() throws Exception {
+        assertAllocatesLessThan(16, new Runnable() {
+            public void run() {
+                oneToThousand.first();
+            }
+        });
+        assertAllocatesLessThan(256, new Runnable() {
+            public void run() {
+                oneToThousand.take(10);
+            }
+        });
+    }
+
+    @Test
+    public void staticMethodsDoNotWrapRandomAccessLists() throws Exception {
+        final List<Integer> list = oneToThousand.delegate();
+        final Fn1<Integer, Boolean> greaterThanThousand = λ(n, n > 1000);
+        assertAllocatesLessThan(16, new Runnable() {
+            public void run() {
+                Enumerable.count(list, greaterThanFive);
+                Enumerable.all(list, greaterThanFive);
+                Enumerable.any(list, greaterThanThousand);
+                Enumerable.detect(list, greaterThanThousand);
+                Enumerable.findIndex(list, greaterThanThousand);
+                Enumerable.include(list, -1);
+            }
+        });
+        assertEquals(994, Enumerable.select(list, greaterThanFive).size());
+        assertEquals(6, Enumerable.reject(list, greaterThanFive).size());
+    }
+
+    void assertAllocatesLessThan(long bytesPerCall, Runnable call) {
+        for (int i = 0; i < WARMUP; i++)
+            call.run();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++)
+            call.run();
+        long allocated = (threads.getThreadAllocatedBytes(thread) - before) / CALLS;
+        assertTrue("allocated " + allocated + " bytes per call", allocated < bytesPerCall);
+    }
+}
@@ -9,15 +9,19 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.TestBase;
+import org.enumerable.lambda.enumerable.Enumerable;
+import org.enumerable.lambda.enumerable.Range;
 import org.enumerable.lambda.enumerable.collection.ECollection;
 import org.enumerable.lambda.enumerable.collection.EIterable;
 import org.enumerable.lambda.enumerable.collection.EList;
@@ -33,12 +37,88 @@ public class EnumerableCollectionsTest extends TestBase {
         assertEquals(list(12, 14, 16, 18, 20), actual);
     }
 
+    @Test
+    public void blocksCanRemoveElementsFromConcurrentLists() throws Exception {
+        final List<String> list = new CopyOnWriteArrayList<String>(list("a", "b", "c"));
+        assertEquals(list(true, true, true), Enumerable.collect(list, λ(s, list.remove(s))));
+        assertTrue(list.isEmpty());
+
+        list.addAll(list("a", "b", "c"));
+        assertTrue(new EList<String>(list).all(λ(s, list.remove(s))));
+        assertTrue(list.isEmpty());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void blocksRemovingElementsFromListsThrowConcurrentModificationException() throws Exception {
+        final List<String> list = new ArrayList<String>(list("a", "b", "c", "d"));
+        Enumerable.collect(list, λ(s, list.remove(s)));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void blocksAddingElementsToDecoratedListsThrowConcurrentModificationException() throws Exception {
+        final List<String> list = new ArrayList<String>(list("a", "b", "c", "d"));
+        new EList<String>(list).reverseEach(λ(s, list.add(s)));
+    }
+
     @Test
     public void canChainEnumerableCollectionsThatSwitchType() throws Exception {
         List<String> actual = oneToTen.select(λ(n, n > 5)).collect(λ(n, String.format("%03d", n)));
         assertEquals(list("006", "007", "008", "009", "010"), actual);
     }
 
+    @Test
+    public void canChainLazyEnumerableCollections() throws Exception {
+        ELazy<String> lazy = oneToTen.lazy().select(λ(n, n > 5)).collect(λ(n, String.format("%03d", n)));
+        assertEquals(list("006", "007", "008", "009", "010"), lazy.toList());
+        assertEquals(list("006", "007"), lazy.first(2));
+        assertEquals("008", lazy.drop(2).first());
+        assertEquals(5, lazy.count());
+    }
+
+    @Test
+    public void lazyEnumerableCollectionsOnlyEvaluatesBlocksForElementsThatAreUsed() throws Exception {
+        final List<Integer> seen = new ArrayList<Integer>();
+        ELazy<Integer> lazy = oneToTen.lazy().collect(λ(n, seen.add(n) ? n * 2 : n)).select(λ(n, n > 4));
+        assertTrue(seen.isEmpty());
+
+        assertEquals(list(6, 8), lazy.take(2).toList());
+        assertEquals(list(1, 2, 3, 4), seen);
+
+        seen.clear();
+        assertEquals(10, (int) lazy.detect(λ(n, n > 8)));
+        assertEquals(list(1, 2, 3, 4, 5), seen);
+    }
+
+    @Test
+    public void lazyEnumerableCollectionsSupportsTheSameOperationsAsEager() throws Exception {
+        assertEquals(oneToTen.drop(3), oneToTen.lazy().drop(3).toList());
+        assertEquals(oneToTen.dropWhile(λ(n, n < 4)), oneToTen.lazy().dropWhile(λ(n, n < 4)).toList());
+        assertEquals(oneToTen.takeWhile(λ(n, n < 4)), oneToTen.lazy().takeWhile(λ(n, n < 4)).toList());
+        assertEquals(oneToTen.reject(λ(n, n % 2 == 0)), oneToTen.lazy().reject(λ(n, n % 2 == 0)).toList());
+        assertEquals(oneToTen.grep("1.*"), oneToTen.lazy().grep("1.*").toList());
+        assertEquals(oneToTen.inject(λ(n, m, n + m)), oneToTen.lazy().inject(λ(n, m, n + m)));
+        assertEquals(oneToTen.count(λ(n, n > 5)), oneToTen.lazy().count(λ(n, n > 5)));
+        assertEquals(list(), oneToTen.lazy().take(0).toList());
+    }
+
+    @Test
+    public void parallelEnumerableCollectionsKeepsOrder() throws Exception {
+        EList<Integer> oneToTenThousand = new Range(1, 10000).toList();
+        assertEquals(oneToTenThousand.collect(λ(n, n * 2)), oneToTenThousand.parallel().collect(λ(n, n * 2)));
+        assertEquals(oneToTenThousand.select(λ(n, n % 3 == 0)), new Range(1, 10000).parallel().select(λ(n, n % 3 == 0)));
+        assertEquals(oneToTenThousand.reject(λ(n, n % 3 == 0)), oneToTenThousand.parallel().reject(λ(n, n % 3 == 0)));
+        assertEquals(3333, oneToTenThousand.parallel().count(λ(n, n % 3 == 0)));
+    }
+
+    @Test
+    public void parallelEnumerableCollectionsInject() throws Exception {
+        EParallel<Integer> parallel = new Range(1, 10000).parallel();
+        assertEquals(50005000, (int) parallel.inject(λ(n, m, n + m)));
+        assertEquals(50005000, (int) parallel.inject(0, λ(n, m, n + m), λ(n, m, n + m)));
+        assertNull(new EList<Integer>().parallel().inject(λ(n, m, n + m)));
+        assertEquals(list(), new EList<Integer>().parallel().collect(λ(n, n)));
+    }
+
     @Test
     public void eachReturnsSameEnumerable() throws Exception {
         EList<Object> list = new EList<Object>();
@@ -291,4 +291,59 @@ public class EnumerableDoublesTest extends TestBase {
         assertArrayEquals(even, partition[0], 0.0);
         assertArrayEquals(odd, partition[1], 0.0);
     }
+
+    @Test
+    public void numericKernelsAggregateWithoutBlock() throws Exception {
+        double[] doubles = new double[] { 0.5, -2, 7.25, 3, 7.25, 1 };
+        assertEquals(17, sum(doubles), 0.0);
+        assertEquals(17 / 6.0, mean(doubles), 1e-12);
+        assertEquals(55, dot(doublesOneToFive, doublesOneToFive), 0.0);
+        assertEquals(2, argmax(doubles));
+        assertEquals(1, argmin(doubles));
+        assertArrayEquals(new double[] { -2, 7.25 }, minMax(doubles), 0.0);
+        assertArrayEquals(new double[] { 1, 3, 6, 10, 15 }, prefixSum(doublesOneToFive), 0.0);
+        assertArrayEquals(new int[] { 1, 1, 0, 1 }, histogram(doubles, 0, 4, 4));
+        assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, histogram(doublesOneToFive, 1, 5, 5));
+    }
+
+    @Test
+    public void minMaxReturnsNullForEmptyArray() throws Exception {
+        assertNull(minMax(new double[0]));
+        assertArrayEquals(new double[] { 1, 1 }, minMax(new double[] { 1 }), 0.0);
+    }
+
+    @Test
+    public void sumMatchesInjectWithinRounding() throws Exception {
+        double[] doubles = new double[1001];
+        for (int i = 0; i < doubles.length; i++)
+            doubles[i] = 1.0 / (i + 1);
+        assertEquals(inject(doubles, 0, λ(x, y, x + y)), sum(doubles), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogramThrowsExceptionIfMaxIsNotGreaterThanMin() throws Exception {
+        histogram(doublesOneToFive, 5, 5, 4);
+    }
+
+    @Test
+    public void slidingSumDoesNotDriftWithMixedMagnitudes() throws Exception {
+        assertArrayEquals(new double[] { 1e16, 1 }, slidingSum(new double[] { 1e16, 1 }, 1), 0.0);
+
+        double[] doubles = new double[100000];
+        for (int i = 0; i < doubles.length; i++)
+            doubles[i] = i % 100 == 0 ? 1e15 * (i % 300 == 0 ? 1 : -3) : 0.1 * (i % 7);
+
+        int n = 10;
+        double[] sums = slidingSum(doubles, n);
+        double[] means = slidingMean(doubles, n);
+        for (int i = 0; i < sums.length; i++) {
+            double expected = 0;
+            for (int j = i; j < i + n; j++)
+                expected += doubles[j];
+            assertEquals(expected, sums[i], Math.ulp(1e15) * 4);
+            assertEquals(sums[i] / n, means[i], 0.0);
+            if (i % 100 != 0 && i % 100 <= 100 - n)
+                assertEquals(expected, sums[i], 1e-12);
+        }
+    }
 }
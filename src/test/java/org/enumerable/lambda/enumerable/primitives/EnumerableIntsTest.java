@@ -7,11 +7,16 @@ import static org.junit.Assert.*;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 
+import org.enumerable.lambda.Fn1;
+import org.enumerable.lambda.Lambda;
 import org.enumerable.lambda.TestBase;
 import org.enumerable.lambda.annotation.LambdaParameter;
+import org.enumerable.lambda.enumerable.collection.EList;
+import org.enumerable.lambda.enumerable.collection.IntList;
 import org.junit.Test;
 
 public class EnumerableIntsTest extends TestBase {
@@ -215,6 +220,120 @@ public class EnumerableIntsTest extends TestBase {
         min(new int[0]);
     }
 
+    @Test
+    public void minNAndMaxNReturnsArrayWithNValuesInOrder() throws Exception {
+        int[] ints = new int[] { 5, 3, 1, 4, 2, 3 };
+        assertArrayEquals(new int[] { 1, 2, 3 }, minN(ints, 3));
+        assertArrayEquals(new int[] { 5, 4 }, maxN(ints, 2));
+        assertArrayEquals(new int[] { 1, 2, 3, 3, 4, 5 }, minN(ints, 10));
+        assertArrayEquals(new int[0], minN(ints, 0));
+        assertArrayEquals(new int[] { 1, 2 }, maxN(ints, 2, λ(n, m, m - n)));
+        assertArrayEquals(new int[] { 5, 3, 1, 4, 2, 3 }, ints);
+    }
+
+    @Test
+    public void nthElementPartitionsArrayInPlace() throws Exception {
+        Random random = new Random(0);
+        int[] ints = new int[1000];
+        for (int i = 0; i < ints.length; i++)
+            ints[i] = random.nextInt(100);
+        int[] sorted = sort(ints);
+
+        for (int n : new int[] { 0, 1, 499, 998, 999 }) {
+            int[] array = ints.clone();
+            assertEquals(sorted[n], nthElement(array, n));
+            for (int i = 0; i < n; i++)
+                assertTrue(array[i] <= array[n]);
+            for (int i = n + 1; i < array.length; i++)
+                assertTrue(array[i] >= array[n]);
+            assertArrayEquals(sorted, sort(array));
+        }
+    }
+
+    @LambdaParameter
+    static List<Integer> window;
+
+    @Test
+    public void eachConsPassesReadOnlyViewsOfArray() throws Exception {
+        List<List<Integer>> result = list();
+        eachCons(intsOneToFive, 3, Lambda.λ(window, result.add(window)));
+        assertEquals(list(list(1, 2, 3), list(2, 3, 4), list(3, 4, 5)), result);
+        try {
+            result.get(0).set(0, 0);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void slidingAggregatesReturnValueForEachWindow() throws Exception {
+        int[] ints = new int[] { 4, 2, 12, 3, 8, 1, 5 };
+        assertArrayEquals(new int[] { 18, 17, 23, 12, 14 }, slidingSum(ints, 3));
+        assertArrayEquals(new double[] { 6, 17 / 3.0, 23 / 3.0, 4, 14 / 3.0 }, slidingMean(ints, 3), 1e-9);
+        assertArrayEquals(new int[] { 2, 2, 3, 1, 1 }, slidingMin(ints, 3));
+        assertArrayEquals(new int[] { 12, 12, 12, 8, 8 }, slidingMax(ints, 3));
+        assertArrayEquals(ints, slidingMax(ints, 1));
+        assertArrayEquals(new int[0], slidingMin(ints, 8));
+    }
+
+    @Test
+    public void slidingMinAndMaxMatchesMinAndMaxOfEachWindow() throws Exception {
+        Random random = new Random(0);
+        int[] ints = new int[1000];
+        for (int i = 0; i < ints.length; i++)
+            ints[i] = random.nextInt(100);
+
+        for (int n : new int[] { 1, 2, 7, 100, 1000 }) {
+            int[] mins = slidingMin(ints, n);
+            int[] maxes = slidingMax(ints, n);
+            assertEquals(ints.length - n + 1, mins.length);
+            for (int i = 0; i < mins.length; i++) {
+                int[] each = new int[n];
+                System.arraycopy(ints, i, each, 0, n);
+                assertEquals(min(each), mins[i]);
+                assertEquals(max(each), maxes[i]);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slidingSumThrowsExceptionIfNIsZeroOrLess() throws Exception {
+        slidingSum(intsOneToFive, 0);
+    }
+
+    @Test
+    public void numericKernelsAggregateWithoutBlock() throws Exception {
+        int[] ints = new int[] { 4, 2, 12, 3, 8, 1, 5 };
+        assertEquals(35, sum(ints));
+        assertEquals(inject(ints, 0, λ(n, m, n + m)), sum(ints));
+        assertEquals(5.0, mean(ints), 0.0);
+        assertEquals(1 + 4 + 9 + 16 + 25, dot(intsOneToFive, intsOneToFive));
+        assertEquals(2, argmax(ints));
+        assertEquals(5, argmin(ints));
+        assertArrayEquals(new int[] { 1, 12 }, minMax(ints));
+        assertArrayEquals(new int[] { 1, 3, 6, 10, 15 }, prefixSum(intsOneToFive));
+        assertArrayEquals(new int[] { 2, 3, 1, 1 }, histogram(ints, 0, 12, 4));
+    }
+
+    @Test
+    public void numericKernelsHandleEmptyArrays() throws Exception {
+        assertEquals(0, sum(new int[0]));
+        assertTrue(Double.isNaN(mean(new int[0])));
+        assertEquals(-1, argmax(new int[0]));
+        assertNull(minMax(new int[0]));
+        assertArrayEquals(new int[0], prefixSum(new int[0]));
+    }
+
+    @Test
+    public void meanDoesNotOverflow() throws Exception {
+        assertEquals(Integer.MAX_VALUE, mean(new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE }), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dotThrowsExceptionIfArraysDifferInLength() throws Exception {
+        dot(intsOneToFive, new int[] { 1, 2 });
+    }
+
     @Test
     public void memberReturnsTrueForExistingElement() throws Exception {
         assertTrue(member(intsOneToFive, 3));
@@ -228,6 +347,52 @@ public class EnumerableIntsTest extends TestBase {
     @Test
     public void toListCreatesIntegerListFromIntArray() throws Exception {
         assertEquals(list(1, 2, 3, 4, 5), toList(intsOneToFive));
+        assertTrue(toList(intsOneToFive) instanceof IntList);
+        assertTrue(entries(intsOneToFive) instanceof IntList);
+    }
+
+    @Test
+    public void toListCreatesIntListWhichKeepsResultsUnboxed() throws Exception {
+        IntList list = toIntList(intsOneToFive);
+        assertArrayEquals(new int[] { 4, 8 }, list.select(λ(n, n % 2 == 0)).collect(λ(n, n * 2)).toIntArray());
+        assertArrayEquals(new int[] { 1, 3, 5 }, list.reject(λ(n, n % 2 == 0)).toIntArray());
+        assertEquals(15, list.inject(λ(n, m, n + m)));
+        assertEquals(3, list.detect(-1, λ(n, n > 2)));
+        assertEquals(2, list.count(λ(n, n > 3)));
+        assertArrayEquals(new double[] { 0.5, 1.0, 1.5, 2.0, 2.5 }, list.collect(λ(n, n / 2.0)).toDoubleArray(), 0);
+    }
+
+    @Test
+    public void intListUsesPrimitivePathForGenericLambdasWovenAsPrimitive() throws Exception {
+        IntList list = toIntList(intsOneToFive);
+        Fn1<Integer, Integer> twice = Lambda.λ(n, n * 2);
+        Fn1<Integer, Boolean> even = Lambda.λ(n, n % 2 == 0);
+
+        EList<Integer> doubled = list.collect(twice);
+        assertTrue(doubled instanceof IntList);
+        assertEquals(list(2, 4, 6, 8, 10), doubled);
+        assertTrue(list.select(even) instanceof IntList);
+        assertEquals(list(1, 3, 5), list.reject(even));
+        assertEquals(2, list.count(even));
+        assertEquals(2, (int) list.detect(even));
+        assertEquals(15, (int) list.inject(Lambda.λ(n, m, n + m)));
+        assertEquals(25, (int) list.inject(10, Lambda.λ(n, m, n + m)));
+        assertEquals(list("1", "2", "3", "4", "5"), list.collect(Lambda.λ(n, "" + n)));
+    }
+
+    @Test
+    public void intListIsAGrowableListOfIntegers() throws Exception {
+        IntList list = new IntList(1);
+        for (int i : intsOneToFive)
+            list.addInt(i);
+        list.add(6);
+        assertEquals(list(1, 2, 3, 4, 5, 6), list);
+        assertEquals(6, list.getInt(5));
+
+        list.remove(0);
+        list.set(0, 7);
+        assertEquals(list(7, 3, 4, 5, 6), list);
+        assertEquals(list(3, 4, 5, 6, 7), list.sort());
     }
 
     @Test
@@ -230,6 +230,12 @@ public class EnumerableLongsTest extends TestBase {
         assertEquals(0, min(new long[0]));
     }
 
+    @Test
+    public void minMaxReturnsNullForEmptyArray() throws Exception {
+        assertArrayEquals(new long[] { 1, 5 }, minMax(longsOneToFive));
+        assertNull(minMax(new long[0]));
+    }
+
     @Test
     public void memberReturnsTrueForExistingElement() throws Exception {
         assertTrue(member(longsOneToFive, 3));
@@ -9,7 +9,7 @@ import java.io.Reader;
 import java.io.StringWriter;
 
 public class PrimitiveEnumerableGenerator {
-    private static final String DIR = "src/main/java/lambda/enumerable/primitives/";
+    private static final String DIR = "src/main/java/org/enumerable/lambda/enumerable/primitives/";
     private static final String SOURCE = "EnumerableDoubles.java";
 
     public static void main(String[] args) throws Exception {
@@ -38,9 +38,12 @@ public class PrimitiveEnumerableGenerator {
             throws Exception {
         s = s.replaceAll("double", primitiveType);
         s = s.replaceAll("Doubles", name);
+        s = s.replaceAll("DoubleList", name.substring(0, name.length() - 1) + "List");
         s = s.replaceAll("Double", boxedType);
         s = s.replaceAll("/\\* don't change \\*/" + primitiveType, "/\\* don't change \\*/double");
         s = s.replaceAll("/\\* don't change \\*/" + boxedType, "/\\* don't change \\*/Double");
+        s = s.replaceAll("\n[ \t]*/\\* floating point only \\*/[^;]*;", "");
+        s = s.replaceAll("/\\* floating point only \\*/[^;]*", "");
 
         s = s.replaceAll("Fn1D", "Fn1" + letterForType);
         s = s.replaceAll("Fn2DDtoO", "Fn2" + letterForType + letterForType + "toO");
@@ -11,6 +11,7 @@ import japa.parser.ast.expr.NullLiteralExpr;
 import org.enumerable.lambda.Fn0;
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.Fn2;
+import org.enumerable.lambda.weaving.InMemoryCompiler;
 import org.junit.Test;
 
 public class LambdaExpressionTreesTest {
@@ -34,6 +35,66 @@ public class LambdaExpressionTreesTest {
         assertEquals(8, (int) fn2.call(2, 4));
     }
 
+    @Test
+    public void identicalExpressionsReuseTheSameCompiledClass() throws Exception {
+        Fn1<Integer, Integer> fn1 = toFn1(Integer.class, Integer.class, "n", parseExpression("n + 1"));
+        Fn1<Integer, Integer> sameFn1 = toFn1(Integer.class, Integer.class, "n", parseExpression("n + 1"));
+        assertNotSame(fn1, sameFn1);
+        assertSame(fn1.getClass(), sameFn1.getClass());
+        assertEquals(3, (int) sameFn1.call(2));
+
+        assertNotSame(fn1.getClass(), toFn1(Integer.class, Integer.class, "n", parseExpression("n + 2")).getClass());
+        assertNotSame(fn1.getClass(), toFn1(Long.class, Long.class, "n", parseExpression("n + 1")).getClass());
+    }
+
+    @Test
+    public void compiledClassesAreOnlyCachedForTheMostRecentlyUsedExpressions() throws Exception {
+        int cacheSize = LambdaExpressionTrees.compiledExpressionsCacheSize;
+        try {
+            LambdaExpressionTrees.compiledExpressionsCacheSize = 1;
+            LambdaExpressionTrees.compiledExpressions.clear();
+            Class<?> fn1Class = toFn1(Integer.class, Integer.class, "n", parseExpression("n + 3")).getClass();
+            assertSame(fn1Class, toFn1(Integer.class, Integer.class, "n", parseExpression("n + 3")).getClass());
+
+            Class<?> evictingClass = toFn1(Integer.class, Integer.class, "n", parseExpression("n + 4")).getClass();
+            assertEquals(1, LambdaExpressionTrees.compiledExpressions.size());
+            assertNotSame(fn1Class.getClassLoader(), evictingClass.getClassLoader());
+            assertNull(InMemoryCompiler.bytesByClassName.get(fn1Class.getClassLoader(), fn1Class.getName()));
+            assertNotNull(InMemoryCompiler.bytesByClassName.get(evictingClass.getClassLoader(), evictingClass.getName()));
+            assertNotSame(fn1Class, toFn1(Integer.class, Integer.class, "n", parseExpression("n + 3")).getClass());
+        } finally {
+            LambdaExpressionTrees.compiledExpressionsCacheSize = cacheSize;
+        }
+    }
+
+    @Test
+    public void simpleExpressionsAreGeneratedDirectlyWithTheSameSemanticsAsJava() throws Exception {
+        assertEquals(7, (int) toFn2(Integer.class, Integer.class, "n", Integer.class, "m", parseExpression("n * m + 1"))
+                .call(2, 3));
+        assertEquals(3, (int) toFn2(Integer.class, Integer.class, "n", Integer.class, "m", parseExpression("n > m ? n : m"))
+                .call(2, 3));
+        assertEquals(-1, (int) toFn1(Integer.class, Integer.class, "n", parseExpression("-n % 3")).call(4));
+        assertEquals(9, (int) toFn2(Integer.class, Integer.class, "n", Integer.class, "m", parseExpression("(n << 2) | m"))
+                .call(2, 1));
+        assertEquals(1.5, toFn1(Double.class, Integer.class, "n", parseExpression("n / 2.0")).call(3), 0.0);
+        assertEquals("#31", toFn1(String.class, Integer.class, "n", parseExpression("\"#\" + n + 1")).call(3));
+        assertEquals("4#", toFn1(String.class, Integer.class, "n", parseExpression("n + 1 + \"#\"")).call(3));
+        assertFalse(toFn1(Boolean.class, Integer.class, "n", parseExpression("n != null && n >= 2")).call(null));
+        assertTrue(toFn1(Boolean.class, Double.class, "d", parseExpression("!(d < 0.0)")).call(Double.NaN));
+        assertEquals(5L, (long) toFn1(Long.class, Long.class, "k", parseExpression("k * 2 - 1")).call(3L));
+        assertEquals(3L, toFn1(Object.class, Integer.class, "n", parseExpression("(long) n")).call(3));
+
+        Fn1<Integer, Integer> fn = toFn1(Integer.class, Integer.class, "n", parseExpression("n * 2 + 1"));
+        assertEquals(1, fn.getClass().getDeclaredMethods().length);
+    }
+
+    @Test
+    public void expressionsNotGeneratedDirectlyAreCompiledFromSource() throws Exception {
+        Fn1<String, String> fn = toFn1(String.class, String.class, "s", parseExpression("s.toUpperCase()"));
+        assertEquals("HELLO", fn.call("hello"));
+        assertTrue(fn.getClass().getDeclaredMethods().length > 1);
+    }
+
     @Test
     public void turnLambdasIntoExpressionsAndThenBackToLambdaAfterModification() throws Exception {
         BinaryExpr expression = toExpression(λ(n, n * 2));
@@ -44,6 +105,21 @@ public class LambdaExpressionTreesTest {
         assertEquals(2, (int) half.call(4));
     }
 
+    @Test
+    public void expressionsAreOnlyParsedOnceButReturnedAsCopies() throws Exception {
+        Fn1<Integer, Integer> fn = λ(n, (n + 1) * 2);
+        BinaryExpr expression = toExpression(fn);
+        assertTrue(expressionsByLambdaClass.containsKey(fn.getClass()));
+
+        BinaryExpr copy = toExpression(fn);
+        assertNotSame(expression, copy);
+        assertNotSame(expression.getLeft(), copy.getLeft());
+        assertEquals(expression, copy);
+
+        expression.setOperator(BinaryExpr.Operator.divide);
+        assertEquals(BinaryExpr.Operator.times, ((BinaryExpr) toExpression(fn)).getOperator());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void turnClosureIntoExpressionThrowsException() throws Exception {
         int i = 1;
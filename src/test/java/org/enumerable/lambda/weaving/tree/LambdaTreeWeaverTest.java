@@ -7,6 +7,7 @@ import static org.junit.Assert.*;
 import static org.objectweb.asm.Type.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Comparator;
 
 
@@ -14,12 +15,14 @@ import org.enumerable.lambda.Fn0;
 import org.enumerable.lambda.Fn1;
 import org.enumerable.lambda.Fn2;
 import org.enumerable.lambda.Fn3;
+import org.enumerable.lambda.Lambda;
 import org.enumerable.lambda.TestBase;
 import org.enumerable.lambda.annotation.LambdaParameter;
 import org.enumerable.lambda.primitives.Fn1DtoI;
 import org.enumerable.lambda.primitives.Fn2DDtoD;
 import org.enumerable.lambda.primitives.Fn2LLtoL;
 import org.enumerable.lambda.primitives.LambdaPrimitives;
+import org.enumerable.lambda.weaving.LambdaLoader;
 import org.enumerable.lambda.weaving.tree.LambdaTreeWeaver.MethodAnalyzer;
 import org.enumerable.lambda.weaving.tree.LambdaTreeWeaver.MethodAnalyzer.LambdaAnalyzer;
 import org.junit.After;
@@ -27,6 +30,7 @@ import org.junit.Test;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
 
 @SuppressWarnings("unused")
 public class LambdaTreeWeaverTest extends TestBase implements Opcodes {
@@ -634,6 +638,114 @@ public class LambdaTreeWeaverTest extends TestBase implements Opcodes {
         assertTrue(weaver.methodsThatNeedStaticAccessMethod.containsKey("p"));
     }
 
+    @Test
+    public void referencedClassesAreOnlyReadOncePerClassLoader() throws Exception {
+        class C {
+            void m() {
+                λ(n, null);
+            }
+        }
+
+        String lambda = getInternalName(Lambda.class);
+        ClassNode first = analyze(C.class).readClassNoCode(lambda);
+        assertSame(first, LambdaTreeWeaver.cacheFor(LambdaTreeWeaver.classNodesByLoader, C.class.getClassLoader()).get(lambda));
+        assertSame(first, analyze(C.class).readClassNoCode(lambda));
+        assertNotSame(first, new LambdaTreeWeaver(new ClassLoader() {
+        }, createClassFilter(), new ClassReader(C.class.getName())).analyze().readClassNoCode(lambda));
+    }
+
+    @Test
+    public void constantPoolScanFindsClassesWhichMayHaveLambdas() throws Exception {
+        class WithLambda {
+            void m() {
+                λ(n, null);
+            }
+        }
+        class WithLambdaParameter {
+            int m() {
+                return n;
+            }
+        }
+        class WithoutLambda {
+            String m() {
+                return toString();
+            }
+        }
+
+        ClassLoader loader = getClass().getClassLoader();
+        assertTrue(LambdaTreeWeaver.mayHaveLambdas(loader, new ClassReader(WithLambda.class.getName())));
+        assertTrue(LambdaTreeWeaver.mayHaveLambdas(loader, new ClassReader(WithLambdaParameter.class.getName())));
+        assertFalse(LambdaTreeWeaver.mayHaveLambdas(loader, new ClassReader(WithoutLambda.class.getName())));
+        assertFalse(LambdaTreeWeaver.mayHaveLambdas(loader, new ClassReader(String.class.getName())));
+        assertTrue(LambdaTreeWeaver.mayHaveLambdas(loader, new ClassReader(getClass().getName())));
+
+        assertEquals(1, methodIn(WithLambda.class).lambdas.size());
+    }
+
+    @Test
+    public void lambdasAreOnlyRetainedUntilTheyAreDefinedUnlessAskedFor() throws Exception {
+        class C {
+            Object m() {
+                return λ(n, n * 2);
+            }
+        }
+
+        ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+        };
+        LambdaTreeTransformer transformer = new LambdaTreeTransformer();
+        assertNotNull(transformer.transform(loader, createClassFilter(), C.class.getName(), classBytes(C.class)));
+        assertEquals(0, transformer.getLambdas().size());
+        assertTrue(transformer.getLambdasByClassName(loader).isEmpty());
+
+        loader = new ClassLoader(getClass().getClassLoader()) {
+        };
+        transformer = new LambdaTreeTransformer(true);
+        transformer.transform(loader, createClassFilter(), C.class.getName(), classBytes(C.class));
+        assertEquals(1, transformer.getLambdas().size());
+        assertEquals(1, transformer.getLambdas().loaders());
+
+        String lambda = transformer.getLambdasByClassName(loader).keySet().iterator().next();
+        assertNotNull(loader.loadClass(lambda));
+        assertSame(transformer.getLambdas().get(loader, lambda), transformer.transform(loader, createClassFilter(), lambda, null));
+        assertNull(transformer.getLambdas().get(getClass().getClassLoader(), lambda));
+    }
+
+    @Test
+    public void lazyLambdasAreNotGeneratedUntilRequestedByTheLambdaLoader() throws Exception {
+        class C {
+            Object m() {
+                return λ(n, n * 2);
+            }
+        }
+
+        boolean lazyLambdas = LambdaTreeTransformer.lazyLambdas;
+        try {
+            LambdaTreeTransformer.lazyLambdas = true;
+            LambdaTreeTransformer transformer = new LambdaTreeTransformer();
+
+            ClassLoader loader = new LambdaLoader();
+            transformer.transform(loader, createClassFilter(), C.class.getName(), classBytes(C.class));
+            assertEquals(1, transformer.getPendingLambdaCount(loader));
+
+            String lambda = transformer.pendingLambdasFor(loader).keySet().iterator().next();
+            byte[] bs = transformer.transform(loader, createClassFilter(), lambda, null);
+            assertEquals(lambda.replace('.', '/'), new ClassReader(bs).getClassName());
+            assertEquals(0, transformer.getPendingLambdaCount(loader));
+            assertFalse(transformer.pendingLambdasByLoader.containsKey(loader));
+
+            loader = new ClassLoader(getClass().getClassLoader()) {
+            };
+            transformer.transform(loader, createClassFilter(), C.class.getName(), classBytes(C.class));
+            assertEquals(0, transformer.getPendingLambdaCount(loader));
+        } finally {
+            LambdaTreeTransformer.lazyLambdas = lazyLambdas;
+        }
+    }
+
+    InputStream classBytes(Class<?> aClass) {
+        return aClass.getClassLoader().getResourceAsStream(getInternalName(aClass) + ".class");
+    }
+
     LambdaAnalyzer lambdaIn(Class<?> aClass) throws Exception {
         return methodIn(aClass).lambdas.get(0);
     }
@@ -644,7 +756,8 @@ public class LambdaTreeWeaverTest extends TestBase implements Opcodes {
 
     @After
     public void transform() throws Exception {
-        weaver.transform();
+        if (weaver != null)
+            weaver.transform();
     }
 
     LambdaTreeWeaver weaver;